@@ -0,0 +1,124 @@
+/*
+MIT License
+
+Copyright (c) 2016 Sebastian Janisch
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package org.sjanisch.skillview.git.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sjanisch.skillview.core.diff.api.ContentDiffService;
+import org.sjanisch.skillview.git.GitContentDiffServices;
+
+/**
+ * Compares {@link GitContentDiffServices#GIT_HISTOGRAM_ALGORITHM} and
+ * {@link GitContentDiffServices#GIT_MYERS_ALGORITHM} on pairs of source files
+ * where a share of lines was modified, inserted or deleted.
+ * 
+ * @author sebastianjanisch
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContentDiffBenchmark {
+
+	@Param({ "HISTOGRAM", "MYERS" })
+	public String algorithm;
+
+	@Param({ "200", "5000" })
+	public int lines;
+
+	@Param({ "0.01", "0.2" })
+	public double changeRatio;
+
+	private ContentDiffService service;
+	private String previous;
+	private String current;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		service = "HISTOGRAM".equals(algorithm) ? GitContentDiffServices.GIT_HISTOGRAM_ALGORITHM
+				: GitContentDiffServices.GIT_MYERS_ALGORITHM;
+
+		Random random = new Random(42);
+		List<String> previousLines = new ArrayList<>(lines);
+		for (int i = 0; i < lines; ++i) {
+			previousLines.add(sourceLine(random, i));
+		}
+
+		List<String> currentLines = new ArrayList<>(previousLines);
+		int changes = (int) Math.max(1, lines * changeRatio);
+		for (int i = 0; i < changes; ++i) {
+			int line = random.nextInt(currentLines.size());
+			switch (random.nextInt(3)) {
+			case 0:
+				currentLines.set(line, sourceLine(random, line));
+				break;
+			case 1:
+				currentLines.add(line, sourceLine(random, line));
+				break;
+			default:
+				currentLines.remove(line);
+			}
+		}
+
+		previous = String.join("\n", previousLines);
+		current = String.join("\n", currentLines);
+	}
+
+	@Benchmark
+	public Object diff() {
+		return service.diff(previous, current).getTouchedContent();
+	}
+
+	private static String sourceLine(Random random, int line) {
+		switch (line % 10) {
+		case 0:
+			return "";
+		case 1:
+			return "\t}";
+		case 2:
+			return "\tpublic int method" + random.nextInt(100) + "(int value) {";
+		default:
+			return "\t\tint value" + random.nextInt(1000) + " = compute(value, " + random.nextInt() + ");";
+		}
+	}
+
+}
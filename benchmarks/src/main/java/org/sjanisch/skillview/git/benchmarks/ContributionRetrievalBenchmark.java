@@ -0,0 +1,104 @@
+/*
+MIT License
+
+Copyright (c) 2016 Sebastian Janisch
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package org.sjanisch.skillview.git.benchmarks;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.eclipse.jgit.lib.Repository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.sjanisch.skillview.core.contribution.api.Contribution;
+import org.sjanisch.skillview.core.contribution.api.Project;
+import org.sjanisch.skillview.git.GitContributionService;
+
+/**
+ * Measures {@link GitContributionService#retrieveContributions(Instant, Instant)}
+ * over the full history of synthetic repositories of varying shape.
+ * 
+ * @author sebastianjanisch
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ContributionRetrievalBenchmark {
+
+	@Param({ "100", "1000" })
+	public int commitCount;
+
+	@Param({ "20", "200" })
+	public int fileCount;
+
+	@Param({ "100", "2000" })
+	public int linesPerFile;
+
+	private SyntheticRepository syntheticRepository;
+	private GitContributionService service;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		syntheticRepository = SyntheticRepository.create(commitCount, fileCount, linesPerFile);
+		service = new GitContributionService(this::openRepository, Project.of("benchmark"));
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		syntheticRepository.close();
+	}
+
+	@Benchmark
+	public void retrieveContributions(Blackhole blackhole) {
+		try (Stream<Contribution> contributions = service.retrieveContributions(Instant.EPOCH, Instant.now())) {
+			contributions.forEach(blackhole::consume);
+		}
+	}
+
+	private Repository openRepository() {
+		try {
+			return syntheticRepository.open();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+}
@@ -0,0 +1,192 @@
+/*
+MIT License
+
+Copyright (c) 2016 Sebastian Janisch
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package org.sjanisch.skillview.git.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Random;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.Repository;
+
+/**
+ * Generates git repositories with synthetic history in a temporary folder.
+ * <p>
+ * Every commit modifies a few lines in a few of the files, so diffs are small
+ * compared to file sizes as they are in real repositories. Generation is
+ * deterministic for a given set of parameters.
+ * <p>
+ * This class is not thread safe.
+ * 
+ * @author sebastianjanisch
+ *
+ */
+public class SyntheticRepository implements AutoCloseable {
+
+	/**
+	 * Commit time of the first generated commit, in seconds since epoch.
+	 */
+	public static final long FIRST_COMMIT_TIME = 1451606400L;
+
+	private static final int FILES_PER_COMMIT = 3;
+	private static final int LINES_PER_FILE_CHANGE = 2;
+
+	private final File directory;
+	private final int commitCount;
+
+	private SyntheticRepository(File directory, int commitCount) {
+		this.directory = directory;
+		this.commitCount = commitCount;
+	}
+
+	/**
+	 * 
+	 * @param commitCount
+	 *            number of commits on the master branch. Must be positive.
+	 * @param fileCount
+	 *            number of files in the repository. Must be positive.
+	 * @param linesPerFile
+	 *            number of lines per file. Must be positive.
+	 * @return a new repository in a temporary folder that is deleted upon
+	 *         {@link #close()}. Never {@code null}.
+	 * @throws Exception
+	 *             if the repository cannot be generated
+	 */
+	public static SyntheticRepository create(int commitCount, int fileCount, int linesPerFile) throws Exception {
+		File directory = Files.createTempDirectory("skill-view-benchmark").toFile();
+		try {
+			generate(directory, commitCount, fileCount, linesPerFile);
+			return new SyntheticRepository(directory, commitCount);
+		} catch (Exception e) {
+			delete(directory.toPath());
+			throw e;
+		}
+	}
+
+	/**
+	 * 
+	 * @return a freshly opened repository. Must be closed by the caller. Never
+	 *         {@code null}.
+	 * @throws IOException
+	 *             if the repository cannot be opened
+	 */
+	public Repository open() throws IOException {
+		return Git.open(directory).getRepository();
+	}
+
+	/**
+	 * 
+	 * @return the working directory of the repository. Never {@code null}.
+	 */
+	public File getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * 
+	 * @return number of commits in the repository
+	 */
+	public int getCommitCount() {
+		return commitCount;
+	}
+
+	@Override
+	public void close() throws IOException {
+		delete(directory.toPath());
+	}
+
+	private static void generate(File directory, int commitCount, int fileCount, int linesPerFile)
+			throws Exception {
+		Random random = new Random(42);
+		String[][] files = new String[fileCount][linesPerFile];
+		for (int file = 0; file < fileCount; ++file) {
+			for (int line = 0; line < linesPerFile; ++line) {
+				files[file][line] = randomLine(random);
+			}
+		}
+
+		try (Git git = Git.init().setDirectory(directory).call()) {
+			for (int commit = 0; commit < commitCount; ++commit) {
+				if (commit == 0) {
+					for (int file = 0; file < fileCount; ++file) {
+						write(directory, file, files[file]);
+					}
+				} else {
+					for (int i = 0; i < Math.min(FILES_PER_COMMIT, fileCount); ++i) {
+						int file = random.nextInt(fileCount);
+						for (int j = 0; j < LINES_PER_FILE_CHANGE; ++j) {
+							files[file][random.nextInt(linesPerFile)] = randomLine(random);
+						}
+						write(directory, file, files[file]);
+					}
+				}
+
+				long commitTime = (FIRST_COMMIT_TIME + commit * 3600L) * 1000;
+				PersonIdent ident = new PersonIdent("Author " + (commit % 7), "author" + (commit % 7) + "@example.com",
+						commitTime, 0);
+				git.add().addFilepattern(".").call();
+				git.commit().setMessage("Commit " + commit).setAuthor(ident).setCommitter(ident).call();
+			}
+		}
+	}
+
+	private static String randomLine(Random random) {
+		StringBuilder line = new StringBuilder("\tvalue");
+		line.append(random.nextInt(1000)).append(" = compute(").append(random.nextLong()).append(");");
+		return line.toString();
+	}
+
+	private static void write(File directory, int file, String[] lines) throws IOException {
+		Path path = directory.toPath().resolve("src/File" + file + ".java");
+		Files.createDirectories(path.getParent());
+		Files.write(path, String.join("\n", lines).concat("\n").getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static void delete(Path path) throws IOException {
+		if (!path.toFile().exists()) {
+			return;
+		}
+		Files.walkFileTree(path, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+				Files.delete(file);
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+				Files.delete(dir);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+
+}
@@ -0,0 +1,100 @@
+/*
+MIT License
+
+Copyright (c) 2016 Sebastian Janisch
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package org.sjanisch.skillview.git.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.Repository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sjanisch.skillview.git.TemporaryCloneGitFileRepository;
+
+/**
+ * Measures the cost of {@link TemporaryCloneGitFileRepository} cloning a
+ * synthetic repository from a local {@code file://} remote and closing it
+ * again.
+ * <p>
+ * Closed clones are deleted in the background, which is not part of the
+ * measurement. Pending deletions are awaited after every iteration, so that
+ * they neither pile up nor compete with the next iteration for the disk.
+ * 
+ * @author sebastianjanisch
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TemporaryCloneBenchmark {
+
+	@Param({ "100", "1000" })
+	public int commitCount;
+
+	@Param({ "50" })
+	public int fileCount;
+
+	private SyntheticRepository syntheticRepository;
+	private String uri;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		syntheticRepository = SyntheticRepository.create(commitCount, fileCount, 200);
+		uri = "file://" + syntheticRepository.getDirectory().getAbsolutePath();
+	}
+
+	@TearDown(Level.Iteration)
+	public void awaitDeletions() throws InterruptedException {
+		while (TemporaryCloneGitFileRepository.getPendingDeletions() > 0) {
+			Thread.sleep(10);
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		syntheticRepository.close();
+	}
+
+	@Benchmark
+	public void cloneAndDelete() {
+		try (Repository repository = TemporaryCloneGitFileRepository
+				.createTemporaryRepository(Git.cloneRepository().setURI(uri))) {
+			repository.getObjectDatabase();
+		}
+	}
+
+}
@@ -0,0 +1,168 @@
+/*
+MIT License
+
+Copyright (c) 2016 Sebastian Janisch
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package org.sjanisch.skillview.git.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.AbstractTreeIterator;
+import org.eclipse.jgit.treewalk.CanonicalTreeParser;
+import org.eclipse.jgit.treewalk.EmptyTreeIterator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the per-commit overhead of preparing the old and new tree parsers
+ * that a commit is diffed with.
+ * <p>
+ * {@link #resolveParentRevision(Blackhole)} replicates the former approach of
+ * creating a fresh {@link RevWalk} and {@link ObjectReader} per tree and
+ * resolving the parent via the {@code <sha>~1} revision string.
+ * {@link #reuseWalkAndParentPointer(Blackhole)} replicates the current
+ * approach of {@code GitContributionService}, which follows
+ * {@link RevCommit#getParent(int) parent pointers} of the traversal and resets
+ * long-lived tree parsers on a shared reader.
+ * 
+ * @author sebastianjanisch
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TreeParserPreparationBenchmark {
+
+	@Param({ "200" })
+	public int commitCount;
+
+	@Param({ "50", "500" })
+	public int fileCount;
+
+	private SyntheticRepository syntheticRepository;
+	private Repository repository;
+
+	private RevWalk walk;
+	private ObjectReader reader;
+	private List<RevCommit> commits;
+	private int nextCommit;
+
+	private final CanonicalTreeParser oldTreeParser = new CanonicalTreeParser();
+	private final CanonicalTreeParser newTreeParser = new CanonicalTreeParser();
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		syntheticRepository = SyntheticRepository.create(commitCount, fileCount, 20);
+		repository = syntheticRepository.open();
+
+		reader = repository.newObjectReader();
+		walk = new RevWalk(reader);
+		walk.markStart(walk.parseCommit(repository.resolve("HEAD")));
+		commits = new ArrayList<>();
+		walk.forEach(commits::add);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		walk.close();
+		reader.close();
+		repository.close();
+		syntheticRepository.close();
+	}
+
+	@Benchmark
+	public void resolveParentRevision(Blackhole blackhole) {
+		String name = nextCommit().getName();
+
+		blackhole.consume(prepareTreeParser(repository, name + "~1"));
+		blackhole.consume(prepareTreeParser(repository, name));
+	}
+
+	@Benchmark
+	public void reuseWalkAndParentPointer(Blackhole blackhole) throws Exception {
+		RevCommit commit = nextCommit();
+
+		if (commit.getParentCount() == 0) {
+			blackhole.consume(new EmptyTreeIterator());
+		} else {
+			oldTreeParser.reset(reader, commit.getParent(0).getTree());
+			blackhole.consume(oldTreeParser);
+		}
+		newTreeParser.reset(reader, commit.getTree());
+		blackhole.consume(newTreeParser);
+	}
+
+	private RevCommit nextCommit() {
+		RevCommit commit = commits.get(nextCommit);
+		nextCommit = (nextCommit + 1) % commits.size();
+		return commit;
+	}
+
+	private static AbstractTreeIterator prepareTreeParser(Repository repository, String objectId) {
+		try (RevWalk walk = new RevWalk(repository)) {
+			try {
+				RevCommit commit;
+				if (objectId.endsWith("~1")) {
+					try {
+						commit = walk.parseCommit(repository.resolve(objectId));
+					} catch (Exception e) {
+						return new EmptyTreeIterator();
+					}
+				} else {
+					commit = walk.parseCommit(repository.resolve(objectId));
+				}
+
+				CanonicalTreeParser treeParser = new CanonicalTreeParser();
+				try (ObjectReader reader = repository.newObjectReader()) {
+					treeParser.reset(reader, walk.parseTree(commit.getTree().getId()).getId());
+				}
+
+				walk.dispose();
+
+				return treeParser;
+			} catch (Exception e) {
+				throw new IllegalStateException("Could not prepare tree parser for object id " + objectId, e);
+			}
+		}
+	}
+
+}
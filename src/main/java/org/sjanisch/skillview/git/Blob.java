@@ -0,0 +1,108 @@
+/*
+MIT License
+
+Copyright (c) 2016 Sebastian Janisch
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package org.sjanisch.skillview.git;
+
+import java.util.Objects;
+
+import org.eclipse.jgit.diff.RawText;
+
+/**
+ * The outcome of loading a blob for extraction: either its text or the reason
+ * why it is not considered.
+ * <p>
+ * This class is immutable and thread safe.
+ * 
+ * @author sebastianjanisch
+ *
+ */
+final class Blob {
+
+	/**
+	 * Classification of a blob.
+	 */
+	enum Kind {
+		/**
+		 * The blob is text and was loaded.
+		 */
+		TEXT,
+		/**
+		 * The blob is binary and was skipped.
+		 */
+		BINARY,
+		/**
+		 * The blob exceeds the configured size limits and was skipped.
+		 */
+		TOO_LARGE
+	}
+
+	private static final Blob BINARY = new Blob(Kind.BINARY, null, 0);
+
+	private final Kind kind;
+	private final RawText text;
+	private final long size;
+
+	private Blob(Kind kind, RawText text, long size) {
+		this.kind = kind;
+		this.text = text;
+		this.size = size;
+	}
+
+	static Blob text(RawText text, long size) {
+		return new Blob(Kind.TEXT, Objects.requireNonNull(text, "text"), size);
+	}
+
+	static Blob binary() {
+		return BINARY;
+	}
+
+	static Blob tooLarge(long size) {
+		return new Blob(Kind.TOO_LARGE, null, size);
+	}
+
+	Kind getKind() {
+		return kind;
+	}
+
+	boolean isText() {
+		return kind == Kind.TEXT;
+	}
+
+	/**
+	 * 
+	 * @return the text of the blob. {@code null} if the blob is not
+	 *         {@link #isText() text}.
+	 */
+	RawText getText() {
+		return text;
+	}
+
+	/**
+	 * 
+	 * @return size of the blob in bytes, {@code 0} if it is binary
+	 */
+	long getSize() {
+		return size;
+	}
+
+}
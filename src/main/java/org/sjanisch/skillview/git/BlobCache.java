@@ -0,0 +1,173 @@
+/*
+MIT License
+
+Copyright (c) 2016 Sebastian Janisch
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package org.sjanisch.skillview.git;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+
+/**
+ * Bounded, size weighted LRU cache of {@link Blob blobs} by their id.
+ * <p>
+ * The same blob typically appears many times during a traversal, e.g. as the
+ * current content of a file in one commit and as its previous content in the
+ * next, or on several branches. Caching the loaded blob along with its
+ * classification means that it is inflated, classified and split into lines
+ * only once.
+ * <p>
+ * Text blobs weigh their size in bytes plus their line index, blobs that were
+ * skipped weigh a small constant. Once the total weight exceeds the maximum,
+ * least recently used blobs are evicted.
+ * <p>
+ * This class is thread safe. Blobs that are requested concurrently while
+ * absent may be loaded more than once.
+ * 
+ * @author sebastianjanisch
+ *
+ */
+class BlobCache {
+
+	private static final long ENTRY_OVERHEAD = 96;
+
+	private final BlobLoader loader;
+	private final long maxWeight;
+
+	private final LinkedHashMap<ObjectId, Blob> blobs = new LinkedHashMap<>(256, 0.75f, true);
+	private long weight;
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+	/**
+	 * 
+	 * @param loader
+	 *            loader for blobs that are not cached. Must not be
+	 *            {@code null}.
+	 * @param maxWeight
+	 *            maximum total weight of all cached blobs in bytes. Must be
+	 *            positive.
+	 */
+	BlobCache(BlobLoader loader, long maxWeight) {
+		this.loader = Objects.requireNonNull(loader, "loader");
+		if (maxWeight <= 0) {
+			throw new IllegalArgumentException("maxWeight must be positive: " + maxWeight);
+		}
+		this.maxWeight = maxWeight;
+	}
+
+	/**
+	 * 
+	 * @param reader
+	 *            reader to load the blob with if it is not cached. Must not be
+	 *            {@code null}.
+	 * @param id
+	 *            id of the blob. Must not be {@code null}.
+	 * @return the cached or freshly loaded blob. Never {@code null}.
+	 * @throws IOException
+	 *             if the blob cannot be read
+	 */
+	Blob get(ObjectReader reader, ObjectId id) throws IOException {
+		synchronized (blobs) {
+			Blob blob = blobs.get(id);
+			if (blob != null) {
+				hits.increment();
+				return blob;
+			}
+		}
+
+		Blob blob = loader.load(reader, id);
+		add(id, blob);
+		return blob;
+	}
+
+	/**
+	 * 
+	 * @param id
+	 *            id of the blob. Must not be {@code null}.
+	 * @return {@code true} if the blob is cached. Does not count as an access
+	 *         to the blob.
+	 */
+	boolean contains(ObjectId id) {
+		synchronized (blobs) {
+			return blobs.containsKey(id);
+		}
+	}
+
+	/**
+	 * Adds a blob that was loaded elsewhere, e.g. as part of a batch. This
+	 * counts as a miss.
+	 * 
+	 * @param id
+	 *            id of the blob. Must not be {@code null}.
+	 * @param blob
+	 *            the loaded blob. Must not be {@code null}.
+	 */
+	void add(ObjectId id, Blob blob) {
+		misses.increment();
+		long blobWeight = weigh(blob);
+		if (blobWeight > maxWeight) {
+			return;
+		}
+
+		synchronized (blobs) {
+			Blob previous = blobs.put(id, blob);
+			weight += blobWeight - (previous == null ? 0 : weigh(previous));
+
+			for (Iterator<Map.Entry<ObjectId, Blob>> eldest = blobs.entrySet().iterator(); weight > maxWeight
+					&& eldest.hasNext();) {
+				weight -= weigh(eldest.next().getValue());
+				eldest.remove();
+				evictions.increment();
+			}
+		}
+	}
+
+	long getHitCount() {
+		return hits.sum();
+	}
+
+	long getMissCount() {
+		return misses.sum();
+	}
+
+	long getEvictionCount() {
+		return evictions.sum();
+	}
+
+	private static long weigh(Blob blob) {
+		if (!blob.isText()) {
+			return ENTRY_OVERHEAD;
+		}
+		// content plus the line index of one int per line
+		return ENTRY_OVERHEAD + blob.getSize() + 4L * (blob.getText().size() + 2);
+	}
+
+}
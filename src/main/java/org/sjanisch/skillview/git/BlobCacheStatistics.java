@@ -0,0 +1,105 @@
+/*
+MIT License
+
+Copyright (c) 2016 Sebastian Janisch
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package org.sjanisch.skillview.git;
+
+/**
+ * Snapshot of the effectiveness of the blob cache of a
+ * {@link GitContributionService}, accumulated over all its traversals.
+ * <p>
+ * This class is immutable and thread safe.
+ * 
+ * @author sebastianjanisch
+ *
+ */
+public final class BlobCacheStatistics {
+
+	private final long hitCount;
+	private final long missCount;
+	private final long evictionCount;
+
+	private BlobCacheStatistics(long hitCount, long missCount, long evictionCount) {
+		this.hitCount = hitCount;
+		this.missCount = missCount;
+		this.evictionCount = evictionCount;
+	}
+
+	/**
+	 * 
+	 * @param hitCount
+	 *            must not be negative
+	 * @param missCount
+	 *            must not be negative
+	 * @param evictionCount
+	 *            must not be negative
+	 * @return new instance. Never {@code null}.
+	 */
+	public static BlobCacheStatistics of(long hitCount, long missCount, long evictionCount) {
+		if (hitCount < 0 || missCount < 0 || evictionCount < 0) {
+			String msg = "counts must not be negative: hits %s, misses %s, evictions %s";
+			throw new IllegalArgumentException(String.format(msg, hitCount, missCount, evictionCount));
+		}
+		return new BlobCacheStatistics(hitCount, missCount, evictionCount);
+	}
+
+	/**
+	 * 
+	 * @return number of blobs that were served from the cache
+	 */
+	public long getHitCount() {
+		return hitCount;
+	}
+
+	/**
+	 * 
+	 * @return number of blobs that had to be loaded from the repository
+	 */
+	public long getMissCount() {
+		return missCount;
+	}
+
+	/**
+	 * 
+	 * @return number of blobs that were evicted to stay within the maximum
+	 *         cache size
+	 */
+	public long getEvictionCount() {
+		return evictionCount;
+	}
+
+	/**
+	 * 
+	 * @return ratio of hits to all requests, {@code 0} if there were none
+	 */
+	public double getHitRate() {
+		long requests = hitCount + missCount;
+		return requests == 0 ? 0 : hitCount / (double) requests;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("BlobCacheStatistics [hits=%s, misses=%s, evictions=%s, hitRate=%.2f%%]", hitCount,
+				missCount, evictionCount, getHitRate() * 100);
+	}
+
+}
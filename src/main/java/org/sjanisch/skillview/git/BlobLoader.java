@@ -0,0 +1,197 @@
+/*
+MIT License
+
+Copyright (c) 2016 Sebastian Janisch
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package org.sjanisch.skillview.git;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import org.eclipse.jgit.diff.RawText;
+import org.eclipse.jgit.errors.IncorrectObjectTypeException;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.AsyncObjectLoaderQueue;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectLoader;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.ObjectStream;
+import org.eclipse.jgit.util.IO;
+
+/**
+ * Loads blobs with bounded memory.
+ * <p>
+ * Blobs above a maximum size are skipped based on their header alone. Small
+ * blobs are classified on the bytes JGit has already inflated. Large blobs,
+ * i.e. those above a large blob size or those that JGit does not hold in
+ * memory, are classified on the first few kilobytes read from their
+ * {@link ObjectStream stream}, or skipped altogether if the
+ * {@link LargeBlobPolicy policy} says so. Binary blobs are then dropped
+ * without reading further.
+ * <p>
+ * Text is diffed line by line, which needs all of its content at once. Large
+ * text is therefore streamed into a single array of its exact size, so that
+ * the memory needed per blob is bounded by the maximum size rather than by
+ * what is in the history. JGit only avoids inflating a large blob on its own
+ * if it exceeds JGit's {@link PackCacheSettings.Builder#setStreamFileThreshold(int)
+ * stream file threshold}, which should therefore not be above the large blob
+ * size.
+ * <p>
+ * This class is immutable and thread safe.
+ * 
+ * @author sebastianjanisch
+ *
+ */
+class BlobLoader {
+
+	/**
+	 * Same number of leading bytes that {@link RawText#isBinary(byte[])}
+	 * inspects.
+	 */
+	private static final int BINARY_CHECK_BYTES = 8000;
+
+	private final long maxBlobSize;
+	private final long largeBlobSize;
+	private final LargeBlobPolicy largeBlobPolicy;
+	private final ExtractionMetrics metrics;
+
+	/**
+	 * 
+	 * @param maxBlobSize
+	 *            blobs larger than this many bytes are skipped. Must be
+	 *            positive.
+	 * @param largeBlobSize
+	 *            blobs larger than this many bytes are considered large, as
+	 *            are all blobs that JGit considers large. Must be positive.
+	 * @param largeBlobPolicy
+	 *            policy for large blobs. Must not be {@code null}.
+	 * @param metrics
+	 *            receives sizes and skips of loaded blobs. Must not be
+	 *            {@code null}.
+	 */
+	BlobLoader(long maxBlobSize, long largeBlobSize, LargeBlobPolicy largeBlobPolicy, ExtractionMetrics metrics) {
+		if (maxBlobSize <= 0) {
+			throw new IllegalArgumentException("maxBlobSize must be positive: " + maxBlobSize);
+		}
+		if (largeBlobSize <= 0) {
+			throw new IllegalArgumentException("largeBlobSize must be positive: " + largeBlobSize);
+		}
+		this.maxBlobSize = Math.min(maxBlobSize, Integer.MAX_VALUE - 8);
+		this.largeBlobSize = largeBlobSize;
+		this.largeBlobPolicy = Objects.requireNonNull(largeBlobPolicy, "largeBlobPolicy");
+		this.metrics = Objects.requireNonNull(metrics, "metrics");
+	}
+
+	/**
+	 * 
+	 * @param reader
+	 *            reader to load the blob with. Must not be {@code null}.
+	 * @param id
+	 *            id of the blob. Must not be {@code null}.
+	 * @return the loaded blob. Never {@code null}.
+	 * @throws IOException
+	 *             if the blob cannot be read
+	 */
+	Blob load(ObjectReader reader, AnyObjectId id) throws IOException {
+		return load(reader.open(id, Constants.OBJ_BLOB));
+	}
+
+	/**
+	 * Loads several blobs through a single {@link AsyncObjectLoaderQueue
+	 * queue}, which allows readers to fetch them in the order in which they
+	 * are stored rather than one by one.
+	 * 
+	 * @param reader
+	 *            reader to load the blobs with. Must not be {@code null}.
+	 * @param ids
+	 *            ids of the blobs. Must not be {@code null}.
+	 * @return the loaded blobs by their id. Never {@code null}.
+	 * @throws IOException
+	 *             if any of the blobs cannot be read
+	 */
+	Map<ObjectId, Blob> loadAll(ObjectReader reader, Collection<ObjectId> ids) throws IOException {
+		Objects.requireNonNull(reader, "reader");
+		Objects.requireNonNull(ids, "ids");
+
+		Map<ObjectId, Blob> result = new HashMap<>();
+		AsyncObjectLoaderQueue<ObjectId> queue = reader.open(ids, true);
+		try {
+			while (queue.next()) {
+				ObjectLoader loader = queue.open();
+				if (loader.getType() != Constants.OBJ_BLOB) {
+					throw new IncorrectObjectTypeException(queue.getObjectId(), Constants.OBJ_BLOB);
+				}
+				result.put(queue.getObjectId(), load(loader));
+			}
+		} finally {
+			queue.release();
+		}
+		return result;
+	}
+
+	private Blob load(ObjectLoader loader) throws IOException {
+		long size = loader.getSize();
+
+		if (size > maxBlobSize) {
+			metrics.recordLargeBlobSkipped();
+			return Blob.tooLarge(size);
+		}
+
+		if (size <= largeBlobSize && !loader.isLarge()) {
+			// JGit already holds small objects inflated, so there is nothing to
+			// gain from streaming. The cached bytes are not copied.
+			byte[] bytes = loader.getCachedBytes();
+			metrics.recordBytesInflated(bytes.length);
+			if (RawText.isBinary(bytes)) {
+				metrics.recordBinaryBlobSkipped();
+				return Blob.binary();
+			}
+			return Blob.text(new RawText(bytes), size);
+		}
+
+		if (largeBlobPolicy == LargeBlobPolicy.SKIP) {
+			metrics.recordLargeBlobSkipped();
+			return Blob.tooLarge(size);
+		}
+
+		try (ObjectStream stream = loader.openStream()) {
+			int checked = (int) Math.min(size, BINARY_CHECK_BYTES);
+			byte[] head = new byte[checked];
+			IO.readFully(stream, head, 0, checked);
+			if (RawText.isBinary(head, checked)) {
+				metrics.recordBytesInflated(checked);
+				metrics.recordBinaryBlobSkipped();
+				return Blob.binary();
+			}
+
+			byte[] bytes = new byte[(int) size];
+			System.arraycopy(head, 0, bytes, 0, checked);
+			IO.readFully(stream, bytes, checked, bytes.length - checked);
+			metrics.recordBytesInflated(bytes.length);
+			return Blob.text(new RawText(bytes), size);
+		}
+	}
+
+}
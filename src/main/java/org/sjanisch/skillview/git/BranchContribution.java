@@ -0,0 +1,103 @@
+/*
+MIT License
+
+Copyright (c) 2016 Sebastian Janisch
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package org.sjanisch.skillview.git;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Objects;
+import java.util.Set;
+
+import org.sjanisch.skillview.core.contribution.api.Contribution;
+
+/**
+ * A {@link Contribution} together with the names of all branches that contain
+ * the underlying commit.
+ * <p>
+ * This class is immutable and thread safe.
+ * 
+ * @author sebastianjanisch
+ *
+ */
+public final class BranchContribution {
+
+	private final Contribution contribution;
+	private final Set<String> branches;
+
+	private BranchContribution(Contribution contribution, Set<String> branches) {
+		this.contribution = contribution;
+		this.branches = branches;
+	}
+
+	/**
+	 * 
+	 * @param contribution
+	 *            must not be {@code null}
+	 * @param branches
+	 *            full names of the branches (e.g. {@code refs/heads/master})
+	 *            that contain the contribution. Must not be {@code null}.
+	 * @return new instance. Never {@code null}.
+	 */
+	public static BranchContribution of(Contribution contribution, Set<String> branches) {
+		Objects.requireNonNull(contribution, "contribution");
+		Objects.requireNonNull(branches, "branches");
+
+		return new BranchContribution(contribution, Collections.unmodifiableSet(new LinkedHashSet<>(branches)));
+	}
+
+	/**
+	 * 
+	 * @return the contribution. Never {@code null}.
+	 */
+	public Contribution getContribution() {
+		return contribution;
+	}
+
+	/**
+	 * 
+	 * @return unmodifiable set of full branch names that contain the
+	 *         contribution. Never {@code null}.
+	 */
+	public Set<String> getBranches() {
+		return branches;
+	}
+
+	/**
+	 * 
+	 * @param branch
+	 *            full branch name (e.g. {@code refs/heads/master}). Must not
+	 *            be {@code null}.
+	 * @return {@code true} if given branch contains the contribution
+	 */
+	public boolean isOnBranch(String branch) {
+		Objects.requireNonNull(branch, "branch");
+
+		return branches.contains(branch);
+	}
+
+	@Override
+	public String toString() {
+		return "BranchContribution [contribution=" + contribution + ", branches=" + branches + "]";
+	}
+
+}
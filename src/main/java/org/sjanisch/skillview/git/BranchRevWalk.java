@@ -0,0 +1,249 @@
+/*
+MIT License
+
+Copyright (c) 2016 Sebastian Janisch
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package org.sjanisch.skillview.git;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.revwalk.filter.AndRevFilter;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
+
+/**
+ * A {@link RevWalk} that is seeded with the tips of several branches at once
+ * so that every commit is produced exactly once, no matter how many branches
+ * it is reachable from.
+ * <p>
+ * Once all commits have been {@link #walkCommits() walked}, each commit
+ * records the set of branches that contain it. Membership is handed down from
+ * children to parents in a separate pass that visits every walked commit after
+ * all of its walked children, like {@link CommitGraphWalk} does. It therefore
+ * does not depend on the order in which the walk pops commits, which follows
+ * their commit times and is thrown off by clock skew.
+ * <p>
+ * Likewise, each commit records whether it is on the first parent chain of
+ * any branch, which allows to {@link #setFirstParentOnly(boolean) restrict}
+ * the produced commits to those chains while still walking all parents. As
+ * this is only known once all children of a commit have been visited, the
+ * restriction is applied by the same pass rather than by a filter.
+ * <p>
+ * This class is not thread safe.
+ * 
+ * @author sebastianjanisch
+ *
+ */
+class BranchRevWalk extends RevWalk {
+
+	private final List<String> branchNames = new ArrayList<>();
+	private final List<BranchCommit> walked = new ArrayList<>();
+	private final RevFilter walkedCommitsFilter = new WalkedCommitsFilter();
+	private boolean firstParentOnly;
+
+	/**
+	 * 
+	 * @param repository
+	 *            the repository to walk. Must not be {@code null}.
+	 */
+	BranchRevWalk(Repository repository) {
+		super(Objects.requireNonNull(repository, "repository"));
+		super.setRevFilter(walkedCommitsFilter);
+	}
+
+	/**
+	 * Marks the tip of given branch as a starting point of this walk.
+	 * 
+	 * @param branch
+	 *            the branch to start from. Must not be {@code null}.
+	 * @throws IOException
+	 *             if the tip commit cannot be parsed
+	 */
+	void markBranchStart(Ref branch) throws IOException {
+		Objects.requireNonNull(branch, "branch");
+
+		BranchCommit tip = (BranchCommit) parseCommit(branch.getObjectId());
+		tip.branches.set(branchNames.size());
+		tip.onFirstParentChain = true;
+		branchNames.add(branch.getName());
+
+		markStart(tip);
+	}
+
+	/**
+	 * The given filter is combined with the filter that records walked
+	 * commits for the resolution of their branches, which therefore always
+	 * remains active.
+	 */
+	@Override
+	public void setRevFilter(RevFilter newFilter) {
+		if (newFilter == null || newFilter == RevFilter.ALL) {
+			super.setRevFilter(walkedCommitsFilter);
+		} else {
+			super.setRevFilter(AndRevFilter.create(walkedCommitsFilter, newFilter));
+		}
+	}
+
+	/**
+	 * 
+	 * @param firstParentOnly
+	 *            {@code true} to only produce commits on the first parent
+	 *            chain of any branch from {@link #walkCommits()}, in addition
+	 *            to the {@link #setRevFilter(RevFilter) filter}
+	 */
+	void setFirstParentOnly(boolean firstParentOnly) {
+		this.firstParentOnly = firstParentOnly;
+	}
+
+	/**
+	 * Walks all commits and then resolves the branches that contain them and
+	 * whether they are on a first parent chain.
+	 * 
+	 * @return the commits produced by this walk, in order. Never {@code null}.
+	 * @throws IOException
+	 *             if a commit cannot be parsed
+	 */
+	List<RevCommit> walkCommits() throws IOException {
+		List<RevCommit> result = new ArrayList<>();
+		for (RevCommit commit = next(); commit != null; commit = next()) {
+			result.add(commit);
+		}
+		resolveBranches();
+		if (firstParentOnly) {
+			result.removeIf(commit -> !((BranchCommit) commit).onFirstParentChain);
+		}
+		return result;
+	}
+
+	/**
+	 * 
+	 * @param commit
+	 *            a commit produced by {@link #walkCommits()}. Must not be
+	 *            {@code null}.
+	 * @return the names of all branches that contain given commit. Never
+	 *         {@code null}.
+	 */
+	Set<String> getBranches(RevCommit commit) {
+		BitSet branches = ((BranchCommit) commit).branches;
+
+		Set<String> result = new LinkedHashSet<>();
+		for (int i = branches.nextSetBit(0); i >= 0; i = branches.nextSetBit(i + 1)) {
+			result.add(branchNames.get(i));
+		}
+		return Collections.unmodifiableSet(result);
+	}
+
+	private void resolveBranches() {
+		for (BranchCommit commit : walked) {
+			for (RevCommit parent : commit.getParents()) {
+				BranchCommit branchParent = (BranchCommit) parent;
+				if (branchParent.walked) {
+					++branchParent.childCount;
+				}
+			}
+		}
+
+		Deque<BranchCommit> ready = new ArrayDeque<>();
+		for (BranchCommit commit : walked) {
+			if (commit.childCount == 0) {
+				ready.push(commit);
+			}
+		}
+		while (!ready.isEmpty()) {
+			BranchCommit commit = ready.pop();
+			for (int i = 0; i < commit.getParentCount(); ++i) {
+				BranchCommit branchParent = (BranchCommit) commit.getParent(i);
+				if (branchParent.walked) {
+					branchParent.branches.or(commit.branches);
+					if (i == 0 && commit.onFirstParentChain) {
+						branchParent.onFirstParentChain = true;
+					}
+					if (--branchParent.childCount == 0) {
+						ready.push(branchParent);
+					}
+				}
+			}
+		}
+		walked.clear();
+	}
+
+	@Override
+	protected RevCommit createCommit(AnyObjectId id) {
+		return new BranchCommit(id);
+	}
+
+	private static class BranchCommit extends RevCommit {
+
+		private final BitSet branches = new BitSet();
+		private boolean onFirstParentChain;
+		private boolean walked;
+		private int childCount;
+
+		private BranchCommit(AnyObjectId id) {
+			super(id);
+		}
+
+	}
+
+	/**
+	 * Records every commit popped off the walk, whether or not it is produced.
+	 */
+	private class WalkedCommitsFilter extends RevFilter {
+
+		@Override
+		public boolean include(RevWalk walker, RevCommit commit) {
+			BranchCommit branchCommit = (BranchCommit) commit;
+			branchCommit.walked = true;
+			walked.add(branchCommit);
+			return true;
+		}
+
+		@Override
+		public boolean requiresCommitBody() {
+			return false;
+		}
+
+		@Override
+		public RevFilter clone() {
+			return this;
+		}
+
+		@Override
+		public String toString() {
+			return "WALKED_COMMITS";
+		}
+
+	}
+
+}
@@ -0,0 +1,214 @@
+/*
+MIT License
+
+Copyright (c) 2016 Sebastian Janisch
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package org.sjanisch.skillview.git;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Properties;
+
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Records the progress of a single retrieval in a small state file, so that a
+ * retrieval that failed can be resumed by a later one.
+ * <p>
+ * The commits of a retrieval are identified by their index within the list of
+ * commits to extract. Progress is the number of leading commits that have all
+ * been emitted, which also holds if commits are emitted out of order. It is
+ * written every so many emitted commits and once the retrieval is closed, and
+ * the file is deleted once every commit was emitted.
+ * <p>
+ * The list of commits only comes out the same if the retrieval is repeated
+ * with the same time window, the same settings and the same branch tips. The
+ * file therefore records a scope describing these, and progress is only
+ * resumed if the scope of the new retrieval matches. Commits emitted after the
+ * last write are emitted again.
+ * <p>
+ * This class is thread safe.
+ * 
+ * @author sebastianjanisch
+ *
+ */
+class Checkpoint {
+
+	private static final Logger log = LoggerFactory.getLogger(Checkpoint.class);
+
+	private static final String SCOPE = "scope";
+	private static final String EMITTED = "emitted";
+	private static final String LAST = "last";
+
+	private final Path file;
+	private final String scope;
+	private final int interval;
+	private final List<RevCommit> commits;
+	private final int resumeIndex;
+
+	private final BitSet emitted = new BitSet();
+	private int emittedPrefix;
+	private int sinceWrite;
+	private boolean closed;
+
+	/**
+	 * 
+	 * @param file
+	 *            the state file. Must not be {@code null}.
+	 * @param scope
+	 *            describes time window, settings and branch tips of the
+	 *            retrieval. Must not be {@code null}.
+	 * @param interval
+	 *            number of emitted commits after which progress is written.
+	 *            Must be positive.
+	 * @param commits
+	 *            all commits of the retrieval in extraction order. Must not be
+	 *            {@code null}.
+	 */
+	Checkpoint(Path file, String scope, int interval, List<RevCommit> commits) {
+		this.file = Objects.requireNonNull(file, "file");
+		this.scope = Objects.requireNonNull(scope, "scope");
+		if (interval < 1) {
+			throw new IllegalArgumentException("interval must be positive: " + interval);
+		}
+		this.interval = interval;
+		this.commits = Objects.requireNonNull(commits, "commits");
+		this.resumeIndex = readResumeIndex();
+		this.emitted.set(0, resumeIndex);
+		this.emittedPrefix = resumeIndex;
+	}
+
+	/**
+	 * 
+	 * @return number of leading commits that were emitted by a previous
+	 *         retrieval of the same scope and are not to be emitted again
+	 */
+	int getResumeIndex() {
+		return resumeIndex;
+	}
+
+	/**
+	 * 
+	 * @param index
+	 *            index of a commit that the consumer is done with or that is
+	 *            skipped for good
+	 */
+	synchronized void emitted(int index) {
+		emitted.set(index);
+		emittedPrefix = emitted.nextClearBit(emittedPrefix);
+		if (++sinceWrite >= interval) {
+			write();
+		}
+	}
+
+	/**
+	 * Writes the final progress, or deletes the file if every commit was
+	 * emitted.
+	 */
+	synchronized void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+
+		if (emittedPrefix < commits.size()) {
+			write();
+			return;
+		}
+
+		try {
+			Files.deleteIfExists(file);
+		} catch (IOException e) {
+			log.warn("Could not delete checkpoint " + file, e);
+		}
+	}
+
+	private int readResumeIndex() {
+		if (!Files.isRegularFile(file)) {
+			return 0;
+		}
+
+		Properties properties = new Properties();
+		try (InputStream in = Files.newInputStream(file)) {
+			properties.load(in);
+		} catch (IOException e) {
+			log.warn("Could not read checkpoint " + file + ", starting over", e);
+			return 0;
+		}
+
+		if (!scope.equals(properties.getProperty(SCOPE))) {
+			log.info(String.format("Checkpoint %s is of a different scope, starting over", file));
+			return 0;
+		}
+
+		try {
+			int index = Integer.parseInt(properties.getProperty(EMITTED, "0"));
+			if (index < 0 || index > commits.size()
+					|| index > 0 && !commits.get(index - 1).name().equals(properties.getProperty(LAST))) {
+				log.info(String.format("Checkpoint %s does not match the commits to extract, starting over", file));
+				return 0;
+			}
+			return index;
+		} catch (NumberFormatException e) {
+			log.warn("Could not read checkpoint " + file + ", starting over", e);
+			return 0;
+		}
+	}
+
+	private void write() {
+		sinceWrite = 0;
+
+		Properties properties = new Properties();
+		properties.setProperty(SCOPE, scope);
+		properties.setProperty(EMITTED, Integer.toString(emittedPrefix));
+		if (emittedPrefix > 0) {
+			properties.setProperty(LAST, commits.get(emittedPrefix - 1).name());
+		}
+
+		try {
+			Path directory = file.toAbsolutePath().getParent();
+			Files.createDirectories(directory);
+			Path temporaryFile = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+			try {
+				try (OutputStream out = Files.newOutputStream(temporaryFile)) {
+					properties.store(out, "skill-view checkpoint");
+				}
+				Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING,
+						StandardCopyOption.ATOMIC_MOVE);
+			} finally {
+				Files.deleteIfExists(temporaryFile);
+			}
+		} catch (IOException e) {
+			// losing progress is preferable to failing the retrieval
+			log.warn("Could not write checkpoint " + file, e);
+		}
+	}
+
+}
@@ -0,0 +1,185 @@
+/*
+MIT License
+
+Copyright (c) 2016 Sebastian Janisch
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package org.sjanisch.skillview.git;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.sjanisch.skillview.core.contribution.api.ContributionRetrievalException;
+
+/**
+ * Runs clones and fetches, which mostly wait on I/O, with a bounded number in
+ * progress at any time.
+ * <p>
+ * On JDKs that provide virtual threads, every task runs on a virtual thread
+ * of its own, so that waiting tasks do not hold on to the stack of a platform
+ * thread. Elsewhere, e.g. on Java 8, tasks run on a fixed pool of daemon
+ * platform threads of the size of the concurrency limit.
+ * <p>
+ * This class is thread safe.
+ * 
+ * @author sebastianjanisch
+ *
+ */
+public final class CloneExecutor implements AutoCloseable {
+
+	private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+	private final ExecutorService executor;
+	private final Semaphore permits;
+	private final boolean virtual;
+
+	private CloneExecutor(ExecutorService executor, int maxConcurrency, boolean virtual) {
+		this.executor = executor;
+		this.permits = new Semaphore(maxConcurrency, true);
+		this.virtual = virtual;
+	}
+
+	/**
+	 * 
+	 * @param maxConcurrency
+	 *            maximum number of tasks in progress at any time. Must be
+	 *            positive.
+	 * @return a new executor on virtual threads if available, otherwise on
+	 *         platform threads. Never {@code null}.
+	 */
+	public static CloneExecutor create(int maxConcurrency) {
+		checkConcurrency(maxConcurrency);
+
+		ExecutorService virtualExecutor = newVirtualThreadExecutor();
+		if (virtualExecutor == null) {
+			return onPlatformThreads(maxConcurrency);
+		}
+		return new CloneExecutor(virtualExecutor, maxConcurrency, true);
+	}
+
+	/**
+	 * 
+	 * @param maxConcurrency
+	 *            maximum number of tasks in progress at any time, which is
+	 *            also the number of threads. Must be positive.
+	 * @return a new executor on platform threads. Never {@code null}.
+	 */
+	public static CloneExecutor onPlatformThreads(int maxConcurrency) {
+		checkConcurrency(maxConcurrency);
+
+		ExecutorService executor = Executors.newFixedThreadPool(maxConcurrency, runnable -> {
+			Thread thread = new Thread(runnable, "skill-view-clone-" + THREAD_COUNTER.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		return new CloneExecutor(executor, maxConcurrency, false);
+	}
+
+	/**
+	 * 
+	 * @return {@code true} if tasks run on virtual threads
+	 */
+	public boolean isVirtual() {
+		return virtual;
+	}
+
+	/**
+	 * Stops accepting new tasks. Tasks that were already submitted are still
+	 * run.
+	 */
+	@Override
+	public void close() {
+		executor.shutdown();
+	}
+
+	/**
+	 * 
+	 * @param task
+	 *            the task to run once a permit is available. Must not be
+	 *            {@code null}.
+	 * @param discard
+	 *            invoked with the result of the task if the returned future
+	 *            was completed otherwise, e.g. cancelled, while the task was
+	 *            running. Must not be {@code null}.
+	 * @return future of the result of the task. Cancelling it before the task
+	 *         has started prevents it from running. Never {@code null}.
+	 */
+	<T> CompletableFuture<T> submit(Supplier<T> task, Consumer<T> discard) {
+		CompletableFuture<T> future = new CompletableFuture<>();
+		try {
+			executor.execute(() -> run(task, discard, future));
+		} catch (RejectedExecutionException e) {
+			future.completeExceptionally(e);
+		}
+		return future;
+	}
+
+	private <T> void run(Supplier<T> task, Consumer<T> discard, CompletableFuture<T> future) {
+		if (future.isDone()) {
+			return;
+		}
+
+		try {
+			permits.acquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			future.completeExceptionally(new ContributionRetrievalException("Interrupted while waiting for permit", e));
+			return;
+		}
+
+		try {
+			if (future.isDone()) {
+				return;
+			}
+			T result = task.get();
+			if (!future.complete(result)) {
+				discard.accept(result);
+			}
+		} catch (Throwable e) {
+			future.completeExceptionally(e);
+		} finally {
+			permits.release();
+		}
+	}
+
+	private static ExecutorService newVirtualThreadExecutor() {
+		try {
+			Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) factory.invoke(null);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			// not available before Java 21, or disabled as a preview feature
+			return null;
+		}
+	}
+
+	private static void checkConcurrency(int maxConcurrency) {
+		if (maxConcurrency < 1) {
+			throw new IllegalArgumentException("maxConcurrency must be positive: " + maxConcurrency);
+		}
+	}
+
+}
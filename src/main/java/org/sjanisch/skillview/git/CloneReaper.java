@@ -0,0 +1,269 @@
+/*
+MIT License
+
+Copyright (c) 2016 Sebastian Janisch
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package org.sjanisch.skillview.git;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Creates the folders of temporary clones and deletes them off the critical
+ * path.
+ * <p>
+ * A clone that is no longer needed is renamed to a tombstone, which is cheap
+ * and immediately frees its name, and is then deleted by a single background
+ * thread. Tombstones and clones that are left behind by a process that died
+ * before it deleted them are deleted once this process creates its first
+ * clone. As the temporary folder is shared, only tombstones that were created
+ * more than an hour ago, and clones that were last modified more than a day
+ * ago, are considered left behind, so that the tombstones and clones that
+ * other processes are still using are left alone.
+ * <p>
+ * The disk usage of clones is accounted for by adding the size of each clone
+ * once after cloning and subtracting it once its tombstone has been deleted,
+ * rather than by walking the folders again.
+ * <p>
+ * This class is thread safe.
+ * 
+ * @author sebastianjanisch
+ *
+ */
+class CloneReaper {
+
+	private static final Logger log = LoggerFactory.getLogger(CloneReaper.class);
+
+	private static final String CLONE_PREFIX = "skill-view-clone-";
+	private static final String TOMBSTONE_PREFIX = "skill-view-tombstone-";
+	private static final long STALE_TOMBSTONE_MILLIS = TimeUnit.HOURS.toMillis(1);
+	private static final long STALE_CLONE_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+	/**
+	 * Reaper of clones in the default temporary folder.
+	 */
+	static final CloneReaper INSTANCE = new CloneReaper(Paths.get(System.getProperty("java.io.tmpdir")));
+
+	private final Path directory;
+	private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "skill-view-clone-reaper");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private final AtomicBoolean swept = new AtomicBoolean();
+	private final AtomicLong diskUsage = new AtomicLong();
+	private final AtomicInteger pendingDeletions = new AtomicInteger();
+
+	/**
+	 * 
+	 * @param directory
+	 *            folder to create clones in. Must not be {@code null}.
+	 */
+	CloneReaper(Path directory) {
+		this.directory = Objects.requireNonNull(directory, "directory");
+	}
+
+	/**
+	 * 
+	 * @return a new, empty folder for a clone. Never {@code null}.
+	 * @throws IOException
+	 *             if the folder cannot be created
+	 */
+	Path createCloneDirectory() throws IOException {
+		if (swept.compareAndSet(false, true)) {
+			sweepTombstones();
+			sweepClones();
+		}
+		return Files.createTempDirectory(directory, CLONE_PREFIX);
+	}
+
+	/**
+	 * 
+	 * @param size
+	 *            size of a completed clone in bytes
+	 */
+	void cloned(long size) {
+		diskUsage.addAndGet(size);
+	}
+
+	/**
+	 * Turns given clone folder into a tombstone and deletes it in the
+	 * background.
+	 * 
+	 * @param cloneDirectory
+	 *            folder of a clone that is no longer used. Must not be
+	 *            {@code null}.
+	 * @param size
+	 *            size of the clone in bytes as reported to
+	 *            {@link #cloned(long)}, or {@code 0} if it was not reported
+	 */
+	void reap(Path cloneDirectory, long size) {
+		reap(cloneDirectory, size, () -> {
+		});
+	}
+
+	/**
+	 * Turns given clone folder into a tombstone and deletes it in the
+	 * background.
+	 * 
+	 * @param cloneDirectory
+	 *            folder of a clone that is no longer used. Must not be
+	 *            {@code null}.
+	 * @param size
+	 *            size of the clone in bytes as reported to
+	 *            {@link #cloned(long)}, or {@code 0} if it was not reported
+	 * @param onDeleted
+	 *            invoked on the background thread once the folder has been
+	 *            deleted or could not be deleted. Must not be {@code null}.
+	 */
+	void reap(Path cloneDirectory, long size, Runnable onDeleted) {
+		Objects.requireNonNull(cloneDirectory, "cloneDirectory");
+		Objects.requireNonNull(onDeleted, "onDeleted");
+
+		Path tombstone = cloneDirectory.resolveSibling(TOMBSTONE_PREFIX + cloneDirectory.getFileName());
+		try {
+			Files.move(cloneDirectory, tombstone);
+		} catch (IOException e) {
+			log.debug(String.format("Could not rename %s to a tombstone, deleting it in place", cloneDirectory), e);
+			tombstone = cloneDirectory;
+		}
+		try {
+			// tells the sweeps of other processes when the tombstone was
+			// created
+			Files.setLastModifiedTime(tombstone, FileTime.fromMillis(System.currentTimeMillis()));
+		} catch (IOException e) {
+			log.debug("Could not touch tombstone " + tombstone, e);
+		}
+		delete(tombstone, size, onDeleted);
+	}
+
+	/**
+	 * 
+	 * @return bytes taken up by clones that are in use or pending deletion
+	 */
+	long getDiskUsage() {
+		return diskUsage.get();
+	}
+
+	/**
+	 * 
+	 * @return number of clones pending deletion
+	 */
+	int getPendingDeletions() {
+		return pendingDeletions.get();
+	}
+
+	private void sweepTombstones() {
+		try (DirectoryStream<Path> tombstones = Files.newDirectoryStream(directory, TOMBSTONE_PREFIX + "*")) {
+			long staleBefore = System.currentTimeMillis() - STALE_TOMBSTONE_MILLIS;
+			for (Path tombstone : tombstones) {
+				if (!isStale(tombstone, staleBefore)) {
+					log.debug(String.format("Leaving recent tombstone %s to its owner", tombstone));
+					continue;
+				}
+				log.info(String.format("Deleting stale tombstone %s", tombstone));
+				delete(tombstone, 0, () -> {
+				});
+			}
+		} catch (IOException e) {
+			log.warn("Could not look for stale tombstones in " + directory, e);
+		}
+	}
+
+	private void sweepClones() {
+		try (DirectoryStream<Path> clones = Files.newDirectoryStream(directory, CLONE_PREFIX + "*")) {
+			long staleBefore = System.currentTimeMillis() - STALE_CLONE_MILLIS;
+			for (Path clone : clones) {
+				if (isStale(clone, staleBefore)) {
+					log.info(String.format("Deleting abandoned clone %s", clone));
+					reap(clone, 0);
+				}
+			}
+		} catch (IOException e) {
+			log.warn("Could not look for abandoned clones in " + directory, e);
+		}
+	}
+
+	private static boolean isStale(Path path, long staleBefore) {
+		try {
+			return Files.getLastModifiedTime(path).toMillis() < staleBefore;
+		} catch (IOException e) {
+			// deleted by its owner in the meantime
+			return false;
+		}
+	}
+
+	private void delete(Path tombstone, long size, Runnable onDeleted) {
+		pendingDeletions.incrementAndGet();
+		executor.execute(() -> {
+			try {
+				long start = System.nanoTime();
+				deleteRecursively(tombstone);
+				String msg = "Deleted %s in %.2f seconds";
+				log.debug(String.format(msg, tombstone, (System.nanoTime() - start) / 1e9));
+			} catch (IOException e) {
+				log.error("Could not delete folder " + tombstone, e);
+			} finally {
+				diskUsage.addAndGet(-size);
+				pendingDeletions.decrementAndGet();
+				onDeleted.run();
+			}
+		});
+	}
+
+	private static void deleteRecursively(Path path) throws IOException {
+		Files.walkFileTree(path, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+				Files.delete(file);
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+				if (e != null) {
+					throw e;
+				}
+				Files.delete(dir);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+
+}
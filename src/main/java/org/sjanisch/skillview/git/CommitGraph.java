@@ -0,0 +1,408 @@
+/*
+MIT License
+
+Copyright (c) 2016 Sebastian Janisch
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package org.sjanisch.skillview.git;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+
+/**
+ * A compact, memory mapped index of the commit graph of a repository: the ids
+ * of all indexed commits in sorted order, their commit times and their
+ * parents as positions within the index.
+ * <p>
+ * Walking the index only reads primitive values from the mapped file, whereas
+ * a {@link RevWalk} needs to inflate and parse every commit object. The index
+ * is {@link #update(Repository, Path, Collection) updated} incrementally: only
+ * commits that are not indexed yet are parsed, after which the index is
+ * rewritten and atomically replaced.
+ * <p>
+ * The file consists of a header (magic, version, number of commits and number
+ * of parent edges) followed by the sorted raw ids, the commit times, the start
+ * of each commit's parents within the parent section and the parent section
+ * itself. All numbers are big endian {@code int}s.
+ * <p>
+ * This class is immutable and thread safe.
+ * 
+ * @author sebastianjanisch
+ *
+ */
+class CommitGraph {
+
+	private static final int MAGIC = 0x53564347;
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 4 * Integer.BYTES;
+
+	private static final CommitGraph EMPTY = new CommitGraph(ByteBuffer.allocate(HEADER_SIZE), 0, 0);
+
+	private final ByteBuffer buffer;
+	private final int size;
+	private final int idsOffset;
+	private final int timesOffset;
+	private final int parentStartsOffset;
+	private final int parentsOffset;
+
+	private CommitGraph(ByteBuffer buffer, int size, int edgeCount) {
+		this.buffer = buffer;
+		this.size = size;
+		this.idsOffset = HEADER_SIZE;
+		this.timesOffset = idsOffset + size * Constants.OBJECT_ID_LENGTH;
+		this.parentStartsOffset = timesOffset + size * Integer.BYTES;
+		this.parentsOffset = parentStartsOffset + (size + 1) * Integer.BYTES;
+	}
+
+	/**
+	 * Brings the index at given location up to date with given tips, such
+	 * that all commits reachable from them are indexed.
+	 * 
+	 * @param repository
+	 *            the repository to read new commits from. Must not be
+	 *            {@code null}.
+	 * @param file
+	 *            location of the index. Must not be {@code null}. Created if
+	 *            it does not exist or cannot be read.
+	 * @param tips
+	 *            ids of the commits to index along with their ancestors. Must
+	 *            not be {@code null}.
+	 * @return the up to date index. Never {@code null}.
+	 * @throws IOException
+	 *             if commits cannot be read or the index cannot be written
+	 */
+	static CommitGraph update(Repository repository, Path file, Collection<? extends AnyObjectId> tips)
+			throws IOException {
+		Objects.requireNonNull(repository, "repository");
+		Objects.requireNonNull(file, "file");
+		Objects.requireNonNull(tips, "tips");
+
+		CommitGraph graph = load(file);
+
+		List<RevCommit> newCommits = new ArrayList<>();
+		try (RevWalk walk = new RevWalk(repository)) {
+			walk.setRetainBody(false);
+
+			Set<ObjectId> seen = new HashSet<>();
+			Deque<ObjectId> pending = new ArrayDeque<>();
+			tips.forEach(tip -> pending.push(tip.copy()));
+			while (!pending.isEmpty()) {
+				ObjectId id = pending.pop();
+				if (graph.find(id) >= 0 || !seen.add(id)) {
+					continue;
+				}
+
+				RevCommit commit = walk.parseCommit(id);
+				newCommits.add(commit);
+				for (RevCommit parent : commit.getParents()) {
+					pending.push(parent.copy());
+				}
+			}
+		}
+
+		if (newCommits.isEmpty()) {
+			return graph;
+		}
+
+		Collections.sort(newCommits);
+		Files.createDirectories(file.toAbsolutePath().getParent());
+		write(graph, newCommits, file);
+		return load(file);
+	}
+
+	/**
+	 * 
+	 * @param file
+	 *            location of the index. Must not be {@code null}.
+	 * @return the index at given location, or an empty index if it does not
+	 *         exist or cannot be read. Never {@code null}.
+	 * @throws IOException
+	 *             if the file exists but cannot be mapped
+	 */
+	static CommitGraph load(Path file) throws IOException {
+		Objects.requireNonNull(file, "file");
+
+		if (!Files.isRegularFile(file)) {
+			return EMPTY;
+		}
+
+		ByteBuffer buffer;
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			if (channel.size() < HEADER_SIZE || channel.size() > Integer.MAX_VALUE) {
+				return EMPTY;
+			}
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+
+		if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+			return EMPTY;
+		}
+		int size = buffer.getInt(8);
+		int edgeCount = buffer.getInt(12);
+		long expectedLength = HEADER_SIZE + (long) size * (Constants.OBJECT_ID_LENGTH + 2 * Integer.BYTES)
+				+ Integer.BYTES + (long) edgeCount * Integer.BYTES;
+		if (size < 0 || edgeCount < 0 || buffer.capacity() != expectedLength) {
+			return EMPTY;
+		}
+
+		return new CommitGraph(buffer, size, edgeCount);
+	}
+
+	/**
+	 * 
+	 * @return number of indexed commits
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * 
+	 * @param id
+	 *            must not be {@code null}
+	 * @return position of given commit, or a negative value if it is not
+	 *         indexed
+	 */
+	int find(AnyObjectId id) {
+		byte[] raw = new byte[Constants.OBJECT_ID_LENGTH];
+		id.copyRawTo(raw, 0);
+
+		int low = 0;
+		int high = size - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			int comparison = compareId(middle, raw);
+			if (comparison < 0) {
+				low = middle + 1;
+			} else if (comparison > 0) {
+				high = middle - 1;
+			} else {
+				return middle;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * 
+	 * @param position
+	 *            position of an indexed commit
+	 * @return the commit's id. Never {@code null}.
+	 */
+	ObjectId getId(int position) {
+		byte[] raw = new byte[Constants.OBJECT_ID_LENGTH];
+		int offset = idsOffset + position * Constants.OBJECT_ID_LENGTH;
+		for (int i = 0; i < raw.length; ++i) {
+			raw[i] = buffer.get(offset + i);
+		}
+		return ObjectId.fromRaw(raw);
+	}
+
+	/**
+	 * 
+	 * @param position
+	 *            position of an indexed commit
+	 * @return the commit's time in seconds since epoch
+	 */
+	int getCommitTime(int position) {
+		return buffer.getInt(timesOffset + position * Integer.BYTES);
+	}
+
+	/**
+	 * 
+	 * @param position
+	 *            position of an indexed commit
+	 * @return number of parents of the commit
+	 */
+	int getParentCount(int position) {
+		return parentStart(position + 1) - parentStart(position);
+	}
+
+	/**
+	 * 
+	 * @param position
+	 *            position of an indexed commit
+	 * @param index
+	 *            index of the parent, {@code 0} for the first parent
+	 * @return position of the parent
+	 */
+	int getParent(int position, int index) {
+		return buffer.getInt(parentsOffset + (parentStart(position) + index) * Integer.BYTES);
+	}
+
+	private int parentStart(int position) {
+		return buffer.getInt(parentStartsOffset + position * Integer.BYTES);
+	}
+
+	private int compareId(int position, byte[] raw) {
+		int offset = idsOffset + position * Constants.OBJECT_ID_LENGTH;
+		for (int i = 0; i < raw.length; ++i) {
+			int comparison = Integer.compare(buffer.get(offset + i) & 0xff, raw[i] & 0xff);
+			if (comparison != 0) {
+				return comparison;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Merges the sorted new commits into the existing index and writes the
+	 * result to a temporary file that then replaces the index.
+	 */
+	private static void write(CommitGraph graph, List<RevCommit> newCommits, Path file) throws IOException {
+		int size = graph.size + newCommits.size();
+
+		// non-negative sources refer to the existing index, negative ones to
+		// new commits (~index)
+		int[] sources = new int[size];
+		int[] existingPositions = new int[graph.size];
+		int[] newPositions = new int[newCommits.size()];
+		byte[] raw = new byte[Constants.OBJECT_ID_LENGTH];
+		int existing = 0;
+		int added = 0;
+		for (int position = 0; position < size; ++position) {
+			boolean takeExisting;
+			if (added == newCommits.size()) {
+				takeExisting = true;
+			} else if (existing == graph.size) {
+				takeExisting = false;
+			} else {
+				newCommits.get(added).copyRawTo(raw, 0);
+				takeExisting = graph.compareId(existing, raw) < 0;
+			}
+
+			if (takeExisting) {
+				existingPositions[existing] = position;
+				sources[position] = existing++;
+			} else {
+				newPositions[added] = position;
+				sources[position] = ~added++;
+			}
+		}
+
+		int[][] newParents = new int[newCommits.size()][];
+		int edgeCount = 0;
+		for (int i = 0; i < newCommits.size(); ++i) {
+			RevCommit commit = newCommits.get(i);
+			int[] parents = new int[commit.getParentCount()];
+			for (int j = 0; j < parents.length; ++j) {
+				// every unindexed ancestor of a tip was parsed as a new commit,
+				// and JGit hides the parents of shallow commits
+				RevCommit parent = commit.getParent(j);
+				parents[j] = findPosition(graph, existingPositions, newCommits, newPositions, parent);
+				if (parents[j] < 0) {
+					String msg = "Parent %s of %s is neither indexed nor new";
+					throw new IllegalStateException(String.format(msg, parent.name(), commit.name()));
+				}
+			}
+			newParents[i] = parents;
+			edgeCount += parents.length;
+		}
+		for (int position = 0; position < graph.size; ++position) {
+			edgeCount += graph.getParentCount(position);
+		}
+
+		Path temporaryFile = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(),
+				".tmp");
+		try {
+			try (OutputStream fileOut = Files.newOutputStream(temporaryFile);
+					DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut, 1 << 16))) {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeInt(size);
+				out.writeInt(edgeCount);
+
+				for (int source : sources) {
+					if (source >= 0) {
+						int offset = graph.idsOffset + source * Constants.OBJECT_ID_LENGTH;
+						for (int i = 0; i < Constants.OBJECT_ID_LENGTH; ++i) {
+							out.writeByte(graph.buffer.get(offset + i));
+						}
+					} else {
+						newCommits.get(~source).copyRawTo(raw, 0);
+						out.write(raw);
+					}
+				}
+
+				for (int source : sources) {
+					out.writeInt(source >= 0 ? graph.getCommitTime(source) : newCommits.get(~source).getCommitTime());
+				}
+
+				int parentStart = 0;
+				for (int source : sources) {
+					out.writeInt(parentStart);
+					parentStart += source >= 0 ? graph.getParentCount(source) : newParents[~source].length;
+				}
+				out.writeInt(parentStart);
+
+				for (int source : sources) {
+					if (source >= 0) {
+						for (int i = 0; i < graph.getParentCount(source); ++i) {
+							out.writeInt(existingPositions[graph.getParent(source, i)]);
+						}
+					} else {
+						for (int parent : newParents[~source]) {
+							out.writeInt(parent);
+						}
+					}
+				}
+			}
+
+			Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temporaryFile);
+		}
+	}
+
+	private static int findPosition(CommitGraph graph, int[] existingPositions, List<RevCommit> newCommits,
+			int[] newPositions, AnyObjectId id) {
+		int existing = graph.find(id);
+		if (existing >= 0) {
+			return existingPositions[existing];
+		}
+		int added = Collections.binarySearch(newCommits, id, AnyObjectId::compareTo);
+		return added >= 0 ? newPositions[added] : -1;
+	}
+
+}
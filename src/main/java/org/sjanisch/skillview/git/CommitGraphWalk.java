@@ -0,0 +1,294 @@
+/*
+MIT License
+
+Copyright (c) 2016 Sebastian Janisch
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package org.sjanisch.skillview.git;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Ref;
+
+/**
+ * Walks a {@link CommitGraph} from the tips of several branches, like a
+ * {@link BranchRevWalk} in {@link org.eclipse.jgit.revwalk.RevSort#TOPO
+ * topological} order but without parsing any commit objects.
+ * <p>
+ * Commits are produced in topological order, preferring newer commits among
+ * those whose children have all been produced. Like {@link BranchRevWalk},
+ * each commit records the branches that contain it and whether it is on the
+ * first parent chain of any branch.
+ * <p>
+ * This class is not thread safe.
+ * 
+ * @author sebastianjanisch
+ *
+ */
+class CommitGraphWalk {
+
+	private final CommitGraph graph;
+	private final List<String> branchNames = new ArrayList<>();
+	private final List<Integer> tips = new ArrayList<>();
+	private final BitSet[] branches;
+
+	/**
+	 * 
+	 * @param graph
+	 *            the graph to walk. Must not be {@code null}.
+	 */
+	CommitGraphWalk(CommitGraph graph) {
+		this.graph = Objects.requireNonNull(graph, "graph");
+		this.branches = new BitSet[graph.size()];
+	}
+
+	/**
+	 * 
+	 * @param branch
+	 *            the branch to start from. Its tip must be indexed by the
+	 *            graph. Must not be {@code null}.
+	 */
+	void markBranchStart(Ref branch) {
+		Objects.requireNonNull(branch, "branch");
+
+		int tip = find(branch.getObjectId());
+		membership(tip).set(branchNames.size());
+		branchNames.add(branch.getName());
+		tips.add(tip);
+	}
+
+	/**
+	 * 
+	 * @param sinceSeconds
+	 *            commit time in seconds from which on commits are produced,
+	 *            inclusive
+	 * @param untilSeconds
+	 *            commit time in seconds up to which commits are produced,
+	 *            inclusive
+	 * @param stopBeforeSeconds
+	 *            commit time in seconds before which commits are neither
+	 *            produced nor their parents walked. Must not be greater than
+	 *            {@code sinceSeconds}.
+	 * @param mergePolicy
+	 *            the merge policy that determines which commits are produced.
+	 *            Must not be {@code null}.
+	 * @return positions of the produced commits, in order. Never
+	 *         {@code null}.
+	 */
+	int[] walk(long sinceSeconds, long untilSeconds, long stopBeforeSeconds, MergePolicy mergePolicy) {
+		Objects.requireNonNull(mergePolicy, "mergePolicy");
+
+		int[] childCounts = new int[graph.size()];
+		BitSet reachable = new BitSet(graph.size());
+		int[] stack = new int[Math.max(16, tips.size())];
+		int stackSize = 0;
+		for (int tip : tips) {
+			stack[stackSize++] = tip;
+		}
+		while (stackSize > 0) {
+			int commit = stack[--stackSize];
+			if (reachable.get(commit)) {
+				continue;
+			}
+			reachable.set(commit);
+			if (graph.getCommitTime(commit) < stopBeforeSeconds) {
+				continue;
+			}
+			for (int i = 0; i < graph.getParentCount(commit); ++i) {
+				int parent = graph.getParent(commit, i);
+				++childCounts[parent];
+				if (!reachable.get(parent)) {
+					if (stackSize == stack.length) {
+						stack = Arrays.copyOf(stack, stackSize * 2);
+					}
+					stack[stackSize++] = parent;
+				}
+			}
+		}
+
+		BitSet onFirstParentChain = new BitSet(graph.size());
+		CommitTimeHeap ready = new CommitTimeHeap(graph);
+		for (int tip : tips) {
+			onFirstParentChain.set(tip);
+			if (childCounts[tip] == 0 && !ready.contains(tip)) {
+				ready.push(tip);
+			}
+		}
+
+		int[] result = new int[16];
+		int resultSize = 0;
+		while (!ready.isEmpty()) {
+			int commit = ready.pop();
+			int commitTime = graph.getCommitTime(commit);
+			if (commitTime < stopBeforeSeconds) {
+				continue;
+			}
+
+			if (commitTime >= sinceSeconds && commitTime <= untilSeconds
+					&& isProduced(commit, mergePolicy, onFirstParentChain)) {
+				if (resultSize == result.length) {
+					result = Arrays.copyOf(result, resultSize * 2);
+				}
+				result[resultSize++] = commit;
+			}
+
+			for (int i = 0; i < graph.getParentCount(commit); ++i) {
+				int parent = graph.getParent(commit, i);
+				membership(parent).or(membership(commit));
+				if (i == 0 && onFirstParentChain.get(commit)) {
+					onFirstParentChain.set(parent);
+				}
+				if (--childCounts[parent] == 0) {
+					ready.push(parent);
+				}
+			}
+		}
+
+		return Arrays.copyOf(result, resultSize);
+	}
+
+	/**
+	 * 
+	 * @param commit
+	 *            position of a commit produced by this walk
+	 * @return the names of all branches that contain given commit. Never
+	 *         {@code null}.
+	 */
+	Set<String> getBranches(int commit) {
+		BitSet membership = membership(commit);
+
+		Set<String> result = new LinkedHashSet<>();
+		for (int i = membership.nextSetBit(0); i >= 0; i = membership.nextSetBit(i + 1)) {
+			result.add(branchNames.get(i));
+		}
+		return Collections.unmodifiableSet(result);
+	}
+
+	private boolean isProduced(int commit, MergePolicy mergePolicy, BitSet onFirstParentChain) {
+		switch (mergePolicy) {
+		case SKIP:
+			return graph.getParentCount(commit) <= 1;
+		case FIRST_PARENT_ONLY:
+			return onFirstParentChain.get(commit);
+		default:
+			return true;
+		}
+	}
+
+	private BitSet membership(int commit) {
+		BitSet result = branches[commit];
+		if (result == null) {
+			result = new BitSet();
+			branches[commit] = result;
+		}
+		return result;
+	}
+
+	private int find(AnyObjectId id) {
+		int result = graph.find(id);
+		if (result < 0) {
+			throw new IllegalStateException("Commit " + id.name() + " is not indexed");
+		}
+		return result;
+	}
+
+	/**
+	 * Binary max heap of commit positions, ordered by commit time.
+	 */
+	private static class CommitTimeHeap {
+
+		private final CommitGraph graph;
+		private final BitSet contained;
+		private int[] heap = new int[16];
+		private int size;
+
+		private CommitTimeHeap(CommitGraph graph) {
+			this.graph = graph;
+			this.contained = new BitSet(graph.size());
+		}
+
+		private boolean isEmpty() {
+			return size == 0;
+		}
+
+		private boolean contains(int commit) {
+			return contained.get(commit);
+		}
+
+		private void push(int commit) {
+			if (size == heap.length) {
+				heap = Arrays.copyOf(heap, size * 2);
+			}
+			contained.set(commit);
+
+			int index = size++;
+			while (index > 0) {
+				int parentIndex = (index - 1) >>> 1;
+				if (!isNewer(commit, heap[parentIndex])) {
+					break;
+				}
+				heap[index] = heap[parentIndex];
+				index = parentIndex;
+			}
+			heap[index] = commit;
+		}
+
+		private int pop() {
+			int result = heap[0];
+			contained.clear(result);
+
+			int last = heap[--size];
+			int index = 0;
+			while (true) {
+				int child = 2 * index + 1;
+				if (child >= size) {
+					break;
+				}
+				if (child + 1 < size && isNewer(heap[child + 1], heap[child])) {
+					++child;
+				}
+				if (!isNewer(heap[child], last)) {
+					break;
+				}
+				heap[index] = heap[child];
+				index = child;
+			}
+			heap[index] = last;
+
+			return result;
+		}
+
+		private boolean isNewer(int commit, int other) {
+			int time = graph.getCommitTime(commit);
+			int otherTime = graph.getCommitTime(other);
+			return time > otherTime || time == otherTime && commit < other;
+		}
+
+	}
+
+}
@@ -0,0 +1,82 @@
+/*
+MIT License
+
+Copyright (c) 2016 Sebastian Janisch
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package org.sjanisch.skillview.git;
+
+import org.eclipse.jgit.errors.StopWalkException;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
+
+/**
+ * Aborts a {@link org.eclipse.jgit.revwalk.RevSort#COMMIT_TIME_DESC commit
+ * time sorted} walk once it reaches a commit older than a given threshold.
+ * <p>
+ * Unlike {@link org.eclipse.jgit.revwalk.filter.CommitTimeRevFilter#after(long)}
+ * the threshold is meant to lie some slop before the start of the queried time
+ * window so that commits with out-of-order timestamps (e.g. due to clock skew
+ * of committers) that are still pending in the walk are not lost.
+ * <p>
+ * This class is immutable and thread safe.
+ * 
+ * @author sebastianjanisch
+ *
+ */
+class CommitTimeStopRevFilter extends RevFilter {
+
+	private final long stopBeforeSeconds;
+
+	/**
+	 * 
+	 * @param stopBeforeSeconds
+	 *            commit time in seconds since epoch. The walk stops at the first
+	 *            commit strictly older than this.
+	 */
+	CommitTimeStopRevFilter(long stopBeforeSeconds) {
+		this.stopBeforeSeconds = stopBeforeSeconds;
+	}
+
+	@Override
+	public boolean include(RevWalk walker, RevCommit commit) {
+		if (commit.getCommitTime() < stopBeforeSeconds) {
+			throw StopWalkException.INSTANCE;
+		}
+		return true;
+	}
+
+	@Override
+	public boolean requiresCommitBody() {
+		return false;
+	}
+
+	@Override
+	public RevFilter clone() {
+		return this;
+	}
+
+	@Override
+	public String toString() {
+		return "STOP_BEFORE(" + stopBeforeSeconds + ")";
+	}
+
+}
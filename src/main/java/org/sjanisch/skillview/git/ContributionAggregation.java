@@ -0,0 +1,183 @@
+/*
+MIT License
+
+Copyright (c) 2016 Sebastian Janisch
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package org.sjanisch.skillview.git;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.jgit.diff.DiffAlgorithm;
+import org.eclipse.jgit.diff.DiffAlgorithm.SupportedAlgorithm;
+import org.eclipse.jgit.diff.Edit;
+import org.eclipse.jgit.diff.RawText;
+import org.eclipse.jgit.diff.RawTextComparator;
+import org.sjanisch.skillview.core.contribution.api.Contributor;
+
+/**
+ * State shared by all workers of a single aggregating retrieval: the indexes
+ * of contributors and file extensions, and the statistics merged from the
+ * {@link StatisticsTable tables} of the workers.
+ * <p>
+ * Files are diffed on their lines, so that only the number of added and
+ * removed lines is computed and their content is never decoded.
+ * <p>
+ * This class is thread safe.
+ * 
+ * @author sebastianjanisch
+ *
+ */
+class ContributionAggregation {
+
+	private final DiffAlgorithm algorithm = DiffAlgorithm.getAlgorithm(SupportedAlgorithm.HISTOGRAM);
+	private final long bucketSeconds;
+
+	private final Map<String, Integer> contributorIndexes = new ConcurrentHashMap<>();
+	private final List<Contributor> contributors = new ArrayList<>();
+	private final Map<String, Integer> extensionIndexes = new ConcurrentHashMap<>();
+	private final List<String> extensions = new ArrayList<>();
+
+	private final StatisticsTable statistics = new StatisticsTable();
+
+	/**
+	 * 
+	 * @param bucketSize
+	 *            length of a time bucket. Must not be {@code null} and must be
+	 *            at least one second.
+	 */
+	ContributionAggregation(Duration bucketSize) {
+		Objects.requireNonNull(bucketSize, "bucketSize");
+		if (bucketSize.getSeconds() < 1) {
+			throw new IllegalArgumentException("bucketSize must be at least one second: " + bucketSize);
+		}
+		this.bucketSeconds = bucketSize.getSeconds();
+	}
+
+	/**
+	 * 
+	 * @param name
+	 *            name of the contributor. Must not be {@code null}.
+	 * @param email
+	 *            email address of the contributor. Must not be {@code null}.
+	 * @return index of the contributor
+	 */
+	int getContributorIndex(String name, String email) {
+		return contributorIndexes.computeIfAbsent(name + '\0' + email, key -> {
+			synchronized (contributors) {
+				contributors.add(Contributor.of(name, email));
+				return contributors.size() - 1;
+			}
+		});
+	}
+
+	/**
+	 * 
+	 * @param path
+	 *            path of a file. Must not be {@code null}.
+	 * @return index of the extension of given file
+	 */
+	private int getExtensionIndex(String path) {
+		int nameStart = path.lastIndexOf('/') + 1;
+		int dot = path.lastIndexOf('.');
+		String extension = dot > nameStart ? path.substring(dot + 1) : "";
+
+		return extensionIndexes.computeIfAbsent(extension, key -> {
+			synchronized (extensions) {
+				extensions.add(key);
+				return extensions.size() - 1;
+			}
+		});
+	}
+
+	/**
+	 * 
+	 * @param commitTime
+	 *            commit time in seconds since epoch
+	 * @return index of the time bucket that contains given time
+	 */
+	long getBucket(long commitTime) {
+		return Math.floorDiv(commitTime, bucketSeconds);
+	}
+
+	/**
+	 * Counts the lines added and removed between the previous and current
+	 * content of a file as well as the file itself into given table.
+	 * 
+	 * @param table
+	 *            table of the calling worker. Must not be {@code null}.
+	 * @param contributor
+	 *            index of the contributor
+	 * @param bucket
+	 *            index of the time bucket
+	 * @param path
+	 *            path of the file. Must not be {@code null}.
+	 * @param previous
+	 *            previous content of the file. Must not be {@code null}.
+	 * @param current
+	 *            current content of the file. Must not be {@code null}.
+	 */
+	void count(StatisticsTable table, int contributor, long bucket, String path, RawText previous,
+			RawText current) {
+		long added = 0;
+		long removed = 0;
+		for (Edit edit : algorithm.diff(RawTextComparator.DEFAULT, previous, current)) {
+			added += edit.getLengthB();
+			removed += edit.getLengthA();
+		}
+		table.add(contributor, getExtensionIndex(path), bucket, added, removed, 1);
+	}
+
+	/**
+	 * 
+	 * @param table
+	 *            statistics of a worker to add. Must not be {@code null}.
+	 */
+	void merge(StatisticsTable table) {
+		synchronized (statistics) {
+			statistics.addAll(table);
+		}
+	}
+
+	/**
+	 * 
+	 * @return statistics of all merged tables. Never {@code null}.
+	 */
+	ContributionStatistics toStatistics() {
+		synchronized (statistics) {
+			Contributor[] contributorArray;
+			synchronized (contributors) {
+				contributorArray = contributors.toArray(new Contributor[contributors.size()]);
+			}
+			String[] extensionArray;
+			synchronized (extensions) {
+				extensionArray = extensions.toArray(new String[extensions.size()]);
+			}
+			return new ContributionStatistics(Duration.ofSeconds(bucketSeconds), contributorArray, extensionArray,
+					statistics);
+		}
+	}
+
+}
@@ -0,0 +1,66 @@
+/*
+MIT License
+
+Copyright (c) 2016 Sebastian Janisch
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package org.sjanisch.skillview.git;
+
+import org.sjanisch.skillview.core.contribution.api.Contribution;
+import org.sjanisch.skillview.core.contribution.api.ContributionId;
+import org.sjanisch.skillview.core.contribution.api.Project;
+
+/**
+ * Cache of extracted {@link Contribution contributions}.
+ * <p>
+ * The contribution of a commit is immutable once its id is known, as long as
+ * it is extracted with the same settings. Entries are therefore keyed by the
+ * project, the id of the contribution and a key that identifies the extraction
+ * settings, such as the path filter in use.
+ * <p>
+ * Implementations must be thread safe.
+ * 
+ * @author sebastianjanisch
+ *
+ */
+public interface ContributionCache {
+
+	/**
+	 * 
+	 * @param project
+	 *            must not be {@code null}
+	 * @param settingsKey
+	 *            identifies the extraction settings. Must not be {@code null}.
+	 * @param id
+	 *            must not be {@code null}
+	 * @return the cached contribution or {@code null} if there is none
+	 */
+	Contribution get(Project project, String settingsKey, ContributionId id);
+
+	/**
+	 * 
+	 * @param settingsKey
+	 *            identifies the extraction settings. Must not be {@code null}.
+	 * @param contribution
+	 *            must not be {@code null}
+	 */
+	void put(String settingsKey, Contribution contribution);
+
+}
@@ -0,0 +1,155 @@
+/*
+MIT License
+
+Copyright (c) 2016 Sebastian Janisch
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package org.sjanisch.skillview.git;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Collection;
+
+import org.sjanisch.skillview.core.contribution.api.Contribution;
+import org.sjanisch.skillview.core.contribution.api.ContributionId;
+import org.sjanisch.skillview.core.contribution.api.ContributionItem;
+import org.sjanisch.skillview.core.contribution.api.Contributor;
+import org.sjanisch.skillview.core.contribution.api.Project;
+import org.sjanisch.skillview.core.contribution.impl.DefaultContribution;
+
+/**
+ * Compact binary encoding of {@link Contribution contributions}.
+ * <p>
+ * Strings are written as their UTF-8 bytes prefixed by the byte count, where
+ * {@code -1} denotes {@code null}. Numbers are written big endian.
+ * <p>
+ * This class is thread safe.
+ * 
+ * @author sebastianjanisch
+ *
+ */
+class ContributionCodec {
+
+	private static final byte VERSION = 1;
+
+	private ContributionCodec() {
+		throw new UnsupportedOperationException("no instances");
+	}
+
+	/**
+	 * 
+	 * @param contribution
+	 *            must not be {@code null}
+	 * @return encoded contribution. Never {@code null}.
+	 */
+	static byte[] encode(Contribution contribution) {
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+			DataOutputStream out = new DataOutputStream(bytes);
+
+			out.writeByte(VERSION);
+			writeString(out, contribution.getId().getValue());
+			writeString(out, contribution.getProject().getValue());
+			writeString(out, contribution.getContributor().getName());
+			writeString(out, contribution.getContributor().getEmail());
+			out.writeLong(contribution.getContributionTime().getEpochSecond());
+			out.writeInt(contribution.getContributionTime().getNano());
+			writeString(out, contribution.getMessage());
+
+			Collection<ContributionItem> items = contribution.getContributionItems();
+			out.writeInt(items.size());
+			for (ContributionItem item : items) {
+				writeString(out, item.getPath());
+				writeString(out, item.getPreviousContent());
+				writeString(out, item.getCurrentContent());
+			}
+
+			out.flush();
+			return bytes.toByteArray();
+		} catch (IOException e) {
+			throw new IllegalStateException("Could not encode contribution " + contribution.getId(), e);
+		}
+	}
+
+	/**
+	 * 
+	 * @param buffer
+	 *            buffer positioned at the start of an encoded contribution.
+	 *            Must not be {@code null}.
+	 * @return decoded contribution. Never {@code null}.
+	 */
+	static Contribution decode(ByteBuffer buffer) {
+		byte version = buffer.get();
+		if (version != VERSION) {
+			throw new IllegalStateException("Unsupported encoding version " + version);
+		}
+
+		ContributionId id = ContributionId.of(readString(buffer));
+		Project project = Project.of(readString(buffer));
+		Contributor contributor = Contributor.of(readString(buffer), readString(buffer));
+		Instant time = Instant.ofEpochSecond(buffer.getLong(), buffer.getInt());
+		String message = readString(buffer);
+
+		DefaultContribution.Builder builder = DefaultContribution.newBuilder(id, project, contributor, time)
+				.setMessage(message);
+
+		int itemCount = buffer.getInt();
+		for (int i = 0; i < itemCount; ++i) {
+			String path = readString(buffer);
+			String previousContent = readString(buffer);
+			String currentContent = readString(buffer);
+			builder.addContributionItem(ContributionItem.of(path, previousContent, currentContent));
+		}
+
+		return builder.build();
+	}
+
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		if (value == null) {
+			out.writeInt(-1);
+			return;
+		}
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(ByteBuffer buffer) {
+		int length = buffer.getInt();
+		if (length < 0) {
+			return null;
+		}
+
+		if (buffer.hasArray()) {
+			int offset = buffer.arrayOffset() + buffer.position();
+			buffer.position(buffer.position() + length);
+			return new String(buffer.array(), offset, length, StandardCharsets.UTF_8);
+		}
+
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+}
@@ -0,0 +1,284 @@
+/*
+MIT License
+
+Copyright (c) 2016 Sebastian Janisch
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package org.sjanisch.skillview.git;
+
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.sjanisch.skillview.core.contribution.api.Contribution;
+import org.sjanisch.skillview.core.contribution.api.ContributionRetrievalException;
+import org.sjanisch.skillview.core.contribution.api.ContributionService;
+
+/**
+ * Publishes the contributions of a {@link ContributionService} within a time
+ * window to reactive-streams {@link Subscriber}s, honouring their demand.
+ * <p>
+ * Each subscription retrieves the contributions anew on a thread of the given
+ * executor, which is occupied until retrieval ends. Up to a bounded number of
+ * contributions are extracted ahead of demand so that extraction overlaps with
+ * a slow subscriber (e.g. one that persists contributions). Once the buffer is
+ * full, extraction blocks until the subscriber requests more.
+ * <p>
+ * The underlying stream, and hence the repository it holds on to, is closed
+ * before the subscriber is signalled {@link Subscriber#onComplete()
+ * completion} or an {@link Subscriber#onError(Throwable) error}, and shortly
+ * after the subscription is {@link Subscription#cancel() cancelled}. Consumers
+ * therefore cannot leak repositories by forgetting to close a stream.
+ * <p>
+ * This class is immutable and thread safe.
+ * 
+ * @author sebastianjanisch
+ *
+ */
+public class ContributionPublisher implements Publisher<Contribution> {
+
+	private static final long OFFER_TIMEOUT_MILLIS = 100;
+
+	private final ContributionService service;
+	private final Instant startExclusive;
+	private final Instant endInclusive;
+	private final Executor executor;
+	private final int bufferSize;
+
+	/**
+	 * 
+	 * @param service
+	 *            service to retrieve contributions from. Must not be
+	 *            {@code null}.
+	 * @param startExclusive
+	 *            must not be {@code null}
+	 * @param endInclusive
+	 *            must not be {@code null}
+	 * @param executor
+	 *            executor to run retrieval on, one task per subscription. Must
+	 *            not be {@code null}.
+	 * @param bufferSize
+	 *            maximum number of contributions to extract ahead of demand.
+	 *            Must be positive.
+	 */
+	public ContributionPublisher(ContributionService service, Instant startExclusive, Instant endInclusive,
+			Executor executor, int bufferSize) {
+		this.service = Objects.requireNonNull(service, "service");
+		this.startExclusive = Objects.requireNonNull(startExclusive, "startExclusive");
+		this.endInclusive = Objects.requireNonNull(endInclusive, "endInclusive");
+		this.executor = Objects.requireNonNull(executor, "executor");
+		if (bufferSize < 1) {
+			throw new IllegalArgumentException("bufferSize must be positive: " + bufferSize);
+		}
+		this.bufferSize = bufferSize;
+	}
+
+	@Override
+	public void subscribe(Subscriber<? super Contribution> subscriber) {
+		Objects.requireNonNull(subscriber, "subscriber");
+
+		ContributionSubscription subscription = new ContributionSubscription(subscriber);
+		subscriber.onSubscribe(subscription);
+		subscription.start();
+	}
+
+	private class ContributionSubscription implements Subscription, Runnable {
+
+		private final Subscriber<? super Contribution> subscriber;
+		private final BlockingQueue<Contribution> buffer = new ArrayBlockingQueue<>(bufferSize);
+
+		private final AtomicLong requested = new AtomicLong();
+		private final AtomicInteger drains = new AtomicInteger();
+		private final AtomicBoolean started = new AtomicBoolean();
+
+		private volatile boolean stopped;
+		private volatile boolean cancelled;
+		private volatile boolean done;
+		private volatile Throwable error;
+
+		private ContributionSubscription(Subscriber<? super Contribution> subscriber) {
+			this.subscriber = subscriber;
+		}
+
+		@Override
+		public void request(long n) {
+			if (n <= 0) {
+				fail(new IllegalArgumentException("request must be positive: " + n));
+				return;
+			}
+
+			long current;
+			long next;
+			do {
+				current = requested.get();
+				next = current + n < 0 ? Long.MAX_VALUE : current + n;
+			} while (!requested.compareAndSet(current, next));
+
+			drain();
+		}
+
+		@Override
+		public void cancel() {
+			stopped = true;
+			cancelled = true;
+			buffer.clear();
+		}
+
+		private void start() {
+			if (stopped || !started.compareAndSet(false, true)) {
+				return;
+			}
+
+			try {
+				executor.execute(this);
+			} catch (RejectedExecutionException e) {
+				fail(new ContributionRetrievalException("Executor rejected retrieval task", e));
+			}
+		}
+
+		/**
+		 * Retrieves contributions into the buffer. Closes the stream before
+		 * signalling completion.
+		 */
+		@Override
+		public void run() {
+			Throwable failure = null;
+			try (Stream<Contribution> contributions = service.retrieveContributions(startExclusive, endInclusive)) {
+				Iterator<Contribution> iterator = contributions.iterator();
+				while (!stopped && iterator.hasNext()) {
+					if (offer(iterator.next())) {
+						drain();
+					}
+				}
+			} catch (RuntimeException | Error e) {
+				failure = e;
+			}
+
+			if (failure != null) {
+				error = failure;
+			}
+			done = true;
+			drain();
+		}
+
+		private boolean offer(Contribution contribution) {
+			try {
+				while (!stopped) {
+					if (buffer.offer(contribution, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+						return true;
+					}
+				}
+				return false;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new ContributionRetrievalException("Interrupted while waiting for demand", e);
+			}
+		}
+
+		private void fail(Throwable failure) {
+			stopped = true;
+			error = failure;
+			done = true;
+			buffer.clear();
+			drain();
+		}
+
+		/**
+		 * Delivers buffered contributions up to the requested amount. Only one
+		 * thread drains at a time; concurrent calls make the draining thread
+		 * loop once more.
+		 */
+		private void drain() {
+			if (drains.getAndIncrement() != 0) {
+				return;
+			}
+
+			int missed = 1;
+			do {
+				long demand = requested.get();
+				long emitted = 0;
+
+				while (!cancelled) {
+					boolean terminated = done;
+					if (terminated && error != null) {
+						terminate();
+						return;
+					}
+
+					if (emitted == demand) {
+						if (terminated && buffer.isEmpty()) {
+							terminate();
+							return;
+						}
+						break;
+					}
+
+					Contribution next = buffer.poll();
+					if (next == null) {
+						if (terminated) {
+							terminate();
+							return;
+						}
+						break;
+					}
+
+					subscriber.onNext(next);
+					++emitted;
+				}
+
+				if (cancelled) {
+					buffer.clear();
+					return;
+				}
+
+				if (emitted != 0 && demand != Long.MAX_VALUE) {
+					requested.addAndGet(-emitted);
+				}
+				missed = drains.addAndGet(-missed);
+			} while (missed != 0);
+		}
+
+		private void terminate() {
+			cancelled = true;
+			buffer.clear();
+
+			Throwable failure = error;
+			if (failure != null) {
+				subscriber.onError(failure);
+			} else {
+				subscriber.onComplete();
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,156 @@
+/*
+MIT License
+
+Copyright (c) 2016 Sebastian Janisch
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package org.sjanisch.skillview.git;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Objects;
+
+import org.sjanisch.skillview.core.contribution.api.Contributor;
+
+/**
+ * Lines added, lines removed and files touched per contributor, file
+ * extension and time bucket, as computed by
+ * {@link GitContributionService#aggregateContributions(Instant, Instant, Duration)}.
+ * <p>
+ * Buckets are aligned to the epoch, i.e. a bucket starts at a multiple of the
+ * {@link #getBucketSize() bucket size} since {@link Instant#EPOCH}. Files
+ * without extension are counted under the empty extension.
+ * <p>
+ * This class is immutable and thread safe.
+ * 
+ * @author sebastianjanisch
+ *
+ */
+public final class ContributionStatistics {
+
+	private final Duration bucketSize;
+	private final Contributor[] contributors;
+	private final String[] extensions;
+
+	private final int[] contributorIndexes;
+	private final int[] extensionIndexes;
+	private final long[] buckets;
+	private final long[] linesAdded;
+	private final long[] linesRemoved;
+	private final long[] filesTouched;
+
+	ContributionStatistics(Duration bucketSize, Contributor[] contributors, String[] extensions,
+			StatisticsTable table) {
+		this.bucketSize = bucketSize;
+		this.contributors = contributors;
+		this.extensions = extensions;
+
+		int size = table.size();
+		this.contributorIndexes = new int[size];
+		this.extensionIndexes = new int[size];
+		this.buckets = new long[size];
+		this.linesAdded = new long[size];
+		this.linesRemoved = new long[size];
+		this.filesTouched = new long[size];
+
+		int[] row = new int[1];
+		table.forEach((contributor, extension, bucket, added, removed, files) -> {
+			int i = row[0]++;
+			contributorIndexes[i] = contributor;
+			extensionIndexes[i] = extension;
+			buckets[i] = bucket;
+			linesAdded[i] = added;
+			linesRemoved[i] = removed;
+			filesTouched[i] = files;
+		});
+	}
+
+	/**
+	 * 
+	 * @return the length of a time bucket. Never {@code null}.
+	 */
+	public Duration getBucketSize() {
+		return bucketSize;
+	}
+
+	/**
+	 * 
+	 * @return number of distinct combinations of contributor, extension and
+	 *         bucket
+	 */
+	public int size() {
+		return buckets.length;
+	}
+
+	/**
+	 * 
+	 * @param visitor
+	 *            invoked for every combination of contributor, extension and
+	 *            bucket in no particular order. Must not be {@code null}.
+	 */
+	public void forEach(Visitor visitor) {
+		Objects.requireNonNull(visitor, "visitor");
+
+		long bucketSeconds = bucketSize.getSeconds();
+		for (int i = 0; i < buckets.length; ++i) {
+			Instant bucketStart = Instant.ofEpochSecond(buckets[i] * bucketSeconds);
+			visitor.visit(contributors[contributorIndexes[i]], bucketStart, extensions[extensionIndexes[i]],
+					linesAdded[i], linesRemoved[i], filesTouched[i]);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "ContributionStatistics [bucketSize=" + bucketSize + ", contributors=" + contributors.length
+				+ ", extensions=" + extensions.length + ", size=" + size() + "]";
+	}
+
+	/**
+	 * Receives the statistics of a combination of contributor, extension and
+	 * bucket.
+	 * 
+	 * @author sebastianjanisch
+	 *
+	 */
+	@FunctionalInterface
+	public interface Visitor {
+
+		/**
+		 * 
+		 * @param contributor
+		 *            the contributor. Never {@code null}.
+		 * @param bucketStart
+		 *            start of the time bucket. Never {@code null}.
+		 * @param extension
+		 *            the file extension without leading dot, empty for files
+		 *            without extension. Never {@code null}.
+		 * @param linesAdded
+		 *            number of lines added
+		 * @param linesRemoved
+		 *            number of lines removed
+		 * @param filesTouched
+		 *            number of files added, modified or deleted
+		 */
+		void visit(Contributor contributor, Instant bucketStart, String extension, long linesAdded,
+				long linesRemoved, long filesTouched);
+
+	}
+
+}
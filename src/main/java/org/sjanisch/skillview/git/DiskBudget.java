@@ -0,0 +1,145 @@
+/*
+MIT License
+
+Copyright (c) 2016 Sebastian Janisch
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package org.sjanisch.skillview.git;
+
+import org.sjanisch.skillview.core.contribution.api.ContributionRetrievalException;
+
+/**
+ * Tracks the disk space reserved by concurrent clones against an upper bound.
+ * <p>
+ * A reservation is always granted if nothing else is reserved, so that a
+ * single repository that exceeds the bound on its own still makes progress.
+ * A reservation of {@code 0} bytes stands for a clone of unknown size. It is
+ * granted while the budget is not used up, and until it is
+ * {@link #replace(long, long) replaced} by the actual size or
+ * {@link #cancel(long) cancelled}, all other reservations wait, since it may
+ * take up the whole budget.
+ * <p>
+ * This class is thread safe.
+ * 
+ * @author sebastianjanisch
+ *
+ */
+class DiskBudget {
+
+	private final long maxBytes;
+	private long reservedBytes;
+	private int unknownReservations;
+
+	/**
+	 * 
+	 * @param maxBytes
+	 *            upper bound of reserved bytes. Must be positive.
+	 *            {@link Long#MAX_VALUE} means unbounded, in which case no
+	 *            reservation ever waits.
+	 */
+	DiskBudget(long maxBytes) {
+		if (maxBytes < 1) {
+			throw new IllegalArgumentException("maxBytes must be positive: " + maxBytes);
+		}
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * Blocks until given number of bytes fit into the budget and reserves
+	 * them.
+	 * 
+	 * @param bytes
+	 *            must not be negative. {@code 0} if unknown.
+	 */
+	synchronized void reserve(long bytes) {
+		while (mustWait(bytes)) {
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new ContributionRetrievalException("Interrupted while waiting for disk budget", e);
+			}
+		}
+		reservedBytes += bytes;
+		if (bytes == 0) {
+			++unknownReservations;
+		}
+	}
+
+	/**
+	 * Replaces a previous reservation with another, without blocking. The
+	 * budget may therefore be exceeded temporarily if an estimate was too low.
+	 * 
+	 * @param previousBytes
+	 *            bytes {@link #reserve(long) reserved} previously
+	 * @param bytes
+	 *            bytes to reserve instead
+	 */
+	synchronized void replace(long previousBytes, long bytes) {
+		cancel(previousBytes);
+		reservedBytes += bytes;
+	}
+
+	/**
+	 * Withdraws a reservation that was never replaced.
+	 * 
+	 * @param bytes
+	 *            bytes {@link #reserve(long) reserved} previously
+	 */
+	synchronized void cancel(long bytes) {
+		if (bytes == 0) {
+			--unknownReservations;
+		}
+		release(bytes);
+	}
+
+	/**
+	 * 
+	 * @param bytes
+	 *            bytes {@link #replace(long, long) reserved instead}
+	 *            previously
+	 */
+	synchronized void release(long bytes) {
+		reservedBytes -= bytes;
+		notifyAll();
+	}
+
+	/**
+	 * 
+	 * @return currently reserved bytes
+	 */
+	synchronized long getReservedBytes() {
+		return reservedBytes;
+	}
+
+	private boolean mustWait(long bytes) {
+		if (maxBytes == Long.MAX_VALUE) {
+			return false;
+		}
+		if (unknownReservations > 0) {
+			return true;
+		}
+		if (bytes == 0) {
+			return reservedBytes >= maxBytes;
+		}
+		return reservedBytes > 0 && reservedBytes + bytes > maxBytes;
+	}
+
+}
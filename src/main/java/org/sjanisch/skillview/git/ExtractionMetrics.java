@@ -0,0 +1,103 @@
+/*
+MIT License
+
+Copyright (c) 2016 Sebastian Janisch
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package org.sjanisch.skillview.git;
+
+/**
+ * Receives measurements from the hot path of contribution retrieval.
+ * <p>
+ * Methods are invoked concurrently from all threads that extract
+ * contributions, up to several times per file. Implementations must therefore
+ * be thread safe and should not block or allocate. All methods do nothing by
+ * default.
+ * 
+ * @author sebastianjanisch
+ *
+ */
+public interface ExtractionMetrics {
+
+	/**
+	 * Discards all measurements. Services using this instance do not take any
+	 * time measurements at all.
+	 */
+	ExtractionMetrics NOOP = new ExtractionMetrics() {
+	};
+
+	/**
+	 * 
+	 * @param stage
+	 *            the stage that completed. Never {@code null}.
+	 * @param nanos
+	 *            duration of the stage in nanoseconds
+	 */
+	default void recordStage(ExtractionStage stage, long nanos) {
+	}
+
+	/**
+	 * 
+	 * @param bytes
+	 *            number of bytes of blob content that were inflated
+	 */
+	default void recordBytesInflated(long bytes) {
+	}
+
+	/**
+	 * Invoked for every blob that is skipped as binary.
+	 */
+	default void recordBinaryBlobSkipped() {
+	}
+
+	/**
+	 * Invoked for every blob that is skipped due to its size.
+	 */
+	default void recordLargeBlobSkipped() {
+	}
+
+	/**
+	 * Invoked once per traversal with the accumulated statistics of its blob
+	 * cache.
+	 * 
+	 * @param hits
+	 *            number of blobs found in the cache
+	 * @param misses
+	 *            number of blobs loaded into the cache
+	 */
+	default void recordBlobCacheAccesses(long hits, long misses) {
+	}
+
+	/**
+	 * 
+	 * @param hit
+	 *            {@code true} if the contribution of a commit was found in the
+	 *            contribution cache, {@code false} if it had to be extracted
+	 */
+	default void recordContributionCacheAccess(boolean hit) {
+	}
+
+	/**
+	 * Invoked for every commit whose contribution was retrieved.
+	 */
+	default void recordCommitExtracted() {
+	}
+
+}
@@ -0,0 +1,69 @@
+/*
+MIT License
+
+Copyright (c) 2016 Sebastian Janisch
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package org.sjanisch.skillview.git;
+
+/**
+ * Stages of retrieving contributions whose duration is reported to
+ * {@link ExtractionMetrics}.
+ * 
+ * @author sebastianjanisch
+ *
+ */
+public enum ExtractionStage {
+
+	/**
+	 * Cloning a repository, once per repository.
+	 */
+	CLONE,
+
+	/**
+	 * Walking the history to find the commits to extract, once per retrieval.
+	 */
+	WALK,
+
+	/**
+	 * Parsing the trees of a commit and its parent and finding the changed
+	 * files, including rename detection, once per commit.
+	 */
+	TREE_DIFF,
+
+	/**
+	 * Loading a blob, i.e. inflating and classifying it, once per file
+	 * version. Includes lookups in the blob cache.
+	 */
+	BLOB_LOAD,
+
+	/**
+	 * Diffing the previous and current content of a file in hunk mode, once
+	 * per file.
+	 */
+	DIFF,
+
+	/**
+	 * Decoding the previous and current content of a file into strings, once
+	 * per file.
+	 */
+	DECODE
+
+}
@@ -0,0 +1,185 @@
+/*
+MIT License
+
+Copyright (c) 2016 Sebastian Janisch
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package org.sjanisch.skillview.git;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Objects;
+import java.util.Set;
+
+import org.eclipse.jgit.api.CloneCommand;
+import org.eclipse.jgit.lib.Constants;
+
+/**
+ * Describes what a {@link TemporaryCloneGitFileRepository temporary clone}
+ * fetches and writes to disk, on top of the configuration of its
+ * {@link CloneCommand}.
+ * <p>
+ * Restricting the clone to the branches of interest saves fetching objects
+ * that are only reachable from other branches. A bare clone saves the working
+ * tree, which {@link GitContributionService} never reads, and the time to
+ * check it out.
+ * <p>
+ * This class is immutable and thread safe.
+ * 
+ * @author sebastianjanisch
+ *
+ */
+public final class FetchPlan {
+
+	/**
+	 * Leaves the clone command as configured, i.e. all branches are fetched
+	 * and the default branch is checked out.
+	 */
+	public static final FetchPlan DEFAULT = newBuilder().build();
+
+	private final Set<String> branches;
+	private final boolean bare;
+
+	private FetchPlan(Builder builder) {
+		this.branches = Collections.unmodifiableSet(new LinkedHashSet<>(builder.branches));
+		this.bare = builder.bare;
+	}
+
+	/**
+	 * 
+	 * @return a builder for a plan that leaves the clone command as
+	 *         configured. Never {@code null}.
+	 */
+	public static Builder newBuilder() {
+		return new Builder();
+	}
+
+	/**
+	 * 
+	 * @return unmodifiable set of full names of the branches to fetch. Empty
+	 *         if the branches of the clone command are left as configured.
+	 *         Never {@code null}.
+	 */
+	public Set<String> getBranches() {
+		return branches;
+	}
+
+	/**
+	 * 
+	 * @return {@code true} if the repository is cloned without working tree
+	 */
+	public boolean isBare() {
+		return bare;
+	}
+
+	/**
+	 * 
+	 * @param cloneCommand
+	 *            the command to configure. Must not be {@code null}.
+	 */
+	void applyTo(CloneCommand cloneCommand) {
+		Objects.requireNonNull(cloneCommand, "cloneCommand");
+
+		if (!branches.isEmpty()) {
+			cloneCommand.setCloneAllBranches(false);
+			cloneCommand.setBranchesToClone(branches);
+		}
+		if (bare) {
+			cloneCommand.setBare(true);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "FetchPlan [branches=" + branches + ", bare=" + bare + "]";
+	}
+
+	/**
+	 * Builder for {@link FetchPlan}.
+	 * <p>
+	 * This class is not thread safe.
+	 * 
+	 * @author sebastianjanisch
+	 *
+	 */
+	public static class Builder {
+
+		private final Set<String> branches = new LinkedHashSet<>();
+		private boolean bare;
+
+		private Builder() {
+		}
+
+		/**
+		 * 
+		 * @param branch
+		 *            name of a branch to fetch, either in full (e.g.
+		 *            {@code refs/heads/master}) or short (e.g. {@code master})
+		 *            form. Must not be {@code null}.
+		 * @return this builder
+		 */
+		public Builder addBranch(String branch) {
+			Objects.requireNonNull(branch, "branch");
+
+			branches.add(branch.startsWith(Constants.R_REFS) ? branch : Constants.R_HEADS + branch);
+			return this;
+		}
+
+		/**
+		 * 
+		 * @param branches
+		 *            names of branches to fetch, see {@link #addBranch(String)}.
+		 *            Must not be {@code null}.
+		 * @return this builder
+		 */
+		public Builder addBranches(Collection<String> branches) {
+			Objects.requireNonNull(branches, "branches");
+
+			branches.forEach(this::addBranch);
+			return this;
+		}
+
+		/**
+		 * In a bare clone, every fetched branch is a local branch and is
+		 * therefore seen by {@link GitContributionService}. In a clone with
+		 * working tree, only the checked out branch is.
+		 * 
+		 * @param bare
+		 *            {@code true} to clone without working tree. Defaults to
+		 *            {@code false}.
+		 * @return this builder
+		 */
+		public Builder setBare(boolean bare) {
+			this.bare = bare;
+			return this;
+		}
+
+		/**
+		 * 
+		 * @return new instance. Never {@code null}.
+		 */
+		public FetchPlan build() {
+			return new FetchPlan(this);
+		}
+
+	}
+
+}
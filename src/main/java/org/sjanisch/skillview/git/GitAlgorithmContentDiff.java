@@ -23,14 +23,12 @@ SOFTWARE.
  */
 package org.sjanisch.skillview.git;
 
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.Collection;
-import java.util.LinkedList;
 import java.util.Objects;
 
 import org.eclipse.jgit.diff.DiffAlgorithm;
-import org.eclipse.jgit.diff.Edit;
-import org.eclipse.jgit.diff.EditList;
-import org.eclipse.jgit.diff.RawText;
 import org.eclipse.jgit.diff.RawTextComparator;
 import org.sjanisch.skillview.core.diff.api.ContentDiff;
 import org.sjanisch.skillview.core.utility.Lazy;
@@ -40,6 +38,9 @@ import org.sjanisch.skillview.core.utility.Lazy;
  * {@link RawTextComparator#WS_IGNORE_ALL}.
  * <p>
  * Content is classified as 'touched' if it was either inserted or modified.
+ * Contents are encoded with an explicit charset and diffed by
+ * {@link RawTextContentDiff}. Callers that hold the raw bytes already should
+ * use that class directly to avoid the round trip.
  * <p>
  * This implementation is thread safe.
  * 
@@ -48,9 +49,10 @@ import org.sjanisch.skillview.core.utility.Lazy;
  */
 public class GitAlgorithmContentDiff implements ContentDiff {
 
-	private final Lazy<Collection<String>> diff;
+	private final Lazy<RawTextContentDiff> diff;
 
 	/**
+	 * Encodes contents as {@link StandardCharsets#UTF_8 UTF-8}.
 	 * 
 	 * @param previousContent
 	 *            must not be {@code null}
@@ -60,40 +62,34 @@ public class GitAlgorithmContentDiff implements ContentDiff {
 	 *            must not be {@code null}
 	 */
 	public GitAlgorithmContentDiff(String previousContent, String currentContent, DiffAlgorithm algorithm) {
+		this(previousContent, currentContent, StandardCharsets.UTF_8, algorithm);
+	}
+
+	/**
+	 * 
+	 * @param previousContent
+	 *            must not be {@code null}
+	 * @param currentContent
+	 *            must not be {@code null}
+	 * @param charset
+	 *            charset to encode contents with. Must not be {@code null}.
+	 * @param algorithm
+	 *            must not be {@code null}
+	 */
+	public GitAlgorithmContentDiff(String previousContent, String currentContent, Charset charset,
+			DiffAlgorithm algorithm) {
 		Objects.requireNonNull(previousContent, "previousContent");
 		Objects.requireNonNull(currentContent, "currentContent");
+		Objects.requireNonNull(charset, "charset");
 		Objects.requireNonNull(algorithm, "algorithm");
 
-		this.diff = Lazy.of(() -> diff(previousContent, currentContent, algorithm));
+		this.diff = Lazy.of(() -> RawTextContentDiff.of(previousContent.getBytes(charset),
+				currentContent.getBytes(charset), charset, algorithm, RawTextComparator.WS_IGNORE_ALL));
 	}
 
 	@Override
 	public Collection<String> getTouchedContent() {
-		return diff.get();
-	}
-
-	private static Collection<String> diff(String previousContent, String currentContent, DiffAlgorithm algorithm) {
-		RawText previous = new RawText(previousContent.getBytes());
-		RawText current = new RawText(currentContent.getBytes());
-		EditList edits = algorithm.diff(RawTextComparator.WS_IGNORE_ALL, previous, current);
-
-		Collection<String> result = new LinkedList<>();
-		for (int i = 0; i < edits.size(); ++i) {
-			Edit edit = edits.get(i);
-
-			switch (edit.getType()) {
-			case INSERT:
-			case REPLACE:
-				String touched = current.getString(edit.getBeginB(), edit.getEndB(), false).trim();
-				result.add(touched);
-				break;
-			default:
-				continue;
-			}
-
-		}
-
-		return result;
+		return diff.get().getTouchedContent();
 	}
 
 }
@@ -23,6 +23,9 @@ SOFTWARE.
  */
 package org.sjanisch.skillview.git;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
 import org.eclipse.jgit.diff.DiffAlgorithm;
 import org.eclipse.jgit.diff.DiffAlgorithm.SupportedAlgorithm;
 import org.sjanisch.skillview.core.diff.api.ContentDiffService;
@@ -51,11 +54,31 @@ public class GitContentDiffServices {
 		throw new UnsupportedOperationException("no instances");
 	}
 
-	private static ContentDiffService createService(SupportedAlgorithm diffAlgorithm) {
+	/**
+	 * Creates a service that encodes contents as {@link StandardCharsets#UTF_8
+	 * UTF-8} and diffs them with given differ, e.g. one that
+	 * {@link RawTextDiffer.Builder#setHashLinesOnce(boolean) hashes lines once}
+	 * or caps pathological inputs.
+	 * 
+	 * @param differ
+	 *            must not be {@code null}
+	 * @return new thread safe service. Never {@code null}.
+	 */
+	public static ContentDiffService createService(RawTextDiffer differ) {
+		Objects.requireNonNull(differ, "differ");
+
 		return (previous, current) -> {
-			DiffAlgorithm algorithm = DiffAlgorithm.getAlgorithm(diffAlgorithm);
-			return new GitAlgorithmContentDiff(previous, current, algorithm);
+			Objects.requireNonNull(previous, "previous");
+			Objects.requireNonNull(current, "current");
+
+			return RawTextContentDiff.of(previous.getBytes(StandardCharsets.UTF_8),
+					current.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8, differ);
 		};
 	}
 
+	private static ContentDiffService createService(SupportedAlgorithm diffAlgorithm) {
+		DiffAlgorithm algorithm = DiffAlgorithm.getAlgorithm(diffAlgorithm);
+		return (previous, current) -> new GitAlgorithmContentDiff(previous, current, algorithm);
+	}
+
 }
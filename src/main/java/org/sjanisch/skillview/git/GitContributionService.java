@@ -23,10 +23,30 @@ SOFTWARE.
  */
 package org.sjanisch.skillview.git;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
@@ -36,20 +56,33 @@ import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
 import org.eclipse.jgit.api.Git;
-import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.diff.DiffAlgorithm;
+import org.eclipse.jgit.diff.DiffAlgorithm.SupportedAlgorithm;
 import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.diff.DiffEntry.ChangeType;
 import org.eclipse.jgit.diff.RawText;
+import org.eclipse.jgit.diff.RawTextComparator;
+import org.eclipse.jgit.diff.RenameDetector;
 import org.eclipse.jgit.lib.AbbreviatedObjectId;
-import org.eclipse.jgit.lib.ObjectLoader;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.NullProgressMonitor;
+import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.ObjectReader;
 import org.eclipse.jgit.lib.Ref;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevSort;
 import org.eclipse.jgit.revwalk.RevTree;
 import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.revwalk.filter.AndRevFilter;
+import org.eclipse.jgit.revwalk.filter.CommitTimeRevFilter;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
 import org.eclipse.jgit.treewalk.AbstractTreeIterator;
 import org.eclipse.jgit.treewalk.CanonicalTreeParser;
 import org.eclipse.jgit.treewalk.EmptyTreeIterator;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.AndTreeFilter;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
 import org.sjanisch.skillview.core.contribution.api.Contribution;
 import org.sjanisch.skillview.core.contribution.api.ContributionId;
 import org.sjanisch.skillview.core.contribution.api.ContributionItem;
@@ -58,7 +91,6 @@ import org.sjanisch.skillview.core.contribution.api.ContributionService;
 import org.sjanisch.skillview.core.contribution.api.Contributor;
 import org.sjanisch.skillview.core.contribution.api.Project;
 import org.sjanisch.skillview.core.contribution.impl.DefaultContribution;
-import org.sjanisch.skillview.core.contribution.impl.DefaultContribution.Builder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -74,9 +106,56 @@ public class GitContributionService implements ContributionService {
 
 	private static final String EMPTY = "0000000000000000000000000000000000000000";
 
+	private static final String COMMIT_GRAPH_FILE = "skill-view-commit-graph";
+
+	/**
+	 * Default for {@link Builder#setMaxBlobSize(long)}, matching the default
+	 * size above which JGit refuses to load blobs into a single array.
+	 */
+	public static final long DEFAULT_MAX_BLOB_SIZE = 50 * 1024 * 1024;
+
+	/**
+	 * Default for {@link Builder#setLargeBlobSize(long)}.
+	 */
+	public static final long DEFAULT_LARGE_BLOB_SIZE = 1024 * 1024;
+
+	/**
+	 * Default for {@link Builder#setBlobCacheSize(long)}.
+	 */
+	public static final long DEFAULT_BLOB_CACHE_SIZE = 64 * 1024 * 1024;
+
+	/**
+	 * Default for {@link Builder#setRenameScore(int)}, matching the default
+	 * of git.
+	 */
+	public static final int DEFAULT_RENAME_SCORE = 60;
+
 	private final Supplier<Repository> repositorySupplier;
 	private final Project project;
 	private final Predicate<String> pathFilter;
+	private final PathGlobFilter pathGlobFilter;
+	private final Duration clockSkewSlop;
+	private final boolean commitGraph;
+	private final Executor extractionExecutor;
+	private final int extractionParallelism;
+	private final boolean orderedExtraction;
+	private final MergePolicy mergePolicy;
+	private final Hunks hunks;
+	private final boolean renameDetection;
+	private final int renameScore;
+	private final Integer renameLimit;
+	private final BlobLoader blobLoader;
+	private final long blobCacheSize;
+	private final int blobBatchSize;
+	private final LongAdder blobCacheHits = new LongAdder();
+	private final LongAdder blobCacheMisses = new LongAdder();
+	private final LongAdder blobCacheEvictions = new LongAdder();
+	private final ContributionCache contributionCache;
+	private final String cacheSettingsKey;
+	private final ExtractionMetrics metrics;
+	private final Path checkpointFile;
+	private final int checkpointInterval;
+	private final BiConsumer<ContributionId, Throwable> commitFailureHandler;
 
 	/**
 	 * 
@@ -104,13 +183,84 @@ public class GitContributionService implements ContributionService {
 	 */
 	public GitContributionService(Supplier<Repository> repositorySupplier, Project project,
 			Predicate<String> pathFilter) {
-		this.repositorySupplier = Objects.requireNonNull(repositorySupplier, "repositorySupplier");
-		this.project = Objects.requireNonNull(project, "project");
-		this.pathFilter = pathFilter == null ? t -> true : pathFilter;
+		this(newBuilder(repositorySupplier, project).setPathFilter(pathFilter));
+	}
+
+	private GitContributionService(Builder builder) {
+		this.repositorySupplier = builder.repositorySupplier;
+		this.project = builder.project;
+		this.pathFilter = builder.pathFilter;
+		this.pathGlobFilter = builder.pathGlobFilter;
+		this.clockSkewSlop = builder.clockSkewSlop;
+		this.commitGraph = builder.commitGraph;
+		this.extractionExecutor = builder.extractionExecutor;
+		this.extractionParallelism = builder.extractionParallelism;
+		this.orderedExtraction = builder.orderedExtraction;
+		this.mergePolicy = builder.mergePolicy;
+		this.hunks = builder.hunksOnly ? new Hunks(DiffAlgorithm.getAlgorithm(SupportedAlgorithm.HISTOGRAM),
+				RawTextComparator.WS_IGNORE_ALL, builder.hunkContextLines) : null;
+		this.renameDetection = builder.renameDetection;
+		this.renameScore = builder.renameScore;
+		this.renameLimit = builder.renameLimit;
+		this.blobLoader = new BlobLoader(builder.maxBlobSize, builder.largeBlobSize, builder.largeBlobPolicy,
+				builder.metrics);
+		this.blobCacheSize = builder.blobCacheSize;
+		this.blobBatchSize = builder.blobBatchSize;
+		this.contributionCache = builder.contributionCache;
+		this.metrics = builder.metrics;
+		this.checkpointFile = builder.checkpointFile;
+		this.checkpointInterval = builder.checkpointInterval;
+		this.commitFailureHandler = builder.commitFailureHandler;
+		String settingsKey = String.format("paths=%s;hunks=%s;blobs=%s/%s/%s", builder.pathFilterKey,
+				builder.hunksOnly ? builder.hunkContextLines : "off", builder.maxBlobSize, builder.largeBlobPolicy,
+				builder.largeBlobSize);
+		if (builder.mergePolicy == MergePolicy.CONFLICT_RESOLUTIONS) {
+			settingsKey += ";merges=resolutions";
+		}
+		if (builder.pathGlobFilter != null) {
+			settingsKey += String.format(";globs=%s", builder.pathGlobFilter);
+		}
+		if (builder.renameDetection) {
+			settingsKey += String.format(";renames=%s/%s", builder.renameScore, builder.renameLimit);
+		}
+		this.cacheSettingsKey = settingsKey;
+	}
+
+	/**
+	 * 
+	 * @param repositorySupplier
+	 *            supplier for fresh repository instances. Must not be
+	 *            {@code null}.
+	 * @param project
+	 *            the project that this repository relates to. Must not be
+	 *            {@code null}.
+	 * @return a builder for a service with default settings. Never
+	 *         {@code null}.
+	 */
+	public static Builder newBuilder(Supplier<Repository> repositorySupplier, Project project) {
+		return new Builder(repositorySupplier, project);
 	}
 
 	@Override
 	public Stream<Contribution> retrieveContributions(Instant startExclusive, Instant endInclusive) {
+		return retrieveBranchContributions(startExclusive, endInclusive).map(BranchContribution::getContribution);
+	}
+
+	/**
+	 * Retrieves the same contributions as
+	 * {@link #retrieveContributions(Instant, Instant)} but additionally
+	 * reports the branches that contain each of them. Every commit is
+	 * reported once, regardless of how many branches it is reachable from.
+	 * 
+	 * @param startExclusive
+	 *            must not be {@code null}
+	 * @param endInclusive
+	 *            must not be {@code null}
+	 * @return stream of contributions along with their branches. Must be
+	 *         closed to release the underlying repository. Never
+	 *         {@code null}.
+	 */
+	public Stream<BranchContribution> retrieveBranchContributions(Instant startExclusive, Instant endInclusive) {
 		Objects.requireNonNull(startExclusive, "startExclusive");
 		Objects.requireNonNull(endInclusive, "endInclusive");
 
@@ -118,8 +268,8 @@ public class GitContributionService implements ContributionService {
 		Runnable closeRepository = () -> repository.close();
 		try (Git git = new Git(repository)) {
 			try {
-				Helper helper = new Helper(repository, project, git, startExclusive, endInclusive, pathFilter);
-				Stream<Contribution> contributions = helper.readContributions().onClose(closeRepository);
+				Helper helper = new Helper(this, repository, git, startExclusive, endInclusive, null);
+				Stream<BranchContribution> contributions = helper.readContributions().onClose(closeRepository);
 				return contributions;
 			} catch (Exception e) {
 				String msg = "Could not retrieve contributions between %s and %s";
@@ -129,186 +279,1256 @@ public class GitContributionService implements ContributionService {
 		}
 	}
 
+	/**
+	 * Computes the number of lines added and removed and the number of files
+	 * touched per contributor, file extension and time bucket in a single
+	 * pass over the same commits that
+	 * {@link #retrieveContributions(Instant, Instant)} would retrieve.
+	 * <p>
+	 * Files are diffed on their raw lines, which are never decoded into
+	 * strings, and only the counters of each distinct contributor, extension
+	 * and bucket are kept. Files that are skipped as binary or too large are
+	 * not counted. The contribution cache and checkpoints are not used.
+	 * 
+	 * @param startExclusive
+	 *            must not be {@code null}
+	 * @param endInclusive
+	 *            must not be {@code null}
+	 * @param bucketSize
+	 *            length of a time bucket, e.g. {@link Duration#ofDays(long)
+	 *            one day}. Must not be {@code null} and must be at least one
+	 *            second.
+	 * @return the statistics. Never {@code null}.
+	 */
+	public ContributionStatistics aggregateContributions(Instant startExclusive, Instant endInclusive,
+			Duration bucketSize) {
+		Objects.requireNonNull(startExclusive, "startExclusive");
+		Objects.requireNonNull(endInclusive, "endInclusive");
+		ContributionAggregation aggregation = new ContributionAggregation(bucketSize);
+
+		Repository repository = repositorySupplier.get();
+		try (Git git = new Git(repository)) {
+			Helper helper = new Helper(this, repository, git, startExclusive, endInclusive, aggregation);
+			helper.aggregateContributions();
+			return aggregation.toStatistics();
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			String msg = "Could not aggregate contributions between %s and %s";
+			msg = String.format(msg, startExclusive, endInclusive);
+			throw new ContributionRetrievalException(msg, e);
+		} finally {
+			repository.close();
+		}
+	}
+
+	/**
+	 * 
+	 * @return statistics of the blob cache, accumulated over all completed
+	 *         traversals of this service. Never {@code null}.
+	 */
+	public BlobCacheStatistics getBlobCacheStatistics() {
+		return BlobCacheStatistics.of(blobCacheHits.sum(), blobCacheMisses.sum(), blobCacheEvictions.sum());
+	}
+
+	/**
+	 * Builder for {@link GitContributionService}.
+	 * <p>
+	 * This class is not thread safe.
+	 * 
+	 * @author sebastianjanisch
+	 *
+	 */
+	public static class Builder {
+
+		private final Supplier<Repository> repositorySupplier;
+		private final Project project;
+		private Predicate<String> pathFilter = t -> true;
+		private PathGlobFilter pathGlobFilter;
+		private Duration clockSkewSlop;
+		private boolean commitGraph;
+		private Executor extractionExecutor;
+		private int extractionParallelism = 1;
+		private boolean orderedExtraction = true;
+		private MergePolicy mergePolicy = MergePolicy.FIRST_PARENT_DIFF;
+		private boolean hunksOnly;
+		private int hunkContextLines;
+		private boolean renameDetection;
+		private int renameScore = DEFAULT_RENAME_SCORE;
+		private Integer renameLimit;
+		private long maxBlobSize = DEFAULT_MAX_BLOB_SIZE;
+		private long largeBlobSize = DEFAULT_LARGE_BLOB_SIZE;
+		private LargeBlobPolicy largeBlobPolicy = LargeBlobPolicy.STREAM;
+		private long blobCacheSize = DEFAULT_BLOB_CACHE_SIZE;
+		private int blobBatchSize = 1;
+		private ContributionCache contributionCache;
+		private String pathFilterKey;
+		private ExtractionMetrics metrics = ExtractionMetrics.NOOP;
+		private Path checkpointFile;
+		private int checkpointInterval;
+		private BiConsumer<ContributionId, Throwable> commitFailureHandler;
+
+		private Builder(Supplier<Repository> repositorySupplier, Project project) {
+			this.repositorySupplier = Objects.requireNonNull(repositorySupplier, "repositorySupplier");
+			this.project = Objects.requireNonNull(project, "project");
+		}
+
+		/**
+		 * 
+		 * @param pathFilter
+		 *            predicate to exclude/include paths into contributions.
+		 *            Can be {@code null} to include all paths.
+		 * @return this builder. Never {@code null}.
+		 */
+		public Builder setPathFilter(Predicate<String> pathFilter) {
+			this.pathFilter = pathFilter == null ? t -> true : pathFilter;
+			return this;
+		}
+
+		/**
+		 * Pushes given filter down into the history walk and the diff of each
+		 * commit. Commits that do not touch any selected path are skipped
+		 * entirely, and subtrees that cannot contain selected paths are not
+		 * walked. Unlike a {@link #setPathFilter(Predicate) path predicate},
+		 * the glob filter therefore reduces the work done per commit.
+		 * <p>
+		 * Both filters can be combined, in which case a path must be selected
+		 * by both. Since commits are compared to their first parent, renames
+		 * from or to unselected paths are reported as additions respectively
+		 * not at all.
+		 * 
+		 * @param pathGlobFilter
+		 *            filter of paths to include into contributions. Can be
+		 *            {@code null} to include all paths, which is the default.
+		 * @return this builder. Never {@code null}.
+		 */
+		public Builder setPathGlobFilter(PathGlobFilter pathGlobFilter) {
+			this.pathGlobFilter = pathGlobFilter;
+			return this;
+		}
+
+		/**
+		 * Enables the time bounded walk mode. Rather than walking the full
+		 * history of all branches, commits are visited newest first and the
+		 * walk stops once it has passed the start of the queried time window
+		 * by more than given slop. The cost of a query then scales with the
+		 * size of its time window rather than the length of the history.
+		 * <p>
+		 * The slop guards against commits whose timestamps are out of order
+		 * with their ancestors, e.g. due to clock skew on a committer's
+		 * machine. Such commits are only found if they are less than the slop
+		 * older than the window start. For the same reason, the
+		 * {@link BranchContribution#getBranches() branches} reported for a
+		 * commit may be incomplete if its descendants on some branch carry
+		 * older timestamps than itself.
+		 * 
+		 * @param clockSkewSlop
+		 *            must not be negative. {@code null} disables the time
+		 *            bounded walk, which is the default.
+		 * @return this builder. Never {@code null}.
+		 */
+		public Builder setTimeBoundedWalk(Duration clockSkewSlop) {
+			if (clockSkewSlop != null && clockSkewSlop.isNegative()) {
+				throw new IllegalArgumentException("clockSkewSlop must not be negative: " + clockSkewSlop);
+			}
+			this.clockSkewSlop = clockSkewSlop;
+			return this;
+		}
+
+		/**
+		 * Enables the commit graph index. Rather than parsing every commit
+		 * object of the history on each query, the ids, commit times and
+		 * parents of all commits are kept in a compact index file within the
+		 * repository directory. The history is then walked on the index and
+		 * only the commits within the queried time window are parsed.
+		 * <p>
+		 * The index is created by the first query and extended by later
+		 * queries with commits that have been added to the repository since.
+		 * It therefore pays off for repositories that persist across queries,
+		 * such as mirrors created by {@link TemporaryCloneGitFileRepository}.
+		 * Repositories without a directory are walked as usual.
+		 * <p>
+		 * The index is walked in topological order, hence reported
+		 * {@link BranchContribution#getBranches() branches} are complete. A
+		 * {@link #setTimeBoundedWalk(Duration) time bounded walk} stops
+		 * walking beyond commits older than the slop.
+		 * 
+		 * @param commitGraph
+		 *            {@code true} to walk the history on the commit graph
+		 *            index. Defaults to {@code false}.
+		 * @return this builder. Never {@code null}.
+		 */
+		public Builder setCommitGraph(boolean commitGraph) {
+			this.commitGraph = commitGraph;
+			return this;
+		}
+
+		/**
+		 * Enables parallel extraction of contributions. Commits are still
+		 * found by a single walk, but tree parsing, diffing and blob loading
+		 * of individual commits is sharded across given executor. Each
+		 * concurrently running extraction uses its own {@link ObjectReader}
+		 * and {@link RevWalk}.
+		 * <p>
+		 * The executor is not shut down by the service. By default, extraction
+		 * happens sequentially on the thread consuming the stream.
+		 * 
+		 * @param executor
+		 *            executor to run extractions on. {@code null} disables
+		 *            parallel extraction.
+		 * @param parallelism
+		 *            the maximum number of commits that are extracted
+		 *            concurrently, regardless of the threads of the executor.
+		 *            Twice as many commits are kept in flight, the others
+		 *            waiting to be handed to the executor, so that workers do
+		 *            not wait for the consumer. Must be positive.
+		 * @return this builder. Never {@code null}.
+		 */
+		public Builder setParallelExtraction(Executor executor, int parallelism) {
+			if (parallelism < 1) {
+				throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+			}
+			this.extractionExecutor = executor;
+			this.extractionParallelism = parallelism;
+			return this;
+		}
+
+		/**
+		 * Only relevant for {@link #setParallelExtraction(Executor, int)
+		 * parallel extraction}. If ordered, which is the default,
+		 * contributions are emitted in the same deterministic order as with
+		 * sequential extraction. If unordered, contributions are emitted as
+		 * soon as their extraction completes so that a single expensive
+		 * commit does not hold back the ones after it.
+		 * 
+		 * @param orderedExtraction
+		 *            {@code false} to emit contributions in completion order
+		 * @return this builder. Never {@code null}.
+		 */
+		public Builder setOrderedExtraction(boolean orderedExtraction) {
+			this.orderedExtraction = orderedExtraction;
+			return this;
+		}
+
+		/**
+		 * Merge commits diffed against their first parent report everything
+		 * that was merged in, which is typically reported by the merged
+		 * commits already. The other policies avoid diffing merged content
+		 * twice by either not reporting merge commits, not reporting merged
+		 * commits or reporting only the resolutions of merge commits.
+		 * <p>
+		 * {@link MergePolicy#FIRST_PARENT_ONLY} decides which commits are on
+		 * a first parent chain once the history has been walked, regardless
+		 * of commit times. In {@link #setTimeBoundedWalk(Duration) time
+		 * bounded} mode, commits behind skewed timestamps may be missed.
+		 * 
+		 * @param mergePolicy
+		 *            how to treat merge commits. Must not be {@code null}.
+		 *            Defaults to {@link MergePolicy#FIRST_PARENT_DIFF}.
+		 * @return this builder. Never {@code null}.
+		 */
+		public Builder setMergePolicy(MergePolicy mergePolicy) {
+			this.mergePolicy = Objects.requireNonNull(mergePolicy, "mergePolicy");
+			return this;
+		}
+
+		/**
+		 * Enables the hunk mode. Rather than the full previous and current
+		 * content of every touched file, a touched file then yields one
+		 * {@link ContributionItem contribution item} per changed line range,
+		 * carrying that range of either side surrounded by the configured
+		 * number of {@link #setHunkContextLines(int) context lines}. Edits are
+		 * computed once from the raw blob bytes during extraction, using the
+		 * {@link SupportedAlgorithm#HISTOGRAM histogram} algorithm and
+		 * ignoring whitespace like {@link GitAlgorithmContentDiff} does. Files
+		 * whose changes are whitespace only yield no items.
+		 * <p>
+		 * A small change to a large file then no longer moves the whole file
+		 * through the heap. Consumers that analyse a file as a whole, or
+		 * expect a single item per file, must not enable this mode.
+		 * 
+		 * @param hunksOnly
+		 *            {@code true} to only emit changed hunks. Defaults to
+		 *            {@code false}.
+		 * @return this builder. Never {@code null}.
+		 */
+		public Builder setHunksOnly(boolean hunksOnly) {
+			this.hunksOnly = hunksOnly;
+			return this;
+		}
+
+		/**
+		 * Only relevant if {@link #setHunksOnly(boolean) hunk mode} is
+		 * enabled.
+		 * 
+		 * @param hunkContextLines
+		 *            number of unchanged lines to keep before and after each
+		 *            hunk. Must not be negative. Defaults to {@code 0}.
+		 * @return this builder. Never {@code null}.
+		 */
+		public Builder setHunkContextLines(int hunkContextLines) {
+			if (hunkContextLines < 0) {
+				throw new IllegalArgumentException("hunkContextLines must not be negative: " + hunkContextLines);
+			}
+			this.hunkContextLines = hunkContextLines;
+			return this;
+		}
+
+		/**
+		 * Enables rename and copy detection. Files that were moved or copied
+		 * within a commit are then reported under their new path with the
+		 * content of their source as previous content, rather than as an
+		 * addition of the whole file. Diffing such items only yields the lines
+		 * that changed along with the move.
+		 * <p>
+		 * Exact renames are detected by blob id alone. Renames with modified
+		 * content require comparing the contents of added and deleted files,
+		 * which is bounded by the {@link #setRenameLimit(int) rename limit}.
+		 * Copies are only detected from files that were modified in the same
+		 * commit.
+		 * 
+		 * @param renameDetection
+		 *            {@code true} to detect renames and copies. Defaults to
+		 *            {@code false}.
+		 * @return this builder. Never {@code null}.
+		 */
+		public Builder setRenameDetection(boolean renameDetection) {
+			this.renameDetection = renameDetection;
+			return this;
+		}
+
+		/**
+		 * Only relevant if {@link #setRenameDetection(boolean) rename
+		 * detection} is enabled.
+		 * 
+		 * @param renameScore
+		 *            minimum similarity in percent for a pair of deleted and
+		 *            added files to be considered a rename. Must be between
+		 *            {@code 0} and {@code 100}. Defaults to
+		 *            {@link GitContributionService#DEFAULT_RENAME_SCORE}.
+		 * @return this builder. Never {@code null}.
+		 */
+		public Builder setRenameScore(int renameScore) {
+			if (renameScore < 0 || renameScore > 100) {
+				throw new IllegalArgumentException("renameScore must be between 0 and 100: " + renameScore);
+			}
+			this.renameScore = renameScore;
+			return this;
+		}
+
+		/**
+		 * Only relevant if {@link #setRenameDetection(boolean) rename
+		 * detection} is enabled. Commits with more added or deleted files than
+		 * the limit only have their exact renames detected, which keeps the
+		 * cost of large moves proportional to the number of files.
+		 * 
+		 * @param renameLimit
+		 *            maximum number of added or deleted files to compare by
+		 *            content. {@code 0} means no limit. Must not be negative.
+		 *            Defaults to {@code diff.renameLimit} of the repository
+		 *            configuration.
+		 * @return this builder. Never {@code null}.
+		 */
+		public Builder setRenameLimit(int renameLimit) {
+			if (renameLimit < 0) {
+				throw new IllegalArgumentException("renameLimit must not be negative: " + renameLimit);
+			}
+			this.renameLimit = renameLimit;
+			return this;
+		}
+
+		/**
+		 * Files whose previous or current content exceeds given size are
+		 * skipped like binary files. The size is checked before any content
+		 * is loaded, which bounds the memory needed per file.
+		 * 
+		 * @param maxBlobSize
+		 *            maximum size of a file in bytes. Must be positive.
+		 *            Defaults to {@link GitContributionService#DEFAULT_MAX_BLOB_SIZE}.
+		 * @return this builder. Never {@code null}.
+		 */
+		public Builder setMaxBlobSize(long maxBlobSize) {
+			if (maxBlobSize <= 0) {
+				throw new IllegalArgumentException("maxBlobSize must be positive: " + maxBlobSize);
+			}
+			this.maxBlobSize = maxBlobSize;
+			return this;
+		}
+
+		/**
+		 * Files within the {@link #setMaxBlobSize(long) maximum size} whose
+		 * content exceeds given size are
+		 * {@link #setLargeBlobPolicy(LargeBlobPolicy) streamed or skipped}
+		 * rather than loaded at once, as are files that JGit considers large.
+		 * 
+		 * @param largeBlobSize
+		 *            size of a large file in bytes. Must be positive. Defaults
+		 *            to {@link GitContributionService#DEFAULT_LARGE_BLOB_SIZE}.
+		 * @return this builder. Never {@code null}.
+		 */
+		public Builder setLargeBlobSize(long largeBlobSize) {
+			if (largeBlobSize <= 0) {
+				throw new IllegalArgumentException("largeBlobSize must be positive: " + largeBlobSize);
+			}
+			this.largeBlobSize = largeBlobSize;
+			return this;
+		}
+
+		/**
+		 * 
+		 * @param largeBlobPolicy
+		 *            how to treat files within the
+		 *            {@link #setMaxBlobSize(long) maximum size} that are
+		 *            {@link #setLargeBlobSize(long) large}. Must not be
+		 *            {@code null}. Defaults to {@link LargeBlobPolicy#STREAM}.
+		 * @return this builder. Never {@code null}.
+		 */
+		public Builder setLargeBlobPolicy(LargeBlobPolicy largeBlobPolicy) {
+			this.largeBlobPolicy = Objects.requireNonNull(largeBlobPolicy, "largeBlobPolicy");
+			return this;
+		}
+
+		/**
+		 * Blobs are cached by their id for the duration of a traversal, so
+		 * that a blob appearing in several commits is loaded, classified and
+		 * split into lines only once. The cache evicts least recently used
+		 * blobs once their total size exceeds given size.
+		 * 
+		 * @param blobCacheSize
+		 *            maximum size of the blob cache in bytes. {@code 0}
+		 *            disables the cache. Must not be negative. Defaults to
+		 *            {@link GitContributionService#DEFAULT_BLOB_CACHE_SIZE}.
+		 * @return this builder. Never {@code null}.
+		 * @see GitContributionService#getBlobCacheStatistics()
+		 */
+		public Builder setBlobCacheSize(long blobCacheSize) {
+			if (blobCacheSize < 0) {
+				throw new IllegalArgumentException("blobCacheSize must not be negative: " + blobCacheSize);
+			}
+			this.blobCacheSize = blobCacheSize;
+			return this;
+		}
+
+		/**
+		 * Loads the blobs of up to given number of files of a commit through a
+		 * single {@link org.eclipse.jgit.lib.AsyncObjectLoaderQueue queue}
+		 * before diffing them, rather than one after the other. This allows
+		 * readers that support it to fetch the blobs in the order in which
+		 * they are stored. All blobs of a batch are held in memory at once.
+		 * <p>
+		 * Blobs that are found in the {@link #setBlobCacheSize(long) blob
+		 * cache} are not loaded again.
+		 * 
+		 * @param blobBatchSize
+		 *            maximum number of files whose blobs are loaded at once.
+		 *            Must be positive. Defaults to {@code 1}, i.e. blobs are
+		 *            loaded one by one.
+		 * @return this builder. Never {@code null}.
+		 * @see PackCacheSettings
+		 */
+		public Builder setBlobBatchSize(int blobBatchSize) {
+			if (blobBatchSize < 1) {
+				throw new IllegalArgumentException("blobBatchSize must be positive: " + blobBatchSize);
+			}
+			this.blobBatchSize = blobBatchSize;
+			return this;
+		}
+
+		/**
+		 * Puts given cache in front of the extraction. Commits whose
+		 * contributions are cached are still found by walking the history,
+		 * but are neither diffed nor are their blobs loaded. Newly extracted
+		 * contributions are added to the cache.
+		 * <p>
+		 * Since a {@link #setPathFilter(Predicate) path filter} cannot be
+		 * compared, callers must describe it by a key that changes whenever
+		 * the filter does. Other extraction settings are accounted for by the
+		 * service.
+		 * 
+		 * @param contributionCache
+		 *            the cache to use. {@code null} disables caching, which is
+		 *            the default.
+		 * @param pathFilterKey
+		 *            stable key describing the path filter. Must not be
+		 *            {@code null} if a cache is given.
+		 * @return this builder. Never {@code null}.
+		 */
+		public Builder setContributionCache(ContributionCache contributionCache, String pathFilterKey) {
+			if (contributionCache != null) {
+				Objects.requireNonNull(pathFilterKey, "pathFilterKey");
+			}
+			this.contributionCache = contributionCache;
+			this.pathFilterKey = pathFilterKey;
+			return this;
+		}
+
+		/**
+		 * Reports durations of the {@link ExtractionStage stages} of every
+		 * commit, blob sizes and skips as well as cache accesses to given
+		 * metrics. Time is only measured if metrics other than
+		 * {@link ExtractionMetrics#NOOP} are given.
+		 * 
+		 * @param metrics
+		 *            the metrics to report to. Must not be {@code null}.
+		 *            Defaults to {@link ExtractionMetrics#NOOP}.
+		 * @return this builder. Never {@code null}.
+		 */
+		public Builder setMetrics(ExtractionMetrics metrics) {
+			this.metrics = Objects.requireNonNull(metrics, "metrics");
+			return this;
+		}
+
+		/**
+		 * Records the progress of each retrieval in given file, so that a
+		 * retrieval that failed or was closed early can be resumed by
+		 * repeating it. A commit counts as done once its contribution was
+		 * handed to the consumer or it was reported to the
+		 * {@link #setCommitFailureHandler(BiConsumer) failure handler}.
+		 * <p>
+		 * Progress is resumed only if the retrieval is repeated with the same
+		 * time window and settings and all branches still point to the same
+		 * commits. Commits done after the last time progress was written are
+		 * extracted again. The file is deleted once a retrieval has completed.
+		 * 
+		 * @param checkpointFile
+		 *            the file to record progress in. Must not be shared with
+		 *            other services or concurrent retrievals. {@code null}
+		 *            disables checkpoints, which is the default.
+		 * @param checkpointInterval
+		 *            number of commits after which progress is written. Must be
+		 *            positive if a file is given.
+		 * @return this builder. Never {@code null}.
+		 */
+		public Builder setCheckpoint(Path checkpointFile, int checkpointInterval) {
+			if (checkpointFile != null && checkpointInterval < 1) {
+				throw new IllegalArgumentException("checkpointInterval must be positive: " + checkpointInterval);
+			}
+			this.checkpointFile = checkpointFile;
+			this.checkpointInterval = checkpointInterval;
+			return this;
+		}
+
+		/**
+		 * By default, a commit whose contribution cannot be extracted, e.g.
+		 * due to a corrupt object, fails the whole retrieval. If a handler is
+		 * given, such commits are reported to it instead and skipped, so that
+		 * it can collect them for later inspection.
+		 * <p>
+		 * This includes errors, e.g. an {@link OutOfMemoryError} caused by an
+		 * oversized object. Only other {@link VirtualMachineError virtual
+		 * machine errors} still fail the retrieval.
+		 * 
+		 * @param commitFailureHandler
+		 *            invoked with the id of every commit that failed and the
+		 *            cause, possibly from several threads at once. {@code null}
+		 *            to fail the retrieval, which is the default.
+		 * @return this builder. Never {@code null}.
+		 */
+		public Builder setCommitFailureHandler(BiConsumer<ContributionId, Throwable> commitFailureHandler) {
+			this.commitFailureHandler = commitFailureHandler;
+			return this;
+		}
+
+		/**
+		 * 
+		 * @return a new service. Never {@code null}.
+		 */
+		public GitContributionService build() {
+			return new GitContributionService(this);
+		}
+
+	}
+
 	private static class Helper {
 
+		private final GitContributionService service;
 		private final Repository repository;
 		private final Project project;
 		private final Git git;
 		private final Instant startExclusive;
 		private final Instant endInclusive;
 		private final Predicate<String> pathFilter;
+		private final BlobCache blobCache;
+		private final ContributionAggregation aggregation;
 
-		public Helper(Repository repository, Project project, Git git, Instant startExclusive, Instant endInclusive,
-				Predicate<String> pathFilter) {
+		public Helper(GitContributionService service, Repository repository, Git git, Instant startExclusive,
+				Instant endInclusive, ContributionAggregation aggregation) {
+			this.service = service;
 			this.repository = repository;
-			this.project = project;
+			this.project = service.project;
 			this.git = git;
 			this.startExclusive = startExclusive;
 			this.endInclusive = endInclusive;
-			this.pathFilter = pathFilter;
+			this.pathFilter = service.pathFilter;
+			this.blobCache = service.blobCacheSize > 0 ? new BlobCache(service.blobLoader, service.blobCacheSize)
+					: null;
+			this.aggregation = aggregation;
 		}
 
-		private Stream<Contribution> readContributions() throws Exception {
+		private Stream<BranchContribution> readContributions() throws Exception {
 			info(() -> String.format("Reading contributions for %s", repository.toString()));
 
 			List<Ref> branches = git.branchList().call();
 
-			// @formatter:off
-			Stream<Contribution> contributions = branches.stream().map(branch -> readContributionsFromBranch(branch))
-					.flatMap(Function.identity());
-			// @formatter:on
+			if (service.commitGraph && repository.getDirectory() != null) {
+				return readContributionsFromCommitGraph(branches);
+			}
+
+			BranchRevWalk walk = new BranchRevWalk(repository);
+			try {
+				for (Ref branch : branches) {
+					debug(() -> String.format("Entering branch %s", branch.getName()));
+					walk.markBranchStart(branch);
+				}
+				walk.setRevFilter(createRevFilter());
+				walk.setFirstParentOnly(service.mergePolicy == MergePolicy.FIRST_PARENT_ONLY);
+				if (service.clockSkewSlop == null) {
+					walk.sort(RevSort.TOPO);
+					walk.sort(RevSort.COMMIT_TIME_DESC, true);
+				} else {
+					walk.sort(RevSort.COMMIT_TIME_DESC);
+				}
+
+				long walkStart = startTiming();
+				List<RevCommit> commitsList = walk.walkCommits();
+				recordStage(ExtractionStage.WALK, walkStart);
+
+				info(() -> String.format("Found %s distinct commits in %s branches", commitsList.size(),
+						branches.size()));
+
+				Stream<BranchContribution> result = extract(commitsList, walk::getBranches, branches);
 
-			return contributions;
+				return result.onClose(walk::close).onClose(this::recordBlobCacheStatistics);
+			} catch (Exception e) {
+				walk.close();
+				throw e;
+			}
+		}
+
+		/**
+		 * Counts the commits that {@link #readContributions()} would extract
+		 * into the aggregation. In that mode workers count each commit into
+		 * their own statistics table and yield no contribution, so the
+		 * extraction is only run to completion here. Closing it merges the
+		 * tables into the aggregation.
+		 */
+		private void aggregateContributions() throws Exception {
+			try (Stream<BranchContribution> extraction = readContributions()) {
+				Iterator<BranchContribution> iterator = extraction.iterator();
+				// runs the extraction to its end, as no contribution is yielded
+				if (iterator.hasNext()) {
+					throw new IllegalStateException("Aggregation yielded contribution " + iterator.next());
+				}
+			}
 		}
 
-		private Stream<Contribution> readContributionsFromBranch(Ref branch) {
-			info(() -> String.format("Entering branch %s", branch.getName()));
+		private Stream<BranchContribution> readContributionsFromCommitGraph(List<Ref> branches) throws Exception {
+			long start = System.nanoTime();
+			Path file = repository.getDirectory().toPath().resolve(COMMIT_GRAPH_FILE);
+			List<ObjectId> tips = branches.stream().map(Ref::getObjectId).collect(Collectors.toList());
+			CommitGraph graph = CommitGraph.update(repository, file, tips);
 
+			debug(() -> String.format("Loaded commit graph of %s commits in %.2f seconds", graph.size(),
+					(System.nanoTime() - start) / 1e9));
+
+			CommitGraphWalk graphWalk = new CommitGraphWalk(graph);
+			for (Ref branch : branches) {
+				debug(() -> String.format("Entering branch %s", branch.getName()));
+				graphWalk.markBranchStart(branch);
+			}
+
+			long sinceSeconds = startExclusive.getEpochSecond() + 1;
+			long untilSeconds = endInclusive.getEpochSecond();
+			long stopBeforeSeconds = service.clockSkewSlop == null ? Long.MIN_VALUE
+					: sinceSeconds - service.clockSkewSlop.getSeconds();
+			int[] positions = graphWalk.walk(sinceSeconds, untilSeconds, stopBeforeSeconds, service.mergePolicy);
+
+			RevWalk walk = new RevWalk(repository);
 			try {
-				Iterable<RevCommit> commits = git.log().add(repository.resolve(branch.getName())).call();
+				RevFilter pathFilter = service.pathGlobFilter == null ? RevFilter.ALL
+						: service.pathGlobFilter.toRevFilter();
 
-				List<RevCommit> commitsList = StreamSupport.stream(commits.spliterator(), false).filter(commit -> {
-					Instant commitTime = Instant.ofEpochSecond(commit.getCommitTime());
-					if (commitTime.isAfter(startExclusive) && !commitTime.isAfter(endInclusive)) {
-						return true;
+				List<RevCommit> commitsList = new ArrayList<>(positions.length);
+				Map<AnyObjectId, Set<String>> branchesByCommit = new HashMap<>();
+				for (int position : positions) {
+					RevCommit commit = walk.parseCommit(graph.getId(position));
+					if (pathFilter.include(walk, commit)) {
+						commitsList.add(commit);
+						branchesByCommit.put(commit, graphWalk.getBranches(position));
 					}
-					return false;
+				}
+				recordStage(ExtractionStage.WALK, start);
+
+				info(() -> String.format("Found %s distinct commits in %s branches", commitsList.size(),
+						branches.size()));
 
-				}).collect(Collectors.toList());
+				Stream<BranchContribution> result = extract(commitsList, branchesByCommit::get, branches);
 
-				info(() -> String.format("Found %s commits in branch %s", commitsList.size(), branch.toString()));
+				return result.onClose(walk::close).onClose(this::recordBlobCacheStatistics);
+			} catch (Exception e) {
+				walk.close();
+				throw e;
+			}
+		}
 
-				AtomicInteger finishedCommits = new AtomicInteger(0);
+		private Stream<BranchContribution> extract(List<RevCommit> commitsList,
+				Function<RevCommit, Set<String>> branches, List<Ref> tips) {
+			Checkpoint checkpoint = service.checkpointFile == null || aggregation != null ? null
+					: new Checkpoint(service.checkpointFile, createCheckpointScope(tips), service.checkpointInterval,
+							commitsList);
+			int resumeIndex = checkpoint == null ? 0 : checkpoint.getResumeIndex();
+			if (resumeIndex > 0) {
+				info(() -> String.format("Resuming after %s commits from checkpoint %s", resumeIndex,
+						service.checkpointFile));
+			}
 
-				Stream<Contribution> result = IntStream.range(0, commitsList.size()).mapToObj(i -> {
-					RevCommit commit = commitsList.get(i);
+			Stream<IndexedContribution> result;
+			if (service.extractionExecutor == null) {
+				result = extractSequentially(commitsList, resumeIndex, branches);
+			} else {
+				result = extractInParallel(commitsList, resumeIndex, branches);
+			}
 
-					AbstractTreeIterator oldTreeParser = prepareTreeParser(repository, commit.getName() + "~1");
-					AbstractTreeIterator newTreeParser = prepareTreeParser(repository, commit.getName());
+			if (checkpoint != null) {
+				result = checkpointed(result, checkpoint);
+			}
 
-					Contribution contribution = readContributionFromCommit(commit, newTreeParser, oldTreeParser);
+			return result.filter(extracted -> extracted.contribution != null)
+					.map(extracted -> extracted.contribution);
+		}
 
-					logCommitProgress(commitsList.size() - 1, finishedCommits.incrementAndGet());
+		/**
+		 * Records a commit as emitted only once the consumer asks for the
+		 * next one, or once all commits were consumed, so that a commit the
+		 * consumer failed on is emitted again upon resuming.
+		 */
+		private Stream<IndexedContribution> checkpointed(Stream<IndexedContribution> extracted,
+				Checkpoint checkpoint) {
+			Spliterator<IndexedContribution> source = extracted.spliterator();
+			Spliterator<IndexedContribution> spliterator = new Spliterators.AbstractSpliterator<IndexedContribution>(
+					source.estimateSize(), source.characteristics() & (Spliterator.NONNULL | Spliterator.ORDERED)) {
 
-					return contribution;
-				});
+				private IndexedContribution pending;
 
-				return result;
-			} catch (Exception e) {
-				String msg = "Could not retrieve contributions for branch " + branch.getName();
-				throw new ContributionRetrievalException(msg, e);
-			}
+				@Override
+				public boolean tryAdvance(Consumer<? super IndexedContribution> action) {
+					if (pending != null) {
+						checkpoint.emitted(pending.index);
+						pending = null;
+					}
+					if (!source.tryAdvance(next -> pending = next)) {
+						return false;
+					}
+					action.accept(pending);
+					return true;
+				}
+			};
+			return StreamSupport.stream(spliterator, false).onClose(extracted::close).onClose(checkpoint::close);
+		}
+
+		private String createCheckpointScope(List<Ref> tips) {
+			String branches = tips.stream().map(tip -> tip.getName() + "=" + tip.getObjectId().name()).sorted()
+					.collect(Collectors.joining(","));
+			return String.format("window=%s..%s;settings=%s;merges=%s;slop=%s;graph=%s;branches=%s", startExclusive,
+					endInclusive, service.cacheSettingsKey, service.mergePolicy, service.clockSkewSlop,
+					service.commitGraph, branches);
+		}
+
+		private Stream<IndexedContribution> extractSequentially(List<RevCommit> commitsList, int fromIndex,
+				Function<RevCommit, Set<String>> branches) {
+			Worker worker = new Worker();
+			AtomicInteger finishedCommits = new AtomicInteger(fromIndex);
+
+			Stream<IndexedContribution> result = IntStream.range(fromIndex, commitsList.size())
+					.mapToObj(i -> extract(worker, commitsList, i, branches, finishedCommits));
 
+			return result.onClose(worker::close);
 		}
 
-		private Contribution readContributionFromCommit(RevCommit commit, AbstractTreeIterator newTreeParser,
-				AbstractTreeIterator oldTreeParser) {
+		private Stream<IndexedContribution> extractInParallel(List<RevCommit> commitsList, int fromIndex,
+				Function<RevCommit, Set<String>> branches) {
+			info(() -> String.format("Extracting contributions with parallelism %s (%s)",
+					service.extractionParallelism, service.orderedExtraction ? "ordered" : "unordered"));
+
+			Queue<Worker> allWorkers = new ConcurrentLinkedQueue<>();
+			BlockingQueue<Worker> idleWorkers = new LinkedBlockingQueue<>();
+			AtomicInteger finishedCommits = new AtomicInteger(fromIndex);
+
+			Function<Integer, IndexedContribution> extraction = index -> {
+				Worker worker = idleWorkers.poll();
+				if (worker == null) {
+					worker = new Worker();
+					allWorkers.add(worker);
+				}
+				try {
+					return extract(worker, commitsList, index, branches, finishedCommits);
+				} finally {
+					idleWorkers.add(worker);
+				}
+			};
+
+			int maxInFlight = service.extractionParallelism * 2;
+			ParallelMapIterator<Integer, IndexedContribution> iterator = new ParallelMapIterator<>(
+					IntStream.range(fromIndex, commitsList.size()).iterator(), extraction,
+					service.extractionExecutor, maxInFlight, service.extractionParallelism,
+					service.orderedExtraction);
+
+			int characteristics = Spliterator.NONNULL | (service.orderedExtraction ? Spliterator.ORDERED : 0);
+			Stream<IndexedContribution> result = StreamSupport.stream(
+					Spliterators.spliterator(iterator, commitsList.size() - fromIndex, characteristics), false);
+
+			return result.onClose(() -> {
+				iterator.close();
+				allWorkers.forEach(Worker::close);
+			});
+		}
+
+		private IndexedContribution extract(Worker worker, List<RevCommit> commitsList, int index,
+				Function<RevCommit, Set<String>> branches, AtomicInteger finishedCommits) {
+			RevCommit commit = commitsList.get(index);
+
+			BranchContribution contribution = null;
 			try {
-				debug(() -> String.format("Reading contribution from commit %s", commit.name()));
+				if (aggregation == null) {
+					contribution = BranchContribution.of(worker.readContribution(commit), branches.apply(commit));
+				} else {
+					worker.aggregateCommit(commit);
+				}
+				service.metrics.recordCommitExtracted();
+			} catch (Throwable e) {
+				// errors such as running out of memory on a huge object are
+				// isolated, unless the virtual machine itself is broken
+				boolean fatal = e instanceof VirtualMachineError && !(e instanceof OutOfMemoryError);
+				if (service.commitFailureHandler == null || fatal) {
+					throw e;
+				}
+				service.commitFailureHandler.accept(ContributionId.of(commit.name()), e);
+			}
 
-				List<DiffEntry> diff = git.diff().setOldTree(oldTreeParser).setNewTree(newTreeParser).call();
+			logCommitProgress(commitsList.size() - 1, finishedCommits.incrementAndGet());
 
-				debug(() -> String.format("Found %s diff entries for commit %s", diff.size(), commit.name()));
+			return new IndexedContribution(index, contribution);
+		}
 
-				ContributionId id = ContributionId.of(commit.name());
-				String name = commit.getCommitterIdent().getName();
-				String email = commit.getCommitterIdent().getEmailAddress();
-				Contributor contributor = Contributor.of(name, email);
-				Instant commitTime = Instant.ofEpochSecond(commit.getCommitTime());
-				String message = commit.getFullMessage();
+		private void recordBlobCacheStatistics() {
+			if (blobCache == null) {
+				return;
+			}
 
-				Stream<ContributionItem> contributionItems = diff.stream().filter(diffEntry -> {
-					boolean keep = pathFilter.test(diffEntry.getNewPath());
-					if (!keep) {
-						trace(() -> String.format("Skipping path %s", diffEntry.getNewPath()));
-					}
-					return keep;
-				}).map(diffEntry -> toContributionItem(diffEntry, contributor, commitTime));
+			BlobCacheStatistics statistics = BlobCacheStatistics.of(blobCache.getHitCount(),
+					blobCache.getMissCount(), blobCache.getEvictionCount());
+			service.blobCacheHits.add(statistics.getHitCount());
+			service.blobCacheMisses.add(statistics.getMissCount());
+			service.blobCacheEvictions.add(statistics.getEvictionCount());
+			service.metrics.recordBlobCacheAccesses(statistics.getHitCount(), statistics.getMissCount());
+
+			info(() -> String.format("Blob cache: %s", statistics));
+		}
 
-				Builder contributionBuilder = DefaultContribution.newBuilder(id, project, contributor, commitTime)
-						.setMessage(message);
+		private RevFilter createRevFilter() {
+			RevFilter result = createTimeFilter();
+			if (service.mergePolicy == MergePolicy.SKIP) {
+				result = AndRevFilter.create(result, RevFilter.NO_MERGES);
+			}
+			if (service.pathGlobFilter != null) {
+				// evaluated last as it diffs the trees of every commit in the window
+				result = AndRevFilter.create(result, service.pathGlobFilter.toRevFilter());
+			}
+			return result;
+		}
 
-				contributionItems.filter(Objects::nonNull).forEach(contributionBuilder::addContributionItem);
+		private RevFilter createTimeFilter() {
+			// commit times have a resolution of seconds
+			long sinceSeconds = startExclusive.getEpochSecond() + 1;
+			long untilSeconds = endInclusive.getEpochSecond();
+			RevFilter window = CommitTimeRevFilter.between(toCommitTimeMillis(sinceSeconds),
+					toCommitTimeMillis(untilSeconds));
 
-				return contributionBuilder.build();
-			} catch (GitAPIException e) {
-				String msg = "Could not retrieve contributions for commit " + commit.toString();
-				throw new ContributionRetrievalException(msg, e);
+			if (service.clockSkewSlop == null) {
+				return window;
 			}
+
+			long stopBeforeSeconds = sinceSeconds - service.clockSkewSlop.getSeconds();
+			debug(() -> String.format("Walking history back to %s", Instant.ofEpochSecond(stopBeforeSeconds)));
+			return AndRevFilter.create(new CommitTimeStopRevFilter(stopBeforeSeconds), window);
 		}
 
-		private ContributionItem toContributionItem(DiffEntry entry, Contributor contributor, Instant commitTime) {
-			AbbreviatedObjectId oldId = entry.getOldId();
-			AbbreviatedObjectId newId = entry.getNewId();
+		private static long toCommitTimeMillis(long seconds) {
+			long clamped = Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, seconds));
+			return clamped * 1000;
+		}
 
-			try {
-				String path = entry.getNewPath();
+		/**
+		 * Extracts contributions from single commits. Every worker owns its
+		 * own {@link ObjectReader}, {@link RevWalk} and tree parsers which are
+		 * reused for all commits it processes. It must therefore only be used
+		 * by one thread at a time.
+		 */
+		private class Worker implements AutoCloseable {
+
+			private final ObjectReader reader;
+			private final RevWalk walk;
+			private final CanonicalTreeParser oldTreeParser = new CanonicalTreeParser();
+			private final CanonicalTreeParser newTreeParser = new CanonicalTreeParser();
+			private final RenameDetector renameDetector;
+			private final TreeFilter diffFilter;
+			private final MergeResolutions mergeResolutions;
+			private final Map<ObjectId, Blob> batchedBlobs = new HashMap<>();
+			private final StatisticsTable statistics;
+
+			private Worker() {
+				this.reader = repository.newObjectReader();
+				this.walk = new RevWalk(reader);
+				this.diffFilter = service.pathGlobFilter == null ? TreeFilter.ANY_DIFF
+						: AndTreeFilter.create(service.pathGlobFilter.toTreeFilter(), TreeFilter.ANY_DIFF);
+				this.renameDetector = service.renameDetection ? createRenameDetector() : null;
+				this.mergeResolutions = service.mergePolicy == MergePolicy.CONFLICT_RESOLUTIONS
+						? new MergeResolutions(service.pathGlobFilter == null ? TreeFilter.ALL
+								: service.pathGlobFilter.toTreeFilter())
+						: null;
+				this.statistics = aggregation == null ? null : new StatisticsTable();
+			}
 
-				String newContent = "";
-				String oldContent = "";
+			private RenameDetector createRenameDetector() {
+				RenameDetector result = new RenameDetector(repository);
+				result.setRenameScore(service.renameScore);
+				if (service.renameLimit != null) {
+					result.setRenameLimit(service.renameLimit);
+				}
+				return result;
+			}
 
-				if (!newId.name().equals(EMPTY)) {
-					ObjectLoader newLoader = repository.open(newId.toObjectId());
-					byte[] newBytes = newLoader.getBytes();
-					if (RawText.isBinary(newBytes)) {
-						logSkipOfContribution(contributor, commitTime, path);
-						return null;
+			private Contribution readContribution(RevCommit commit) {
+				ContributionCache cache = service.contributionCache;
+				if (cache != null) {
+					ContributionId id = ContributionId.of(commit.name());
+					Contribution cached = cache.get(project, service.cacheSettingsKey, id);
+					service.metrics.recordContributionCacheAccess(cached != null);
+					if (cached != null) {
+						trace(() -> String.format("Found contribution of commit %s in cache", commit.name()));
+						return cached;
 					}
-					RawText rawText = new RawText(newBytes);
-					newContent = rawText.getString(0, rawText.size(), false);
 				}
 
-				if (!oldId.name().equals(EMPTY)) {
-					ObjectLoader oldLoader = repository.open(oldId.toObjectId());
-					byte[] oldBytes = oldLoader.getBytes();
-					if (RawText.isBinary(oldBytes)) {
-						logSkipOfContribution(contributor, commitTime, path);
-						return null;
+				Contribution contribution = extractContribution(commit);
+
+				if (cache != null) {
+					cache.put(service.cacheSettingsKey, contribution);
+				}
+
+				return contribution;
+			}
+
+			private Contribution extractContribution(RevCommit commit) {
+				return readContributionFromCommit(commit, createDiffScan(commit));
+			}
+
+			private void aggregateCommit(RevCommit commit) {
+				try {
+					trace(() -> String.format("Aggregating commit %s", commit.name()));
+
+					long scanStart = startTiming();
+					List<DiffEntry> diff = createDiffScan(commit).scan();
+					recordStage(ExtractionStage.TREE_DIFF, scanStart);
+
+					Contributor contributor = Contributor.of(commit.getCommitterIdent().getName(),
+							commit.getCommitterIdent().getEmailAddress());
+					Instant commitTime = Instant.ofEpochSecond(commit.getCommitTime());
+					int contributorIndex = aggregation.getContributorIndex(contributor.getName(),
+							contributor.getEmail());
+					long bucket = aggregation.getBucket(commit.getCommitTime());
+
+					List<DiffEntry> entries = diff.stream().filter(diffEntry -> pathFilter.test(diffEntry.getNewPath()))
+							.collect(Collectors.toList());
+
+					for (int from = 0; from < entries.size(); from += service.blobBatchSize) {
+						List<DiffEntry> batch = entries.subList(from,
+								Math.min(entries.size(), from + service.blobBatchSize));
+						loadBlobBatch(batch);
+						try {
+							for (DiffEntry entry : batch) {
+								countEntry(entry, contributor, commitTime, contributorIndex, bucket);
+							}
+						} finally {
+							batchedBlobs.clear();
+						}
 					}
-					RawText rawText = new RawText(oldBytes);
-					oldContent = rawText.getString(0, rawText.size(), false);
+				} catch (IOException e) {
+					String msg = "Could not aggregate contributions for commit " + commit.toString();
+					throw new ContributionRetrievalException(msg, e);
 				}
+			}
 
-				trace(() -> String.format("Reading contribution from user %s at %s of %s", contributor.getName(),
-						commitTime, path));
+			private void countEntry(DiffEntry entry, Contributor contributor, Instant commitTime,
+					int contributorIndex, long bucket) {
+				try {
+					String path = entry.getChangeType() == ChangeType.DELETE ? entry.getOldPath() : entry.getNewPath();
 
-				return ContributionItem.of(path, oldContent, newContent);
-			} catch (Exception e) {
-				log.error("Error reading diff entry", e);
-				return null;
+					RawText newText = loadText(entry.getNewId(), contributor, commitTime, path);
+					RawText oldText = newText == null ? null
+							: loadText(entry.getOldId(), contributor, commitTime, path);
+					if (oldText == null) {
+						return;
+					}
+
+					long diffStart = startTiming();
+					aggregation.count(statistics, contributorIndex, bucket, path, oldText, newText);
+					recordStage(ExtractionStage.DIFF, diffStart);
+				} catch (Exception e) {
+					log.error("Error reading diff entry", e);
+				}
 			}
 
-		}
+			private DiffScan createDiffScan(RevCommit commit) {
+				if (mergeResolutions != null && commit.getParentCount() > 1) {
+					return () -> scanResolutions(commit);
+				}
+
+				AbstractTreeIterator oldTree;
+				if (commit.getParentCount() == 0) {
+					oldTree = new EmptyTreeIterator();
+				} else {
+					oldTree = resetTreeParser(oldTreeParser, commit.getParent(0));
+				}
+				AbstractTreeIterator newTree = resetTreeParser(newTreeParser, commit);
+
+				return () -> scan(oldTree, newTree);
+			}
+
+			private List<DiffEntry> scanResolutions(RevCommit commit) throws IOException {
+				List<RevTree> parentTrees = new ArrayList<>();
+				for (RevCommit parent : commit.getParents()) {
+					parentTrees.add(getTree(parent));
+				}
+				return mergeResolutions.scan(reader, parentTrees, getTree(commit));
+			}
+
+			private List<DiffEntry> scan(AbstractTreeIterator oldTreeParser, AbstractTreeIterator newTreeParser)
+					throws IOException {
+				try (TreeWalk treeWalk = new TreeWalk(reader)) {
+					treeWalk.setRecursive(true);
+					treeWalk.setFilter(diffFilter);
+					treeWalk.addTree(oldTreeParser);
+					treeWalk.addTree(newTreeParser);
+					List<DiffEntry> entries = DiffEntry.scan(treeWalk);
+					if (renameDetector == null) {
+						return entries;
+					}
 
-		private static AbstractTreeIterator prepareTreeParser(Repository repository, String objectId) {
-			try (RevWalk walk = new RevWalk(repository)) {
+					renameDetector.reset();
+					renameDetector.addAll(entries);
+					return renameDetector.compute(reader, NullProgressMonitor.INSTANCE);
+				}
+			}
+
+			private Contribution readContributionFromCommit(RevCommit commit, DiffScan diffScan) {
 				try {
-					RevCommit commit;
-					if (objectId.endsWith("~1")) {
+					debug(() -> String.format("Reading contribution from commit %s", commit.name()));
+
+					long scanStart = startTiming();
+					List<DiffEntry> diff = diffScan.scan();
+					recordStage(ExtractionStage.TREE_DIFF, scanStart);
+
+					debug(() -> String.format("Found %s diff entries for commit %s", diff.size(), commit.name()));
+
+					ContributionId id = ContributionId.of(commit.name());
+					String name = commit.getCommitterIdent().getName();
+					String email = commit.getCommitterIdent().getEmailAddress();
+					Contributor contributor = Contributor.of(name, email);
+					Instant commitTime = Instant.ofEpochSecond(commit.getCommitTime());
+					String message = commit.getFullMessage();
+
+					List<DiffEntry> entries = diff.stream().filter(diffEntry -> {
+						boolean keep = pathFilter.test(diffEntry.getNewPath());
+						if (!keep) {
+							trace(() -> String.format("Skipping path %s", diffEntry.getNewPath()));
+						}
+						return keep;
+					}).collect(Collectors.toList());
+
+					DefaultContribution.Builder contributionBuilder = DefaultContribution
+							.newBuilder(id, project, contributor, commitTime).setMessage(message);
+
+					for (int from = 0; from < entries.size(); from += service.blobBatchSize) {
+						List<DiffEntry> batch = entries.subList(from,
+								Math.min(entries.size(), from + service.blobBatchSize));
+						loadBlobBatch(batch);
 						try {
-							commit = walk.parseCommit(repository.resolve(objectId));
-						} catch (Exception e) {
-							return new EmptyTreeIterator();
+							batch.stream().flatMap(diffEntry -> toContributionItems(diffEntry, contributor, commitTime))
+									.forEach(contributionBuilder::addContributionItem);
+						} finally {
+							batchedBlobs.clear();
 						}
-					} else {
-						commit = walk.parseCommit(repository.resolve(objectId));
 					}
 
-					RevTree tree = walk.parseTree(commit.getTree().getId());
+					return contributionBuilder.build();
+				} catch (IOException e) {
+					String msg = "Could not retrieve contributions for commit " + commit.toString();
+					throw new ContributionRetrievalException(msg, e);
+				}
+			}
+
+			private Stream<ContributionItem> toContributionItems(DiffEntry entry, Contributor contributor,
+					Instant commitTime) {
+				AbbreviatedObjectId oldId = entry.getOldId();
+				AbbreviatedObjectId newId = entry.getNewId();
+
+				try {
+					String path = entry.getNewPath();
+
+					RawText newText = loadText(newId, contributor, commitTime, path);
+					if (newText == null) {
+						return Stream.empty();
+					}
 
-					CanonicalTreeParser treeParser = new CanonicalTreeParser();
-					try (ObjectReader reader = repository.newObjectReader()) {
-						treeParser.reset(reader, tree.getId());
+					RawText oldText = loadText(oldId, contributor, commitTime, path);
+					if (oldText == null) {
+						return Stream.empty();
 					}
 
-					walk.dispose();
+					trace(() -> String.format("Reading contribution from user %s at %s of %s", contributor.getName(),
+							commitTime, path));
+
+					if (service.hunks != null) {
+						long diffStart = startTiming();
+						List<ContributionItem> items = service.hunks.toContributionItems(path, oldText, newText);
+						recordStage(ExtractionStage.DIFF, diffStart);
+						return items.stream();
+					}
+
+					long decodeStart = startTiming();
+					String newContent = newText.getString(0, newText.size(), false);
+					String oldContent = oldText.getString(0, oldText.size(), false);
+					recordStage(ExtractionStage.DECODE, decodeStart);
+
+					return Stream.of(ContributionItem.of(path, oldContent, newContent));
+				} catch (Exception e) {
+					log.error("Error reading diff entry", e);
+					return Stream.empty();
+				}
+
+			}
+
+			private RawText loadText(AbbreviatedObjectId id, Contributor contributor, Instant commitTime, String path)
+					throws IOException {
+				if (id.name().equals(EMPTY)) {
+					return RawText.EMPTY_TEXT;
+				}
+
+				Blob blob = loadBlob(id.toObjectId());
+				if (!blob.isText()) {
+					logSkipOfContribution(contributor, commitTime, path, blob);
+					return null;
+				}
+				return blob.getText();
+			}
+
+			private Blob loadBlob(ObjectId id) throws IOException {
+				Blob batched = batchedBlobs.get(id);
+				if (batched != null) {
+					return batched;
+				}
+
+				long loadStart = startTiming();
+				Blob blob = blobCache != null ? blobCache.get(reader, id) : service.blobLoader.load(reader, id);
+				recordStage(ExtractionStage.BLOB_LOAD, loadStart);
+				return blob;
+			}
+
+			private void loadBlobBatch(List<DiffEntry> batch) {
+				if (batch.size() < 2) {
+					return;
+				}
+
+				Set<ObjectId> ids = new LinkedHashSet<>();
+				for (DiffEntry entry : batch) {
+					for (AbbreviatedObjectId id : Arrays.asList(entry.getOldId(), entry.getNewId())) {
+						if (!id.name().equals(EMPTY) && (blobCache == null || !blobCache.contains(id.toObjectId()))) {
+							ids.add(id.toObjectId());
+						}
+					}
+				}
+				if (ids.size() < 2) {
+					return;
+				}
+
+				long loadStart = startTiming();
+				try {
+					batchedBlobs.putAll(service.blobLoader.loadAll(reader, ids));
+				} catch (IOException e) {
+					// blobs that were not batched are loaded one by one
+					debug(() -> String.format("Could not load batch of %s blobs: %s", ids.size(), e));
+				}
+				if (blobCache != null) {
+					batchedBlobs.forEach(blobCache::add);
+				}
+				recordStage(ExtractionStage.BLOB_LOAD, loadStart);
+			}
+
+			private AbstractTreeIterator resetTreeParser(CanonicalTreeParser treeParser, RevCommit commit) {
+				try {
+					treeParser.reset(reader, getTree(commit));
 
 					return treeParser;
 				} catch (Exception e) {
-					String msg = "Could not prepare tree parser for object id " + objectId.toString();
+					String msg = "Could not prepare tree parser for commit " + commit.getName();
 					throw new ContributionRetrievalException(msg, e);
 				}
 			}
+
+			private RevTree getTree(RevCommit commit) throws IOException {
+				RevTree tree = commit.getTree();
+				if (tree == null) {
+					// the commit was not parsed by the walk that found it
+					tree = walk.parseCommit(commit).getTree();
+				}
+				return tree;
+			}
+
+			@Override
+			public void close() {
+				walk.close();
+				reader.close();
+				if (statistics != null) {
+					aggregation.merge(statistics);
+				}
+			}
+
+		}
+
+		/**
+		 * The contribution of the commit at an index of the commits to
+		 * extract, {@code null} if extraction failed.
+		 */
+		private static class IndexedContribution {
+
+			private final int index;
+			private final BranchContribution contribution;
+
+			private IndexedContribution(int index, BranchContribution contribution) {
+				this.index = index;
+				this.contribution = contribution;
+			}
+
+		}
+
+		/**
+		 * Computes the diff entries of a commit.
+		 */
+		private interface DiffScan {
+
+			List<DiffEntry> scan() throws IOException;
+
+		}
+
+		private long startTiming() {
+			return service.metrics == ExtractionMetrics.NOOP ? 0 : System.nanoTime();
+		}
+
+		private void recordStage(ExtractionStage stage, long start) {
+			if (service.metrics != ExtractionMetrics.NOOP) {
+				service.metrics.recordStage(stage, System.nanoTime() - start);
+			}
 		}
 
 		private void info(Supplier<String> info) {
@@ -337,9 +1557,14 @@ public class GitContributionService implements ContributionService {
 			}
 		}
 
-		private void logSkipOfContribution(Contributor contributor, Instant commitTime, String path) {
-			debug(() -> String.format("Skipping contribution from user %s at %s of %s as it is not text based.",
-					contributor.getName(), commitTime, path));
+		private void logSkipOfContribution(Contributor contributor, Instant commitTime, String path, Blob blob) {
+			if (blob.getKind() == Blob.Kind.TOO_LARGE) {
+				debug(() -> String.format("Skipping contribution from user %s at %s of %s as it has %s bytes.",
+						contributor.getName(), commitTime, path, blob.getSize()));
+			} else {
+				debug(() -> String.format("Skipping contribution from user %s at %s of %s as it is not text based.",
+						contributor.getName(), commitTime, path));
+			}
 		}
 
 	}
@@ -0,0 +1,134 @@
+/*
+MIT License
+
+Copyright (c) 2016 Sebastian Janisch
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package org.sjanisch.skillview.git;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import org.eclipse.jgit.diff.DiffAlgorithm;
+import org.eclipse.jgit.diff.Edit;
+import org.eclipse.jgit.diff.EditList;
+import org.eclipse.jgit.diff.RawText;
+import org.eclipse.jgit.diff.RawTextComparator;
+import org.sjanisch.skillview.core.contribution.api.ContributionItem;
+
+/**
+ * Reduces the previous and current content of a file to the hunks that differ
+ * between them, optionally surrounded by a number of unchanged context lines.
+ * <p>
+ * Every pair of corresponding hunks becomes a contribution item of its own, so
+ * that diffing the contents of an item only ever compares the lines of a
+ * single hunk. Concatenating the hunks instead would let a later diff match
+ * lines across hunks, e.g. a line that moved from one hunk to another would
+ * no longer appear changed. Only a fraction of a large file then needs to be
+ * decoded and carried downstream.
+ * <p>
+ * This class is immutable and thread safe.
+ * 
+ * @author sebastianjanisch
+ *
+ */
+class Hunks {
+
+	private final DiffAlgorithm algorithm;
+	private final RawTextComparator comparator;
+	private final int contextLines;
+
+	/**
+	 * 
+	 * @param algorithm
+	 *            algorithm to compute edits with. Must not be {@code null}.
+	 * @param comparator
+	 *            comparator to compare lines with. Must not be {@code null}.
+	 * @param contextLines
+	 *            number of unchanged lines to keep before and after each
+	 *            hunk. Must not be negative.
+	 */
+	Hunks(DiffAlgorithm algorithm, RawTextComparator comparator, int contextLines) {
+		this.algorithm = Objects.requireNonNull(algorithm, "algorithm");
+		this.comparator = Objects.requireNonNull(comparator, "comparator");
+		if (contextLines < 0) {
+			throw new IllegalArgumentException("contextLines must not be negative: " + contextLines);
+		}
+		this.contextLines = contextLines;
+	}
+
+	/**
+	 * 
+	 * @param path
+	 *            must not be {@code null}
+	 * @param previous
+	 *            must not be {@code null}
+	 * @param current
+	 *            must not be {@code null}
+	 * @return one contribution item per pair of changed hunks, in order.
+	 *         Empty if the comparator considers both sides equal. Never
+	 *         {@code null}.
+	 */
+	List<ContributionItem> toContributionItems(String path, RawText previous, RawText current) {
+		EditList edits = algorithm.diff(comparator, previous, current);
+
+		List<ContributionItem> result = new ArrayList<>();
+
+		int i = 0;
+		while (i < edits.size()) {
+			Edit first = edits.get(i);
+			Edit last = first;
+
+			// merge hunks whose context overlaps
+			while (i + 1 < edits.size() && overlaps(last, edits.get(i + 1))) {
+				last = edits.get(++i);
+			}
+			++i;
+
+			int beginA = Math.max(0, first.getBeginA() - contextLines);
+			int endA = Math.min(previous.size(), last.getEndA() + contextLines);
+			int beginB = Math.max(0, first.getBeginB() - contextLines);
+			int endB = Math.min(current.size(), last.getEndB() + contextLines);
+
+			result.add(ContributionItem.of(path, toString(previous, beginA, endA), toString(current, beginB, endB)));
+		}
+
+		return result;
+	}
+
+	private boolean overlaps(Edit edit, Edit next) {
+		// the unchanged gap between two edits is of equal length on both sides
+		return next.getBeginA() - edit.getEndA() <= 2 * contextLines;
+	}
+
+	private static String toString(RawText text, int begin, int end) {
+		if (begin >= end) {
+			return "";
+		}
+		String hunk = text.getString(begin, end, false);
+		if (hunk.charAt(hunk.length() - 1) != '\n') {
+			// the last line of a file may lack its line break
+			return hunk + '\n';
+		}
+		return hunk;
+	}
+
+}
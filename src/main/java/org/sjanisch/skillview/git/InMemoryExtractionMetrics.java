@@ -0,0 +1,343 @@
+/*
+MIT License
+
+Copyright (c) 2016 Sebastian Janisch
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package org.sjanisch.skillview.git;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Accumulates {@link ExtractionMetrics} in memory, e.g. to be logged or
+ * exported periodically.
+ * <p>
+ * Durations of each {@link ExtractionStage stage} are kept in a histogram of
+ * power of two buckets, which bounds memory and keeps recording free of
+ * allocations and locks.
+ * <p>
+ * This class is thread safe.
+ * 
+ * @author sebastianjanisch
+ *
+ */
+public class InMemoryExtractionMetrics implements ExtractionMetrics {
+
+	private final Map<ExtractionStage, StageHistogram> stages = new EnumMap<>(ExtractionStage.class);
+	private final LongAdder bytesInflated = new LongAdder();
+	private final LongAdder binaryBlobsSkipped = new LongAdder();
+	private final LongAdder largeBlobsSkipped = new LongAdder();
+	private final LongAdder blobCacheHits = new LongAdder();
+	private final LongAdder blobCacheMisses = new LongAdder();
+	private final LongAdder contributionCacheHits = new LongAdder();
+	private final LongAdder contributionCacheMisses = new LongAdder();
+	private final LongAdder commitsExtracted = new LongAdder();
+	private final AtomicLong firstCommitNanos = new AtomicLong();
+	private final LongAccumulator lastCommitNanos = new LongAccumulator(Math::max, Long.MIN_VALUE);
+
+	public InMemoryExtractionMetrics() {
+		for (ExtractionStage stage : ExtractionStage.values()) {
+			stages.put(stage, new StageHistogram());
+		}
+	}
+
+	@Override
+	public void recordStage(ExtractionStage stage, long nanos) {
+		stages.get(stage).record(nanos);
+	}
+
+	@Override
+	public void recordBytesInflated(long bytes) {
+		bytesInflated.add(bytes);
+	}
+
+	@Override
+	public void recordBinaryBlobSkipped() {
+		binaryBlobsSkipped.increment();
+	}
+
+	@Override
+	public void recordLargeBlobSkipped() {
+		largeBlobsSkipped.increment();
+	}
+
+	@Override
+	public void recordBlobCacheAccesses(long hits, long misses) {
+		blobCacheHits.add(hits);
+		blobCacheMisses.add(misses);
+	}
+
+	@Override
+	public void recordContributionCacheAccess(boolean hit) {
+		if (hit) {
+			contributionCacheHits.increment();
+		} else {
+			contributionCacheMisses.increment();
+		}
+	}
+
+	@Override
+	public void recordCommitExtracted() {
+		long now = System.nanoTime();
+		if (firstCommitNanos.get() == 0) {
+			firstCommitNanos.compareAndSet(0, now);
+		}
+		lastCommitNanos.accumulate(now);
+		commitsExtracted.increment();
+	}
+
+	/**
+	 * 
+	 * @param stage
+	 *            must not be {@code null}
+	 * @return snapshot of the durations recorded for given stage. Never
+	 *         {@code null}.
+	 */
+	public StageStatistics getStageStatistics(ExtractionStage stage) {
+		Objects.requireNonNull(stage, "stage");
+
+		return stages.get(stage).snapshot();
+	}
+
+	/**
+	 * 
+	 * @return number of bytes of blob content that were inflated
+	 */
+	public long getBytesInflated() {
+		return bytesInflated.sum();
+	}
+
+	/**
+	 * 
+	 * @return number of blobs skipped as binary
+	 */
+	public long getBinaryBlobsSkipped() {
+		return binaryBlobsSkipped.sum();
+	}
+
+	/**
+	 * 
+	 * @return number of blobs skipped due to their size
+	 */
+	public long getLargeBlobsSkipped() {
+		return largeBlobsSkipped.sum();
+	}
+
+	/**
+	 * 
+	 * @return number of blobs found in blob caches
+	 */
+	public long getBlobCacheHits() {
+		return blobCacheHits.sum();
+	}
+
+	/**
+	 * 
+	 * @return number of blobs loaded into blob caches
+	 */
+	public long getBlobCacheMisses() {
+		return blobCacheMisses.sum();
+	}
+
+	/**
+	 * 
+	 * @return number of contributions found in the contribution cache
+	 */
+	public long getContributionCacheHits() {
+		return contributionCacheHits.sum();
+	}
+
+	/**
+	 * 
+	 * @return number of contributions that were not found in the contribution
+	 *         cache
+	 */
+	public long getContributionCacheMisses() {
+		return contributionCacheMisses.sum();
+	}
+
+	/**
+	 * 
+	 * @return number of commits whose contribution was retrieved
+	 */
+	public long getCommitsExtracted() {
+		return commitsExtracted.sum();
+	}
+
+	/**
+	 * 
+	 * @return average number of commits retrieved per second between the
+	 *         first and the last one, {@code 0} if fewer than two commits
+	 *         were retrieved
+	 */
+	public double getCommitsPerSecond() {
+		long commits = commitsExtracted.sum();
+		long elapsedNanos = lastCommitNanos.get() - firstCommitNanos.get();
+		if (commits < 2 || elapsedNanos <= 0) {
+			return 0;
+		}
+		return (commits - 1) / (elapsedNanos / 1e9);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder result = new StringBuilder("InMemoryExtractionMetrics [");
+		for (ExtractionStage stage : ExtractionStage.values()) {
+			result.append(stage).append('=').append(getStageStatistics(stage)).append(", ");
+		}
+		result.append(String.format("bytesInflated=%s, binaryBlobsSkipped=%s, largeBlobsSkipped=%s, ",
+				getBytesInflated(), getBinaryBlobsSkipped(), getLargeBlobsSkipped()));
+		result.append(String.format("blobCacheHits=%s, blobCacheMisses=%s, ", getBlobCacheHits(),
+				getBlobCacheMisses()));
+		result.append(String.format("contributionCacheHits=%s, contributionCacheMisses=%s, ",
+				getContributionCacheHits(), getContributionCacheMisses()));
+		result.append(String.format("commitsExtracted=%s, commitsPerSecond=%.2f]", getCommitsExtracted(),
+				getCommitsPerSecond()));
+		return result.toString();
+	}
+
+	/**
+	 * Snapshot of the durations recorded for a stage.
+	 * <p>
+	 * This class is immutable and thread safe.
+	 * 
+	 * @author sebastianjanisch
+	 *
+	 */
+	public static final class StageStatistics {
+
+		private final long count;
+		private final long totalNanos;
+		private final long maxNanos;
+		private final long[] buckets;
+
+		private StageStatistics(long count, long totalNanos, long maxNanos, long[] buckets) {
+			this.count = count;
+			this.totalNanos = totalNanos;
+			this.maxNanos = maxNanos;
+			this.buckets = buckets;
+		}
+
+		/**
+		 * 
+		 * @return number of recorded durations
+		 */
+		public long getCount() {
+			return count;
+		}
+
+		/**
+		 * 
+		 * @return sum of all recorded durations in nanoseconds
+		 */
+		public long getTotalNanos() {
+			return totalNanos;
+		}
+
+		/**
+		 * 
+		 * @return longest recorded duration in nanoseconds, {@code 0} if none
+		 *         was recorded
+		 */
+		public long getMaxNanos() {
+			return maxNanos;
+		}
+
+		/**
+		 * 
+		 * @return mean duration in nanoseconds, {@code 0} if none was
+		 *         recorded
+		 */
+		public double getMeanNanos() {
+			return count == 0 ? 0 : totalNanos / (double) count;
+		}
+
+		/**
+		 * 
+		 * @param percentile
+		 *            between {@code 0} and {@code 100}
+		 * @return upper bound of the duration in nanoseconds below which
+		 *         given percentage of durations lie, accurate up to a factor
+		 *         of two. {@code 0} if none was recorded.
+		 */
+		public long getPercentileNanos(double percentile) {
+			if (percentile < 0 || percentile > 100) {
+				throw new IllegalArgumentException("percentile must be between 0 and 100: " + percentile);
+			}
+			long threshold = (long) Math.ceil(count * percentile / 100);
+			long seen = 0;
+			for (int bucket = 0; bucket < buckets.length; ++bucket) {
+				seen += buckets[bucket];
+				if (seen >= threshold && seen > 0) {
+					return Math.min(maxNanos, bucket == 63 ? Long.MAX_VALUE : (1L << bucket) - 1);
+				}
+			}
+			return maxNanos;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("[count=%s, totalMillis=%.2f, meanMicros=%.2f, p99Micros=%.2f, maxMicros=%.2f]",
+					count, totalNanos / 1e6, getMeanNanos() / 1e3, getPercentileNanos(99) / 1e3, maxNanos / 1e3);
+		}
+
+	}
+
+	/**
+	 * Counts durations in buckets of powers of two, where bucket {@code i}
+	 * holds durations of less than {@code 2^i} nanoseconds.
+	 */
+	private static class StageHistogram {
+
+		private final LongAdder[] buckets = new LongAdder[64];
+		private final LongAdder count = new LongAdder();
+		private final LongAdder totalNanos = new LongAdder();
+		private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+		private StageHistogram() {
+			for (int i = 0; i < buckets.length; ++i) {
+				buckets[i] = new LongAdder();
+			}
+		}
+
+		private void record(long nanos) {
+			long duration = Math.max(0, nanos);
+			buckets[Math.min(63, 64 - Long.numberOfLeadingZeros(duration))].increment();
+			count.increment();
+			totalNanos.add(duration);
+			maxNanos.accumulate(duration);
+		}
+
+		private StageStatistics snapshot() {
+			long[] counts = new long[buckets.length];
+			for (int i = 0; i < buckets.length; ++i) {
+				counts[i] = buckets[i].sum();
+			}
+			return new StageStatistics(count.sum(), totalNanos.sum(), maxNanos.get(), counts);
+		}
+
+	}
+
+}
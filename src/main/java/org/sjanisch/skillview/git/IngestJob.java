@@ -0,0 +1,213 @@
+/*
+MIT License
+
+Copyright (c) 2016 Sebastian Janisch
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package org.sjanisch.skillview.git;
+
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.Optional;
+
+import org.eclipse.jgit.api.CloneCommand;
+import org.sjanisch.skillview.core.contribution.api.Project;
+
+/**
+ * A repository to be ingested by an {@link IngestScheduler}, together with
+ * hints that the scheduler can prioritize by.
+ * <p>
+ * This class is immutable and thread safe, but the clone command it holds is
+ * not. Jobs must therefore not be shared between schedulers that run
+ * concurrently.
+ * 
+ * @author sebastianjanisch
+ *
+ */
+public final class IngestJob {
+
+	/**
+	 * Orders jobs by ascending {@link #getEstimatedSize() estimated size}.
+	 * Use its {@link Comparator#reversed() reverse} to start with the largest
+	 * repositories instead.
+	 */
+	public static final Comparator<IngestJob> BY_ESTIMATED_SIZE = Comparator.comparingLong(IngestJob::getEstimatedSize);
+
+	/**
+	 * Orders jobs that have never been ingested first, followed by those that
+	 * were ingested longest ago.
+	 */
+	public static final Comparator<IngestJob> BY_STALENESS = Comparator.comparing(job -> job.lastIngested,
+			Comparator.nullsFirst(Comparator.naturalOrder()));
+
+	private final CloneCommand cloneCommand;
+	private final Project project;
+	private final long estimatedSize;
+	private final Instant lastIngested;
+	private final FetchPlan fetchPlan;
+
+	private IngestJob(Builder builder) {
+		this.cloneCommand = builder.cloneCommand;
+		this.project = builder.project;
+		this.estimatedSize = builder.estimatedSize;
+		this.lastIngested = builder.lastIngested;
+		this.fetchPlan = builder.fetchPlan;
+	}
+
+	/**
+	 * 
+	 * @param cloneCommand
+	 *            a clone command that is configured to access the repository.
+	 *            Must not be {@code null}.
+	 * @param project
+	 *            the project that the repository relates to. Must not be
+	 *            {@code null}.
+	 * @return a builder for a job without size or staleness hints. Never
+	 *         {@code null}.
+	 */
+	public static Builder newBuilder(CloneCommand cloneCommand, Project project) {
+		return new Builder(cloneCommand, project);
+	}
+
+	/**
+	 * 
+	 * @return the clone command. Never {@code null}.
+	 */
+	public CloneCommand getCloneCommand() {
+		return cloneCommand;
+	}
+
+	/**
+	 * 
+	 * @return the project. Never {@code null}.
+	 */
+	public Project getProject() {
+		return project;
+	}
+
+	/**
+	 * 
+	 * @return estimated size of a clone in bytes, {@code 0} if unknown
+	 */
+	public long getEstimatedSize() {
+		return estimatedSize;
+	}
+
+	/**
+	 * 
+	 * @return time of the last ingest, if any. Never {@code null}.
+	 */
+	public Optional<Instant> getLastIngested() {
+		return Optional.ofNullable(lastIngested);
+	}
+
+	/**
+	 * 
+	 * @return what is cloned. Never {@code null}.
+	 */
+	public FetchPlan getFetchPlan() {
+		return fetchPlan;
+	}
+
+	@Override
+	public String toString() {
+		return "IngestJob [project=" + project + ", estimatedSize=" + estimatedSize + ", lastIngested="
+				+ lastIngested + ", fetchPlan=" + fetchPlan + "]";
+	}
+
+	/**
+	 * Builder for {@link IngestJob}.
+	 * <p>
+	 * This class is not thread safe.
+	 * 
+	 * @author sebastianjanisch
+	 *
+	 */
+	public static class Builder {
+
+		private final CloneCommand cloneCommand;
+		private final Project project;
+		private long estimatedSize;
+		private Instant lastIngested;
+		private FetchPlan fetchPlan = FetchPlan.DEFAULT;
+
+		private Builder(CloneCommand cloneCommand, Project project) {
+			this.cloneCommand = Objects.requireNonNull(cloneCommand, "cloneCommand");
+			this.project = Objects.requireNonNull(project, "project");
+		}
+
+		/**
+		 * The estimated size is reserved against the
+		 * {@link IngestScheduler.Builder#setMaxDiskUsage(long) disk budget}
+		 * before cloning, and replaced by the actual size once cloned. Jobs of
+		 * unknown size are cloned one at a time if the budget is limited.
+		 * 
+		 * @param estimatedSize
+		 *            estimated size of a clone in bytes. Must not be
+		 *            negative. Defaults to {@code 0}, i.e. unknown.
+		 * @return this builder
+		 */
+		public Builder setEstimatedSize(long estimatedSize) {
+			if (estimatedSize < 0) {
+				throw new IllegalArgumentException("estimatedSize must not be negative: " + estimatedSize);
+			}
+			this.estimatedSize = estimatedSize;
+			return this;
+		}
+
+		/**
+		 * 
+		 * @param lastIngested
+		 *            time of the last ingest. Can be {@code null} if the
+		 *            repository has never been ingested, which is the
+		 *            default.
+		 * @return this builder
+		 */
+		public Builder setLastIngested(Instant lastIngested) {
+			this.lastIngested = lastIngested;
+			return this;
+		}
+
+		/**
+		 * A restricted fetch plan reduces the size of the clone, which the
+		 * {@link #setEstimatedSize(long) estimated size} should reflect.
+		 * 
+		 * @param fetchPlan
+		 *            restricts what is cloned. Must not be {@code null}.
+		 *            Defaults to {@link FetchPlan#DEFAULT}.
+		 * @return this builder
+		 */
+		public Builder setFetchPlan(FetchPlan fetchPlan) {
+			this.fetchPlan = Objects.requireNonNull(fetchPlan, "fetchPlan");
+			return this;
+		}
+
+		/**
+		 * 
+		 * @return new instance. Never {@code null}.
+		 */
+		public IngestJob build() {
+			return new IngestJob(this);
+		}
+
+	}
+
+}
@@ -0,0 +1,505 @@
+/*
+MIT License
+
+Copyright (c) 2016 Sebastian Janisch
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package org.sjanisch.skillview.git;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.eclipse.jgit.lib.Repository;
+import org.sjanisch.skillview.core.contribution.api.Contribution;
+import org.sjanisch.skillview.core.contribution.api.ContributionRetrievalException;
+import org.sjanisch.skillview.core.contribution.api.ContributionService;
+import org.sjanisch.skillview.core.contribution.api.Project;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Implements the {@link ContributionService} over many repositories at once,
+ * each of which is cloned into a temporary folder (see
+ * {@link TemporaryCloneGitFileRepository}) for the duration of its
+ * extraction.
+ * <p>
+ * Jobs are started in {@link Builder#setPriority(Comparator) priority} order
+ * and share global limits on the number of concurrent clones, the number of
+ * concurrent extractions and the disk space taken up by clones. The
+ * contributions of all jobs are merged into a single stream through a bounded
+ * buffer, so that a slow consumer throttles extraction.
+ * <p>
+ * A job that fails is reported to the {@link Builder#setFailureHandler(BiConsumer)
+ * failure handler} and does not affect other jobs.
+ * <p>
+ * This class is thread safe. Limits apply across all concurrent retrievals of
+ * the same instance.
+ * 
+ * @author sebastianjanisch
+ *
+ */
+public class IngestScheduler implements ContributionService {
+
+	private static final Logger log = LoggerFactory.getLogger(IngestScheduler.class);
+
+	private static final Object END = new Object();
+
+	private static final long OFFER_TIMEOUT_MILLIS = 100;
+
+	private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+	private final List<IngestJob> jobs;
+	private final int maxConcurrentExtractions;
+	private final int bufferSize;
+	private final BiFunction<Supplier<Repository>, Project, ContributionService> serviceFactory;
+	private final BiConsumer<IngestJob, RuntimeException> failureHandler;
+	private final ExtractionMetrics metrics;
+
+	private final Semaphore clonePermits;
+	private final Semaphore extractionPermits;
+	private final DiskBudget diskBudget;
+
+	private IngestScheduler(Builder builder) {
+		List<IngestJob> jobs = new ArrayList<>(builder.jobs);
+		jobs.sort(builder.priority);
+		this.jobs = Collections.unmodifiableList(jobs);
+		this.maxConcurrentExtractions = builder.maxConcurrentExtractions;
+		this.bufferSize = builder.bufferSize;
+		this.serviceFactory = builder.serviceFactory;
+		this.failureHandler = builder.failureHandler;
+		this.metrics = builder.metrics;
+		this.clonePermits = new Semaphore(builder.maxConcurrentClones, true);
+		this.extractionPermits = new Semaphore(builder.maxConcurrentExtractions, true);
+		this.diskBudget = new DiskBudget(builder.maxDiskUsage);
+	}
+
+	/**
+	 * 
+	 * @param jobs
+	 *            the repositories to ingest. Must not be {@code null} and must
+	 *            not contain {@code null}.
+	 * @return a builder for a scheduler with default limits. Never
+	 *         {@code null}.
+	 */
+	public static Builder newBuilder(Collection<IngestJob> jobs) {
+		return new Builder(jobs);
+	}
+
+	/**
+	 * Retrieves the contributions of all jobs. Contributions of different
+	 * repositories are interleaved in no particular order.
+	 * 
+	 * @return stream of contributions. Must be closed to stop outstanding
+	 *         jobs. Never {@code null}.
+	 */
+	@Override
+	public Stream<Contribution> retrieveContributions(Instant startExclusive, Instant endInclusive) {
+		Objects.requireNonNull(startExclusive, "startExclusive");
+		Objects.requireNonNull(endInclusive, "endInclusive");
+
+		if (jobs.isEmpty()) {
+			return Stream.empty();
+		}
+
+		Ingest ingest = new Ingest(startExclusive, endInclusive);
+		ingest.start();
+
+		Spliterator<Contribution> spliterator = new Spliterators.AbstractSpliterator<Contribution>(Long.MAX_VALUE,
+				Spliterator.NONNULL) {
+			@Override
+			public boolean tryAdvance(Consumer<? super Contribution> action) {
+				Contribution next = ingest.take();
+				if (next == null) {
+					return false;
+				}
+				action.accept(next);
+				return true;
+			}
+		};
+		return StreamSupport.stream(spliterator, false).onClose(ingest::close);
+	}
+
+	/**
+	 * 
+	 * @return bytes currently reserved by clones across all retrievals
+	 */
+	public long getDiskUsage() {
+		return diskBudget.getReservedBytes();
+	}
+
+	private static void logFailure(IngestJob job, RuntimeException e) {
+		log.error(String.format("Project %s: %s", job.getProject().getValue(), "Ingest failed"), e);
+	}
+
+	/**
+	 * Builder for {@link IngestScheduler}.
+	 * <p>
+	 * This class is not thread safe.
+	 * 
+	 * @author sebastianjanisch
+	 *
+	 */
+	public static class Builder {
+
+		private final Collection<IngestJob> jobs;
+		private int maxConcurrentClones = 2;
+		private int maxConcurrentExtractions = Runtime.getRuntime().availableProcessors();
+		private long maxDiskUsage = Long.MAX_VALUE;
+		private Comparator<IngestJob> priority = IngestJob.BY_STALENESS;
+		private int bufferSize = 1024;
+		private BiFunction<Supplier<Repository>, Project, ContributionService> serviceFactory;
+		private BiConsumer<IngestJob, RuntimeException> failureHandler = IngestScheduler::logFailure;
+		private ExtractionMetrics metrics = ExtractionMetrics.NOOP;
+
+		private Builder(Collection<IngestJob> jobs) {
+			Objects.requireNonNull(jobs, "jobs");
+			jobs.forEach(job -> Objects.requireNonNull(job, "job"));
+			this.jobs = new ArrayList<>(jobs);
+			this.serviceFactory = GitContributionService::new;
+		}
+
+		/**
+		 * 
+		 * @param maxConcurrentClones
+		 *            maximum number of clones in progress at any time. Must be
+		 *            positive. Defaults to {@code 2}.
+		 * @return this builder
+		 */
+		public Builder setMaxConcurrentClones(int maxConcurrentClones) {
+			if (maxConcurrentClones < 1) {
+				throw new IllegalArgumentException("maxConcurrentClones must be positive: " + maxConcurrentClones);
+			}
+			this.maxConcurrentClones = maxConcurrentClones;
+			return this;
+		}
+
+		/**
+		 * Each job occupies one thread from the start of its clone until its
+		 * extraction completes.
+		 * 
+		 * @param maxConcurrentExtractions
+		 *            maximum number of jobs in progress at any time. Must be
+		 *            positive. Defaults to the number of available processors.
+		 * @return this builder
+		 */
+		public Builder setMaxConcurrentExtractions(int maxConcurrentExtractions) {
+			if (maxConcurrentExtractions < 1) {
+				String msg = "maxConcurrentExtractions must be positive: " + maxConcurrentExtractions;
+				throw new IllegalArgumentException(msg);
+			}
+			this.maxConcurrentExtractions = maxConcurrentExtractions;
+			return this;
+		}
+
+		/**
+		 * Before cloning, a job reserves its {@link IngestJob#getEstimatedSize()
+		 * estimated size} and waits until it fits into the budget. Once
+		 * cloned, the reservation is replaced by the actual size on disk and
+		 * released after the clone has been deleted. A job of unknown size
+		 * waits until the budget is not used up, and holds back all other jobs
+		 * until it is cloned.
+		 * 
+		 * @param maxDiskUsage
+		 *            maximum number of bytes taken up by clones. Must be
+		 *            positive. Unlimited by default.
+		 * @return this builder
+		 */
+		public Builder setMaxDiskUsage(long maxDiskUsage) {
+			if (maxDiskUsage < 1) {
+				throw new IllegalArgumentException("maxDiskUsage must be positive: " + maxDiskUsage);
+			}
+			this.maxDiskUsage = maxDiskUsage;
+			return this;
+		}
+
+		/**
+		 * 
+		 * @param priority
+		 *            order in which jobs are started, e.g.
+		 *            {@link IngestJob#BY_ESTIMATED_SIZE} or
+		 *            {@link IngestJob#BY_STALENESS}. Must not be {@code null}.
+		 *            Defaults to {@link IngestJob#BY_STALENESS}.
+		 * @return this builder
+		 */
+		public Builder setPriority(Comparator<IngestJob> priority) {
+			this.priority = Objects.requireNonNull(priority, "priority");
+			return this;
+		}
+
+		/**
+		 * 
+		 * @param bufferSize
+		 *            maximum number of contributions extracted ahead of the
+		 *            consumer per retrieval. Must be positive. Defaults to
+		 *            {@code 1024}.
+		 * @return this builder
+		 */
+		public Builder setBufferSize(int bufferSize) {
+			if (bufferSize < 1) {
+				throw new IllegalArgumentException("bufferSize must be positive: " + bufferSize);
+			}
+			this.bufferSize = bufferSize;
+			return this;
+		}
+
+		/**
+		 * 
+		 * @param serviceFactory
+		 *            creates the service that extracts the contributions of a
+		 *            single job from given repository supplier, e.g. a
+		 *            {@link GitContributionService#newBuilder(Supplier, Project)
+		 *            configured} {@link GitContributionService}. The supplier
+		 *            clones on first access and must be accessed at most
+		 *            once. Must not be {@code null}.
+		 * @return this builder
+		 */
+		public Builder setServiceFactory(
+				BiFunction<Supplier<Repository>, Project, ContributionService> serviceFactory) {
+			this.serviceFactory = Objects.requireNonNull(serviceFactory, "serviceFactory");
+			return this;
+		}
+
+		/**
+		 * 
+		 * @param failureHandler
+		 *            invoked with jobs that failed. Must not be {@code null}.
+		 *            Defaults to logging the failure.
+		 * @return this builder
+		 */
+		public Builder setFailureHandler(BiConsumer<IngestJob, RuntimeException> failureHandler) {
+			this.failureHandler = Objects.requireNonNull(failureHandler, "failureHandler");
+			return this;
+		}
+
+		/**
+		 * Only the {@link ExtractionStage#CLONE clone} stage is reported by
+		 * the scheduler. Pass the same metrics to the services created by the
+		 * {@link #setServiceFactory(BiFunction) service factory} to cover the
+		 * remaining stages.
+		 * 
+		 * @param metrics
+		 *            receives the duration of every clone, not counting the
+		 *            wait for a clone permit. Must not be {@code null}.
+		 *            Defaults to {@link ExtractionMetrics#NOOP}.
+		 * @return this builder
+		 */
+		public Builder setMetrics(ExtractionMetrics metrics) {
+			this.metrics = Objects.requireNonNull(metrics, "metrics");
+			return this;
+		}
+
+		/**
+		 * 
+		 * @return new instance. Never {@code null}.
+		 */
+		public IngestScheduler build() {
+			return new IngestScheduler(this);
+		}
+
+	}
+
+	/**
+	 * A single retrieval across all jobs.
+	 */
+	private class Ingest {
+
+		private final Instant startExclusive;
+		private final Instant endInclusive;
+		private final BlockingQueue<Object> buffer = new ArrayBlockingQueue<>(bufferSize);
+		private final AtomicInteger remainingJobs = new AtomicInteger(jobs.size());
+		private final ExecutorService executor;
+
+		private volatile boolean closed;
+		private boolean ended;
+
+		private Ingest(Instant startExclusive, Instant endInclusive) {
+			this.startExclusive = startExclusive;
+			this.endInclusive = endInclusive;
+			this.executor = Executors.newFixedThreadPool(Math.min(maxConcurrentExtractions, jobs.size()), r -> {
+				Thread thread = new Thread(r, "skill-view-ingest-" + THREAD_COUNTER.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+
+		private void start() {
+			jobs.forEach(job -> executor.execute(() -> run(job)));
+			executor.shutdown();
+		}
+
+		private Contribution take() {
+			if (ended) {
+				return null;
+			}
+
+			Object next;
+			try {
+				next = buffer.take();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new ContributionRetrievalException("Interrupted while waiting for contributions", e);
+			}
+
+			if (next == END) {
+				ended = true;
+				return null;
+			}
+			return (Contribution) next;
+		}
+
+		private void close() {
+			closed = true;
+			buffer.clear();
+		}
+
+		private void run(IngestJob job) {
+			try {
+				if (!closed) {
+					ingest(job);
+				}
+			} catch (RuntimeException e) {
+				if (!closed) {
+					failureHandler.accept(job, e);
+				}
+			} finally {
+				if (remainingJobs.decrementAndGet() == 0) {
+					offer(END);
+				}
+			}
+		}
+
+		private void ingest(IngestJob job) {
+			acquire(extractionPermits);
+			try {
+				if (closed) {
+					return;
+				}
+				long estimatedSize = job.getEstimatedSize();
+				diskBudget.reserve(estimatedSize);
+				AtomicReference<Repository> repository = new AtomicReference<>();
+				try {
+					if (closed) {
+						return;
+					}
+					Supplier<Repository> repositorySupplier = () -> {
+						Repository cloned = clone(job);
+						long actualSize = TemporaryCloneGitFileRepository.getCloneSize(cloned);
+						diskBudget.replace(estimatedSize, actualSize);
+						// the clone is deleted in the background after it
+						// has been closed
+						TemporaryCloneGitFileRepository.whenDeleted(cloned, () -> diskBudget.release(actualSize));
+						repository.set(cloned);
+						return cloned;
+					};
+
+					ContributionService service = serviceFactory.apply(repositorySupplier, job.getProject());
+					Stream<Contribution> contributions;
+					try {
+						contributions = service.retrieveContributions(startExclusive, endInclusive);
+					} catch (RuntimeException e) {
+						if (repository.get() != null) {
+							repository.get().close();
+						}
+						throw e;
+					}
+
+					try (Stream<Contribution> closeable = contributions) {
+						Iterator<Contribution> iterator = closeable.iterator();
+						while (!closed && iterator.hasNext()) {
+							offer(iterator.next());
+						}
+					}
+				} finally {
+					if (repository.get() == null) {
+						diskBudget.cancel(estimatedSize);
+					}
+				}
+			} finally {
+				extractionPermits.release();
+			}
+		}
+
+		private Repository clone(IngestJob job) {
+			acquire(clonePermits);
+			try {
+				if (closed) {
+					// not reported, since the ingest is closed
+					String msg = "Ingest closed before cloning " + job.getProject().getValue();
+					throw new ContributionRetrievalException(msg);
+				}
+				long start = System.nanoTime();
+				try {
+					return TemporaryCloneGitFileRepository.createTemporaryRepository(job.getCloneCommand(),
+							job.getFetchPlan());
+				} finally {
+					metrics.recordStage(ExtractionStage.CLONE, System.nanoTime() - start);
+				}
+			} finally {
+				clonePermits.release();
+			}
+		}
+
+		private void offer(Object element) {
+			try {
+				while (!closed) {
+					if (buffer.offer(element, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+						return;
+					}
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new ContributionRetrievalException("Interrupted while waiting for consumer", e);
+			}
+		}
+
+	}
+
+	private static void acquire(Semaphore permits) {
+		try {
+			permits.acquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ContributionRetrievalException("Interrupted while waiting for permit", e);
+		}
+	}
+
+}
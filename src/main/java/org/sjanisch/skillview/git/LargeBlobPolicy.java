@@ -0,0 +1,49 @@
+/*
+MIT License
+
+Copyright (c) 2016 Sebastian Janisch
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package org.sjanisch.skillview.git;
+
+/**
+ * Determines how blobs are treated that are
+ * {@link GitContributionService.Builder#setLargeBlobSize(long) large}, or that
+ * JGit considers large, i.e. that exceed its stream file threshold and are
+ * therefore not held in memory by JGit.
+ * 
+ * @author sebastianjanisch
+ *
+ */
+public enum LargeBlobPolicy {
+
+	/**
+	 * Large blobs are skipped without reading their content.
+	 */
+	SKIP,
+
+	/**
+	 * Large blobs are classified by streaming their first few kilobytes.
+	 * Binary blobs are then skipped, text blobs are streamed into a single
+	 * array to be diffed.
+	 */
+	STREAM
+
+}
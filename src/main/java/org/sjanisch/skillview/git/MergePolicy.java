@@ -0,0 +1,64 @@
+/*
+MIT License
+
+Copyright (c) 2016 Sebastian Janisch
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package org.sjanisch.skillview.git;
+
+/**
+ * Determines how merge commits, i.e. commits with more than one parent, are
+ * turned into contributions.
+ * 
+ * @author sebastianjanisch
+ *
+ */
+public enum MergePolicy {
+
+	/**
+	 * Merge commits are diffed against their first parent, like any other
+	 * commit. The contribution of a merge therefore contains everything that
+	 * was merged in, even if the merged commits are reported themselves.
+	 */
+	FIRST_PARENT_DIFF,
+
+	/**
+	 * Merge commits are not reported. Their parents are still walked, so that
+	 * the merged commits are reported individually.
+	 */
+	SKIP,
+
+	/**
+	 * Only commits on the first parent chain of each branch are reported,
+	 * each diffed against its first parent. Commits that were merged in from
+	 * other branches are not reported individually but as part of their
+	 * merge commit.
+	 */
+	FIRST_PARENT_ONLY,
+
+	/**
+	 * Merge commits only report files whose merged content differs from the
+	 * content in every parent, i.e. conflict resolutions and other changes
+	 * made during the merge, diffed against the first parent. Merged commits
+	 * are reported individually.
+	 */
+	CONFLICT_RESOLUTIONS
+
+}
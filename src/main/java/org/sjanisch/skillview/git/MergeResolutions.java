@@ -0,0 +1,165 @@
+/*
+MIT License
+
+Copyright (c) 2016 Sebastian Janisch
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package org.sjanisch.skillview.git;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.lib.AbbreviatedObjectId;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.AndTreeFilter;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+
+/**
+ * Finds the files of a merge commit whose content differs from the content in
+ * every parent, similar to the combined diff of {@code git diff-tree --cc}.
+ * Files that the merge took over unchanged from any parent are omitted, so
+ * that only conflict resolutions and other changes made during the merge
+ * remain.
+ * <p>
+ * Subtrees that equal the subtree of any parent are not walked.
+ * <p>
+ * This class is immutable and thread safe.
+ * 
+ * @author sebastianjanisch
+ *
+ */
+class MergeResolutions {
+
+	private final TreeFilter pathFilter;
+
+	/**
+	 * 
+	 * @param pathFilter
+	 *            filter of paths to consider. Must not be {@code null}.
+	 */
+	MergeResolutions(TreeFilter pathFilter) {
+		this.pathFilter = Objects.requireNonNull(pathFilter, "pathFilter");
+	}
+
+	/**
+	 * 
+	 * @param reader
+	 *            must not be {@code null}
+	 * @param parentTrees
+	 *            trees of all parents, first parent first. Must not be
+	 *            {@code null}.
+	 * @param mergeTree
+	 *            tree of the merge commit. Must not be {@code null}.
+	 * @return entries of the resolved files, diffed against the first parent.
+	 *         Never {@code null}.
+	 * @throws IOException
+	 *             if the trees cannot be read
+	 */
+	List<DiffEntry> scan(ObjectReader reader, List<? extends AnyObjectId> parentTrees, AnyObjectId mergeTree)
+			throws IOException {
+		Objects.requireNonNull(reader, "reader");
+		Objects.requireNonNull(parentTrees, "parentTrees");
+		Objects.requireNonNull(mergeTree, "mergeTree");
+
+		try (TreeWalk treeWalk = new TreeWalk(reader)) {
+			treeWalk.setRecursive(true);
+			treeWalk.setFilter(pathFilter == TreeFilter.ALL ? DiffersFromAllParentsFilter.INSTANCE
+					: AndTreeFilter.create(pathFilter.clone(), DiffersFromAllParentsFilter.INSTANCE));
+			for (AnyObjectId parentTree : parentTrees) {
+				treeWalk.addTree(parentTree);
+			}
+			int merged = treeWalk.addTree(mergeTree);
+
+			List<DiffEntry> result = new ArrayList<>();
+			while (treeWalk.next()) {
+				result.add(new ResolutionEntry(treeWalk.getPathString(), treeWalk, 0, merged));
+			}
+			return result;
+		}
+	}
+
+	private static class ResolutionEntry extends DiffEntry {
+
+		private ResolutionEntry(String path, TreeWalk treeWalk, int oldTree, int newTree) {
+			oldMode = treeWalk.getFileMode(oldTree);
+			newMode = treeWalk.getFileMode(newTree);
+			oldId = AbbreviatedObjectId.fromObjectId(treeWalk.getObjectId(oldTree));
+			newId = AbbreviatedObjectId.fromObjectId(treeWalk.getObjectId(newTree));
+
+			if (oldMode == FileMode.MISSING) {
+				oldPath = DEV_NULL;
+				newPath = path;
+				changeType = ChangeType.ADD;
+			} else if (newMode == FileMode.MISSING) {
+				oldPath = path;
+				newPath = DEV_NULL;
+				changeType = ChangeType.DELETE;
+			} else {
+				oldPath = path;
+				newPath = path;
+				changeType = ChangeType.MODIFY;
+			}
+		}
+
+	}
+
+	/**
+	 * Includes entries of the last tree that differ from the entries of all
+	 * other trees.
+	 */
+	private static class DiffersFromAllParentsFilter extends TreeFilter {
+
+		private static final DiffersFromAllParentsFilter INSTANCE = new DiffersFromAllParentsFilter();
+
+		@Override
+		public boolean include(TreeWalk walker) {
+			int merged = walker.getTreeCount() - 1;
+			for (int parent = 0; parent < merged; ++parent) {
+				if (walker.getRawMode(parent) == walker.getRawMode(merged) && walker.idEqual(parent, merged)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		@Override
+		public boolean shouldBeRecursive() {
+			return false;
+		}
+
+		@Override
+		public TreeFilter clone() {
+			return this;
+		}
+
+		@Override
+		public String toString() {
+			return "DIFFERS_FROM_ALL_PARENTS";
+		}
+
+	}
+
+}
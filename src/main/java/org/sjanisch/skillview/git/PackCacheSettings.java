@@ -0,0 +1,227 @@
+/*
+MIT License
+
+Copyright (c) 2016 Sebastian Janisch
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package org.sjanisch.skillview.git;
+
+import org.eclipse.jgit.storage.file.WindowCacheConfig;
+
+/**
+ * Settings of the process wide cache that JGit reads pack files through, see
+ * {@link WindowCacheConfig}.
+ * <p>
+ * The defaults of JGit are tuned for small repositories. Extracting the
+ * history of large repositories benefits from larger windows, which turn
+ * random reads of cold packs into fewer sequential ones, from a larger delta
+ * base cache, which avoids inflating the same delta bases again and again,
+ * and from memory mapping packs.
+ * <p>
+ * Settings only take effect once {@link #install() installed} and then apply
+ * to all repositories of the process.
+ * <p>
+ * This class is immutable and thread safe.
+ * 
+ * @author sebastianjanisch
+ *
+ */
+public final class PackCacheSettings {
+
+	private final WindowCacheConfig config;
+
+	private PackCacheSettings(Builder builder) {
+		this.config = new WindowCacheConfig();
+		config.setPackedGitWindowSize(builder.packedGitWindowSize);
+		config.setPackedGitLimit(builder.packedGitLimit);
+		config.setPackedGitOpenFiles(builder.packedGitOpenFiles);
+		config.setPackedGitMMAP(builder.packedGitMMAP);
+		config.setDeltaBaseCacheLimit(builder.deltaBaseCacheLimit);
+		config.setStreamFileThreshold(builder.streamFileThreshold);
+	}
+
+	/**
+	 * 
+	 * @return a builder initialized with the defaults of JGit. Never
+	 *         {@code null}.
+	 */
+	public static Builder newBuilder() {
+		return new Builder();
+	}
+
+	/**
+	 * Replaces the settings of the pack cache of this process. Packs that are
+	 * currently cached are dropped.
+	 */
+	public void install() {
+		config.install();
+	}
+
+	@Override
+	public String toString() {
+		return "PackCacheSettings [packedGitWindowSize=" + config.getPackedGitWindowSize() + ", packedGitLimit="
+				+ config.getPackedGitLimit() + ", packedGitOpenFiles=" + config.getPackedGitOpenFiles()
+				+ ", packedGitMMAP=" + config.isPackedGitMMAP() + ", deltaBaseCacheLimit="
+				+ config.getDeltaBaseCacheLimit() + ", streamFileThreshold=" + config.getStreamFileThreshold()
+				+ "]";
+	}
+
+	/**
+	 * Builder for {@link PackCacheSettings}.
+	 * <p>
+	 * This class is not thread safe.
+	 * 
+	 * @author sebastianjanisch
+	 *
+	 */
+	public static class Builder {
+
+		private int packedGitWindowSize;
+		private long packedGitLimit;
+		private int packedGitOpenFiles;
+		private boolean packedGitMMAP;
+		private int deltaBaseCacheLimit;
+		private int streamFileThreshold;
+
+		private Builder() {
+			WindowCacheConfig defaults = new WindowCacheConfig();
+			this.packedGitWindowSize = defaults.getPackedGitWindowSize();
+			this.packedGitLimit = defaults.getPackedGitLimit();
+			this.packedGitOpenFiles = defaults.getPackedGitOpenFiles();
+			this.packedGitMMAP = defaults.isPackedGitMMAP();
+			this.deltaBaseCacheLimit = defaults.getDeltaBaseCacheLimit();
+			this.streamFileThreshold = defaults.getStreamFileThreshold();
+		}
+
+		/**
+		 * 
+		 * @param packedGitWindowSize
+		 *            number of bytes of a pack file read at once. Must be a
+		 *            power of two of at least {@code 4096}.
+		 * @return this builder
+		 */
+		public Builder setPackedGitWindowSize(int packedGitWindowSize) {
+			if (packedGitWindowSize < 4096 || Integer.bitCount(packedGitWindowSize) != 1) {
+				String msg = "packedGitWindowSize must be a power of two of at least 4096: " + packedGitWindowSize;
+				throw new IllegalArgumentException(msg);
+			}
+			this.packedGitWindowSize = packedGitWindowSize;
+			return this;
+		}
+
+		/**
+		 * 
+		 * @param packedGitLimit
+		 *            maximum number of bytes of pack files held in the cache.
+		 *            Must be at least the
+		 *            {@link #setPackedGitWindowSize(int) window size}.
+		 * @return this builder
+		 */
+		public Builder setPackedGitLimit(long packedGitLimit) {
+			if (packedGitLimit < 4096) {
+				throw new IllegalArgumentException("packedGitLimit must be at least 4096: " + packedGitLimit);
+			}
+			this.packedGitLimit = packedGitLimit;
+			return this;
+		}
+
+		/**
+		 * 
+		 * @param packedGitOpenFiles
+		 *            maximum number of pack files kept open. Must be positive.
+		 * @return this builder
+		 */
+		public Builder setPackedGitOpenFiles(int packedGitOpenFiles) {
+			if (packedGitOpenFiles < 1) {
+				throw new IllegalArgumentException("packedGitOpenFiles must be positive: " + packedGitOpenFiles);
+			}
+			this.packedGitOpenFiles = packedGitOpenFiles;
+			return this;
+		}
+
+		/**
+		 * 
+		 * @param packedGitMMAP
+		 *            {@code true} to memory map pack files rather than reading
+		 *            them into the heap
+		 * @return this builder
+		 */
+		public Builder setPackedGitMMAP(boolean packedGitMMAP) {
+			this.packedGitMMAP = packedGitMMAP;
+			return this;
+		}
+
+		/**
+		 * 
+		 * @param deltaBaseCacheLimit
+		 *            maximum number of bytes of inflated delta bases cached
+		 *            per reader. Must not be negative.
+		 * @return this builder
+		 */
+		public Builder setDeltaBaseCacheLimit(int deltaBaseCacheLimit) {
+			if (deltaBaseCacheLimit < 0) {
+				String msg = "deltaBaseCacheLimit must not be negative: " + deltaBaseCacheLimit;
+				throw new IllegalArgumentException(msg);
+			}
+			this.deltaBaseCacheLimit = deltaBaseCacheLimit;
+			return this;
+		}
+
+		/**
+		 * Blobs above this size are considered large and are
+		 * {@link GitContributionService.Builder#setLargeBlobPolicy(LargeBlobPolicy)
+		 * streamed or skipped} by {@link GitContributionService}. Blobs up to
+		 * this size are inflated by JGit before they are classified, so it
+		 * should not be above the
+		 * {@link GitContributionService.Builder#setLargeBlobSize(long) large
+		 * blob size}.
+		 * 
+		 * @param streamFileThreshold
+		 *            size in bytes above which blobs are streamed rather than
+		 *            inflated into a single array. Must be positive.
+		 * @return this builder
+		 */
+		public Builder setStreamFileThreshold(int streamFileThreshold) {
+			if (streamFileThreshold < 1) {
+				String msg = "streamFileThreshold must be positive: " + streamFileThreshold;
+				throw new IllegalArgumentException(msg);
+			}
+			this.streamFileThreshold = streamFileThreshold;
+			return this;
+		}
+
+		/**
+		 * 
+		 * @return new instance. Never {@code null}.
+		 * @throws IllegalArgumentException
+		 *             if the {@link #setPackedGitLimit(long) limit} is below
+		 *             the {@link #setPackedGitWindowSize(int) window size}
+		 */
+		public PackCacheSettings build() {
+			if (packedGitLimit < packedGitWindowSize) {
+				String msg = "packedGitLimit %s must be at least packedGitWindowSize %s";
+				throw new IllegalArgumentException(String.format(msg, packedGitLimit, packedGitWindowSize));
+			}
+			return new PackCacheSettings(this);
+		}
+
+	}
+
+}
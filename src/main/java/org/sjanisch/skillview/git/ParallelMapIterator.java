@@ -0,0 +1,271 @@
+/*
+MIT License
+
+Copyright (c) 2016 Sebastian Janisch
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package org.sjanisch.skillview.git;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+
+import org.sjanisch.skillview.core.contribution.api.ContributionRetrievalException;
+
+/**
+ * Lazily maps the elements of a source iterator on an {@link Executor}, keeping
+ * at most a bounded number of elements in flight, of which at most a smaller
+ * number are handed to the executor at any time. The others wait in a queue
+ * of this iterator, so that the concurrency is bounded even on an executor
+ * with unbounded threads.
+ * <p>
+ * In ordered mode, results are returned in the order of the source. In
+ * unordered mode, results are returned as soon as they complete, which avoids
+ * a slow element holding back faster ones.
+ * <p>
+ * {@link #close() Closing} the iterator stops submitting new work, cancels work
+ * that has not yet started and waits for work that is currently running.
+ * <p>
+ * This class is not thread safe, i.e. it must be consumed by a single thread.
+ * 
+ * @author sebastianjanisch
+ *
+ * @param <T>
+ *            type of the source elements
+ * @param <R>
+ *            type of the mapped elements
+ */
+class ParallelMapIterator<T, R> implements Iterator<R>, AutoCloseable {
+
+	private final Iterator<T> source;
+	private final Function<T, R> function;
+	private final Executor executor;
+	private final int maxInFlight;
+	private final int maxConcurrency;
+	private final boolean ordered;
+
+	private final Deque<FutureTask<R>> inFlight = new ArrayDeque<>();
+	private final BlockingQueue<FutureTask<R>> completed = new LinkedBlockingQueue<>();
+
+	private final Object lock = new Object();
+	private final Deque<FutureTask<R>> waiting = new ArrayDeque<>();
+	private int running;
+	private int executing;
+	private volatile boolean closed;
+
+	/**
+	 * 
+	 * @param source
+	 *            must not be {@code null}
+	 * @param function
+	 *            the mapping function, invoked on threads of given executor.
+	 *            Must not be {@code null}.
+	 * @param executor
+	 *            must not be {@code null}
+	 * @param maxInFlight
+	 *            maximum number of elements that are submitted but not yet
+	 *            consumed. Must be positive.
+	 * @param maxConcurrency
+	 *            maximum number of elements that are mapped concurrently.
+	 *            Must be positive and not greater than {@code maxInFlight}.
+	 * @param ordered
+	 *            {@code true} to return results in source order,
+	 *            {@code false} to return them in completion order
+	 */
+	ParallelMapIterator(Iterator<T> source, Function<T, R> function, Executor executor, int maxInFlight,
+			int maxConcurrency, boolean ordered) {
+		this.source = Objects.requireNonNull(source, "source");
+		this.function = Objects.requireNonNull(function, "function");
+		this.executor = Objects.requireNonNull(executor, "executor");
+		if (maxInFlight < 1) {
+			throw new IllegalArgumentException("maxInFlight must be positive: " + maxInFlight);
+		}
+		this.maxInFlight = maxInFlight;
+		if (maxConcurrency < 1 || maxConcurrency > maxInFlight) {
+			String msg = String.format("maxConcurrency must be between 1 and %s: %s", maxInFlight, maxConcurrency);
+			throw new IllegalArgumentException(msg);
+		}
+		this.maxConcurrency = maxConcurrency;
+		this.ordered = ordered;
+	}
+
+	@Override
+	public boolean hasNext() {
+		fill();
+		return !inFlight.isEmpty();
+	}
+
+	@Override
+	public R next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+
+		FutureTask<R> next;
+		if (ordered) {
+			next = inFlight.poll();
+		} else {
+			next = take();
+			inFlight.remove(next);
+		}
+
+		R result = get(next);
+		fill();
+		return result;
+	}
+
+	@Override
+	public void close() {
+		closed = true;
+		inFlight.forEach(task -> task.cancel(false));
+		inFlight.clear();
+
+		synchronized (lock) {
+			while (running > 0) {
+				try {
+					lock.wait();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+		}
+	}
+
+	private void fill() {
+		while (!closed && inFlight.size() < maxInFlight && source.hasNext()) {
+			T element = source.next();
+			FutureTask<R> task = new FutureTask<R>(() -> function.apply(element)) {
+				@Override
+				protected void done() {
+					if (!ordered) {
+						completed.add(this);
+					}
+				}
+			};
+			inFlight.add(task);
+			submit(task);
+		}
+	}
+
+	private void submit(FutureTask<R> task) {
+		synchronized (lock) {
+			++running;
+			if (executing == maxConcurrency) {
+				// handed to the executor by the next task that finishes
+				waiting.add(task);
+				return;
+			}
+			++executing;
+		}
+		try {
+			execute(task);
+		} catch (RejectedExecutionException e) {
+			finished();
+			inFlight.remove(task);
+			throw new ContributionRetrievalException("Executor rejected extraction task", e);
+		}
+	}
+
+	private void execute(FutureTask<R> task) {
+		executor.execute(() -> {
+			try {
+				if (closed) {
+					task.cancel(false);
+				} else {
+					task.run();
+				}
+			} finally {
+				executeNext();
+			}
+		});
+	}
+
+	private void executeNext() {
+		FutureTask<R> next = finished();
+		if (next == null) {
+			return;
+		}
+		try {
+			execute(next);
+		} catch (RejectedExecutionException e) {
+			// fails the element once it is consumed
+			next.cancel(false);
+			executeNext();
+		}
+	}
+
+	/**
+	 * 
+	 * @return the next waiting task, which takes over the execution slot of
+	 *         the finished one, or {@code null} if none is waiting
+	 */
+	private FutureTask<R> finished() {
+		synchronized (lock) {
+			--running;
+			lock.notifyAll();
+			FutureTask<R> next = waiting.poll();
+			if (next == null) {
+				--executing;
+			}
+			return next;
+		}
+	}
+
+	private FutureTask<R> take() {
+		try {
+			return completed.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ContributionRetrievalException("Interrupted while waiting for extraction", e);
+		}
+	}
+
+	private static <R> R get(FutureTask<R> task) {
+		try {
+			return task.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ContributionRetrievalException("Interrupted while waiting for extraction", e);
+		} catch (CancellationException e) {
+			throw new ContributionRetrievalException("Extraction was cancelled", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new ContributionRetrievalException("Extraction failed", cause);
+		}
+	}
+
+}
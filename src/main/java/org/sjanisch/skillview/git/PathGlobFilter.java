@@ -0,0 +1,443 @@
+/*
+MIT License
+
+Copyright (c) 2016 Sebastian Janisch
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package org.sjanisch.skillview.git;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
+import org.eclipse.jgit.treewalk.CanonicalTreeParser;
+import org.eclipse.jgit.treewalk.EmptyTreeIterator;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.AndTreeFilter;
+import org.eclipse.jgit.treewalk.filter.OrTreeFilter;
+import org.eclipse.jgit.treewalk.filter.PathFilterGroup;
+import org.eclipse.jgit.treewalk.filter.PathSuffixFilter;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+
+/**
+ * Selects paths by include and exclude globs, e.g.
+ * {@code services/payments/**} or {@code **}{@code /*.java}.
+ * <p>
+ * A path is selected if it matches any include glob (or no include globs are
+ * given) and none of the exclude globs. Within a glob, {@code *} and
+ * {@code ?} match any characters respectively a single character within a
+ * path segment, and {@code **} matches any number of segments.
+ * <p>
+ * Unlike a {@link Predicate} on paths that is tested after a commit has been
+ * diffed, this filter can be pushed down into the diff as a
+ * {@link #toTreeFilter() tree filter}, so that subtrees which cannot contain
+ * selected paths are not walked at all. As a {@link #toRevFilter() commit
+ * filter} it skips commits that do not touch any selected path.
+ * <p>
+ * This class is immutable and thread safe.
+ * 
+ * @author sebastianjanisch
+ *
+ */
+public final class PathGlobFilter {
+
+	private final List<Glob> includes;
+	private final List<Glob> excludes;
+
+	private PathGlobFilter(Builder builder) {
+		this.includes = Collections.unmodifiableList(new ArrayList<>(builder.includes));
+		this.excludes = Collections.unmodifiableList(new ArrayList<>(builder.excludes));
+	}
+
+	/**
+	 * 
+	 * @return new builder of a filter that selects all paths. Never
+	 *         {@code null}.
+	 */
+	public static Builder newBuilder() {
+		return new Builder();
+	}
+
+	/**
+	 * 
+	 * @param path
+	 *            path relative to the repository root, separated by
+	 *            {@code /}. Must not be {@code null}.
+	 * @return {@code true} if given path is selected
+	 */
+	public boolean matches(String path) {
+		Objects.requireNonNull(path, "path");
+
+		return isIncluded(path) && !isExcluded(path);
+	}
+
+	/**
+	 * Include globs with a literal directory prefix (e.g.
+	 * {@code services/payments/**}) are compiled to a {@link PathFilterGroup},
+	 * include globs that only select a file suffix (e.g.
+	 * {@code **}{@code /*.java}) to {@link PathSuffixFilter}s. Both are
+	 * combined with an exact match of all globs.
+	 * 
+	 * @return a tree filter that selects the same paths as this filter. Never
+	 *         {@code null}.
+	 */
+	public TreeFilter toTreeFilter() {
+		if (includes.isEmpty() && excludes.isEmpty()) {
+			return TreeFilter.ALL;
+		}
+
+		TreeFilter globs = new GlobTreeFilter(this);
+		TreeFilter pushdown = createPushdownFilter();
+		return pushdown == null ? globs : AndTreeFilter.create(pushdown, globs);
+	}
+
+	/**
+	 * Commits are compared to their first parent (or the empty tree for root
+	 * commits), like contributions are.
+	 * 
+	 * @return a commit filter that only includes commits which touch at least
+	 *         one selected path. Never {@code null}.
+	 */
+	public RevFilter toRevFilter() {
+		if (includes.isEmpty() && excludes.isEmpty()) {
+			return RevFilter.ALL;
+		}
+		return new TouchedPathRevFilter(toTreeFilter());
+	}
+
+	@Override
+	public String toString() {
+		return "PathGlobFilter [includes=" + includes + ", excludes=" + excludes + "]";
+	}
+
+	private TreeFilter createPushdownFilter() {
+		if (includes.isEmpty()) {
+			return null;
+		}
+
+		if (includes.stream().allMatch(glob -> !glob.prefix.isEmpty())) {
+			List<String> prefixes = new ArrayList<>();
+			includes.forEach(glob -> prefixes.add(glob.prefix));
+			return PathFilterGroup.createFromStrings(prefixes);
+		}
+
+		if (includes.stream().allMatch(glob -> glob.suffix != null)) {
+			List<TreeFilter> suffixes = new ArrayList<>();
+			includes.forEach(glob -> suffixes.add(PathSuffixFilter.create(glob.suffix)));
+			return suffixes.size() == 1 ? suffixes.get(0) : OrTreeFilter.create(suffixes);
+		}
+
+		return null;
+	}
+
+	private boolean isIncluded(String path) {
+		if (includes.isEmpty()) {
+			return true;
+		}
+		for (Glob glob : includes) {
+			if (glob.pattern.matcher(path).matches()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean isExcluded(String path) {
+		for (Glob glob : excludes) {
+			if (glob.pattern.matcher(path).matches()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean mayContainIncluded(String directory) {
+		if (includes.isEmpty()) {
+			return true;
+		}
+		for (Glob glob : includes) {
+			String prefix = glob.prefix;
+			if (prefix.isEmpty() || directory.equals(prefix) || directory.startsWith(prefix + "/")
+					|| prefix.startsWith(directory + "/")) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean isExcludedEntirely(String directory) {
+		for (Glob glob : excludes) {
+			String subtree = glob.subtree;
+			if (subtree != null && (directory.equals(subtree) || directory.startsWith(subtree + "/"))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Builder for {@link PathGlobFilter}.
+	 * <p>
+	 * This class is not thread safe.
+	 * 
+	 * @author sebastianjanisch
+	 *
+	 */
+	public static class Builder {
+
+		private final List<Glob> includes = new ArrayList<>();
+		private final List<Glob> excludes = new ArrayList<>();
+
+		private Builder() {
+		}
+
+		/**
+		 * 
+		 * @param glob
+		 *            glob of paths to include, relative to the repository
+		 *            root. Must not be {@code null} or empty.
+		 * @return this builder. Never {@code null}.
+		 */
+		public Builder include(String glob) {
+			includes.add(Glob.compile(glob));
+			return this;
+		}
+
+		/**
+		 * 
+		 * @param glob
+		 *            glob of paths to exclude, relative to the repository
+		 *            root. Must not be {@code null} or empty.
+		 * @return this builder. Never {@code null}.
+		 */
+		public Builder exclude(String glob) {
+			excludes.add(Glob.compile(glob));
+			return this;
+		}
+
+		/**
+		 * 
+		 * @return new instance. Never {@code null}.
+		 */
+		public PathGlobFilter build() {
+			return new PathGlobFilter(this);
+		}
+
+	}
+
+	private static class Glob {
+
+		private final String glob;
+		private final Pattern pattern;
+
+		/**
+		 * Directory up to the first wildcard, empty if the glob starts with a
+		 * wildcard.
+		 */
+		private final String prefix;
+
+		/**
+		 * Suffix for globs of the form <code>**&#47;*suffix</code>, otherwise
+		 * {@code null}.
+		 */
+		private final String suffix;
+
+		/**
+		 * Directory for globs of the form <code>directory/**</code>, otherwise
+		 * {@code null}.
+		 */
+		private final String subtree;
+
+		private Glob(String glob, Pattern pattern, String prefix, String suffix, String subtree) {
+			this.glob = glob;
+			this.pattern = pattern;
+			this.prefix = prefix;
+			this.suffix = suffix;
+			this.subtree = subtree;
+		}
+
+		private static Glob compile(String glob) {
+			Objects.requireNonNull(glob, "glob");
+			if (glob.isEmpty()) {
+				throw new IllegalArgumentException("glob must not be empty");
+			}
+
+			int firstWildcard = indexOfWildcard(glob, 0);
+			String prefix;
+			if (firstWildcard < 0) {
+				prefix = glob;
+			} else {
+				int lastSlash = glob.lastIndexOf('/', firstWildcard);
+				prefix = lastSlash < 0 ? "" : glob.substring(0, lastSlash);
+			}
+
+			String suffix = null;
+			if (glob.startsWith("**/*") && glob.length() > 4 && indexOfWildcard(glob, 4) < 0
+					&& glob.indexOf('/', 4) < 0) {
+				suffix = glob.substring(4);
+			}
+
+			String subtree = null;
+			if (glob.endsWith("/**") && firstWildcard == glob.length() - 2) {
+				subtree = glob.substring(0, glob.length() - 3);
+			}
+
+			return new Glob(glob, toPattern(glob), prefix, suffix, subtree);
+		}
+
+		private static int indexOfWildcard(String glob, int fromIndex) {
+			for (int i = fromIndex; i < glob.length(); ++i) {
+				char c = glob.charAt(i);
+				if (c == '*' || c == '?') {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		private static Pattern toPattern(String glob) {
+			StringBuilder regex = new StringBuilder();
+			int i = 0;
+			while (i < glob.length()) {
+				if (glob.startsWith("**/", i)) {
+					regex.append("(?:.*/)?");
+					i += 3;
+				} else if (glob.startsWith("/**", i) && i + 3 == glob.length()) {
+					regex.append("(?:/.*)?");
+					i += 3;
+				} else if (glob.startsWith("**", i)) {
+					regex.append(".*");
+					i += 2;
+				} else {
+					char c = glob.charAt(i);
+					if (c == '*') {
+						regex.append("[^/]*");
+					} else if (c == '?') {
+						regex.append("[^/]");
+					} else if ("\\.[]{}()+-^$|".indexOf(c) >= 0) {
+						regex.append('\\').append(c);
+					} else {
+						regex.append(c);
+					}
+					++i;
+				}
+			}
+			return Pattern.compile(regex.toString());
+		}
+
+		@Override
+		public String toString() {
+			return glob;
+		}
+
+	}
+
+	/**
+	 * Matches files exactly and prunes directories that cannot contain
+	 * selected files.
+	 */
+	private static class GlobTreeFilter extends TreeFilter {
+
+		private final PathGlobFilter filter;
+
+		private GlobTreeFilter(PathGlobFilter filter) {
+			this.filter = filter;
+		}
+
+		@Override
+		public boolean include(TreeWalk walker) {
+			String path = walker.getPathString();
+			if (walker.isSubtree()) {
+				return filter.mayContainIncluded(path) && !filter.isExcludedEntirely(path);
+			}
+			return filter.matches(path);
+		}
+
+		@Override
+		public boolean shouldBeRecursive() {
+			return true;
+		}
+
+		@Override
+		public TreeFilter clone() {
+			return this;
+		}
+
+		@Override
+		public String toString() {
+			return "GLOBS(" + filter.includes + ", " + filter.excludes + ")";
+		}
+
+	}
+
+	/**
+	 * Includes commits whose diff to their first parent touches a path
+	 * selected by a tree filter.
+	 */
+	private static class TouchedPathRevFilter extends RevFilter {
+
+		private final TreeFilter pathFilter;
+
+		private TouchedPathRevFilter(TreeFilter pathFilter) {
+			this.pathFilter = pathFilter;
+		}
+
+		@Override
+		public boolean include(RevWalk walker, RevCommit commit) throws IOException {
+			try (TreeWalk treeWalk = new TreeWalk(walker.getObjectReader())) {
+				treeWalk.setRecursive(true);
+				treeWalk.setFilter(AndTreeFilter.create(pathFilter, TreeFilter.ANY_DIFF));
+				if (commit.getParentCount() == 0) {
+					treeWalk.addTree(new EmptyTreeIterator());
+				} else {
+					RevCommit parent = commit.getParent(0);
+					walker.parseHeaders(parent);
+					treeWalk.addTree(new CanonicalTreeParser(null, walker.getObjectReader(), parent.getTree()));
+				}
+				treeWalk.addTree(commit.getTree());
+				return treeWalk.next();
+			}
+		}
+
+		@Override
+		public boolean requiresCommitBody() {
+			return false;
+		}
+
+		@Override
+		public RevFilter clone() {
+			return this;
+		}
+
+		@Override
+		public String toString() {
+			return "TOUCHES(" + pathFilter + ")";
+		}
+
+	}
+
+}
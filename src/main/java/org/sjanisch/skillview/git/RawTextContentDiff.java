@@ -0,0 +1,275 @@
+/*
+MIT License
+
+Copyright (c) 2016 Sebastian Janisch
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package org.sjanisch.skillview.git;
+
+import java.nio.charset.Charset;
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+import org.eclipse.jgit.diff.DiffAlgorithm;
+import org.eclipse.jgit.diff.Edit;
+import org.eclipse.jgit.diff.EditList;
+import org.eclipse.jgit.diff.RawText;
+import org.eclipse.jgit.diff.RawTextComparator;
+import org.sjanisch.skillview.core.diff.api.ContentDiff;
+import org.sjanisch.skillview.core.utility.Lazy;
+
+/**
+ * Implements {@link ContentDiff} on raw bytes, e.g. blob contents as stored in
+ * a repository, without decoding them up front.
+ * <p>
+ * Like {@link GitAlgorithmContentDiff}, content is classified as 'touched' if
+ * it was either inserted or modified, and each touched region is reported as
+ * one trimmed string. The {@link #getTouchedContent() touched content} is a
+ * view that only decodes a region when it is accessed. Callers that are
+ * interested in line numbers rather than content can use
+ * {@link #getTouchedRegionCount()}, {@link #getTouchedRegionBegin(int)} and
+ * {@link #getTouchedRegionEnd(int)}, which do not decode anything.
+ * <p>
+ * This implementation is thread safe.
+ * 
+ * @author sebastianjanisch
+ *
+ */
+public class RawTextContentDiff implements ContentDiff {
+
+	private final RawText current;
+	private final Lazy<int[]> touchedRegions;
+	private final List<String> touchedContent;
+
+	private RawTextContentDiff(RawText current, Supplier<EditList> edits) {
+		this.current = current;
+		this.touchedRegions = Lazy.of(() -> touchedRegions(edits.get()));
+		this.touchedContent = new TouchedContent();
+	}
+
+	/**
+	 * 
+	 * @param previousContent
+	 *            encoded previous content. Must not be {@code null}.
+	 * @param currentContent
+	 *            encoded current content. Must not be {@code null}.
+	 * @param charset
+	 *            the charset that both contents are encoded with. Must not be
+	 *            {@code null}.
+	 * @param algorithm
+	 *            must not be {@code null}
+	 * @param comparator
+	 *            comparator to compare lines with, e.g.
+	 *            {@link RawTextComparator#WS_IGNORE_ALL}. Must not be
+	 *            {@code null}.
+	 * @return new instance. Never {@code null}.
+	 */
+	public static RawTextContentDiff of(byte[] previousContent, byte[] currentContent, Charset charset,
+			DiffAlgorithm algorithm, RawTextComparator comparator) {
+		Objects.requireNonNull(previousContent, "previousContent");
+		Objects.requireNonNull(currentContent, "currentContent");
+		Objects.requireNonNull(charset, "charset");
+
+		return of(new CharsetRawText(previousContent, charset), new CharsetRawText(currentContent, charset),
+				algorithm, comparator);
+	}
+
+	/**
+	 * Diffs texts that are already split into lines, e.g. because they are
+	 * shared with other diffs. Touched content is decoded the way given
+	 * current text {@link RawText#getString(int, int, boolean) decodes}.
+	 * 
+	 * @param previous
+	 *            must not be {@code null}
+	 * @param current
+	 *            must not be {@code null}
+	 * @param algorithm
+	 *            must not be {@code null}
+	 * @param comparator
+	 *            comparator to compare lines with, e.g.
+	 *            {@link RawTextComparator#WS_IGNORE_ALL}. Must not be
+	 *            {@code null}.
+	 * @return new instance. Never {@code null}.
+	 */
+	public static RawTextContentDiff of(RawText previous, RawText current, DiffAlgorithm algorithm,
+			RawTextComparator comparator) {
+		Objects.requireNonNull(previous, "previous");
+		Objects.requireNonNull(current, "current");
+		Objects.requireNonNull(algorithm, "algorithm");
+		Objects.requireNonNull(comparator, "comparator");
+
+		return new RawTextContentDiff(current, () -> algorithm.diff(comparator, previous, current));
+	}
+
+	/**
+	 * 
+	 * @param previousContent
+	 *            encoded previous content. Must not be {@code null}.
+	 * @param currentContent
+	 *            encoded current content. Must not be {@code null}.
+	 * @param charset
+	 *            the charset that both contents are encoded with. Must not be
+	 *            {@code null}.
+	 * @param differ
+	 *            computes the edits. Must not be {@code null}.
+	 * @return new instance. Never {@code null}.
+	 */
+	public static RawTextContentDiff of(byte[] previousContent, byte[] currentContent, Charset charset,
+			RawTextDiffer differ) {
+		Objects.requireNonNull(previousContent, "previousContent");
+		Objects.requireNonNull(currentContent, "currentContent");
+		Objects.requireNonNull(charset, "charset");
+
+		return of(new CharsetRawText(previousContent, charset), new CharsetRawText(currentContent, charset), differ);
+	}
+
+	/**
+	 * Like {@link #of(RawText, RawText, DiffAlgorithm, RawTextComparator)},
+	 * but computes the edits with given differ.
+	 * 
+	 * @param previous
+	 *            must not be {@code null}
+	 * @param current
+	 *            must not be {@code null}
+	 * @param differ
+	 *            computes the edits. Must not be {@code null}.
+	 * @return new instance. Never {@code null}.
+	 */
+	public static RawTextContentDiff of(RawText previous, RawText current, RawTextDiffer differ) {
+		Objects.requireNonNull(previous, "previous");
+		Objects.requireNonNull(current, "current");
+		Objects.requireNonNull(differ, "differ");
+
+		return new RawTextContentDiff(current, () -> differ.diff(previous, current));
+	}
+
+	/**
+	 * 
+	 * @return unmodifiable view of the touched regions of the current
+	 *         content, each decoded and trimmed upon access. Never
+	 *         {@code null}.
+	 */
+	@Override
+	public Collection<String> getTouchedContent() {
+		return touchedContent;
+	}
+
+	/**
+	 * 
+	 * @return number of touched regions
+	 */
+	public int getTouchedRegionCount() {
+		return touchedRegions.get().length / 2;
+	}
+
+	/**
+	 * 
+	 * @param region
+	 *            index of the region, between {@code 0} inclusive and
+	 *            {@link #getTouchedRegionCount()} exclusive
+	 * @return first line of the region in the current content, zero based and
+	 *         inclusive
+	 */
+	public int getTouchedRegionBegin(int region) {
+		return touchedRegions.get()[2 * region];
+	}
+
+	/**
+	 * 
+	 * @param region
+	 *            index of the region, between {@code 0} inclusive and
+	 *            {@link #getTouchedRegionCount()} exclusive
+	 * @return last line of the region in the current content, zero based and
+	 *         exclusive
+	 */
+	public int getTouchedRegionEnd(int region) {
+		return touchedRegions.get()[2 * region + 1];
+	}
+
+	private static int[] touchedRegions(EditList edits) {
+		int count = 0;
+		for (int i = 0; i < edits.size(); ++i) {
+			if (isTouched(edits.get(i))) {
+				++count;
+			}
+		}
+
+		int[] result = new int[2 * count];
+		int next = 0;
+		for (int i = 0; i < edits.size(); ++i) {
+			Edit edit = edits.get(i);
+			if (isTouched(edit)) {
+				result[next++] = edit.getBeginB();
+				result[next++] = edit.getEndB();
+			}
+		}
+		return result;
+	}
+
+	private static boolean isTouched(Edit edit) {
+		switch (edit.getType()) {
+		case INSERT:
+		case REPLACE:
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	private class TouchedContent extends AbstractList<String> {
+
+		@Override
+		public String get(int index) {
+			if (index < 0 || index >= size()) {
+				throw new IndexOutOfBoundsException("index " + index + " of " + size());
+			}
+			return current.getString(getTouchedRegionBegin(index), getTouchedRegionEnd(index), false).trim();
+		}
+
+		@Override
+		public int size() {
+			return getTouchedRegionCount();
+		}
+
+	}
+
+	/**
+	 * Decodes with a given charset rather than guessing it.
+	 */
+	private static class CharsetRawText extends RawText {
+
+		private final Charset charset;
+
+		private CharsetRawText(byte[] content, Charset charset) {
+			super(content);
+			this.charset = charset;
+		}
+
+		@Override
+		protected String decode(int start, int end) {
+			return new String(content, start, end - start, charset);
+		}
+
+	}
+
+}
@@ -0,0 +1,316 @@
+/*
+MIT License
+
+Copyright (c) 2016 Sebastian Janisch
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package org.sjanisch.skillview.git;
+
+import java.time.Duration;
+import java.util.Objects;
+
+import org.eclipse.jgit.diff.DiffAlgorithm;
+import org.eclipse.jgit.diff.DiffAlgorithm.SupportedAlgorithm;
+import org.eclipse.jgit.diff.Edit;
+import org.eclipse.jgit.diff.EditList;
+import org.eclipse.jgit.diff.HashedSequencePair;
+import org.eclipse.jgit.diff.RawText;
+import org.eclipse.jgit.diff.RawTextComparator;
+import org.eclipse.jgit.diff.Sequence;
+import org.eclipse.jgit.diff.SequenceComparator;
+import org.eclipse.jgit.diff.Subsequence;
+import org.eclipse.jgit.diff.SubsequenceComparator;
+
+/**
+ * Computes the edits between two {@link RawText}s with a fixed
+ * {@link DiffAlgorithm} and {@link RawTextComparator}, both of which are
+ * created once and shared by all diffs.
+ * <p>
+ * Lines that are common to the start and end of both texts are stripped
+ * first. If {@link Builder#setHashLinesOnce(boolean) enabled}, every
+ * remaining line is then hashed exactly once into an {@code int} table, so
+ * that the algorithm compares hashes rather than re-scanning line contents
+ * (e.g. to skip whitespace) on every comparison.
+ * <p>
+ * Pathological inputs, such as minified sources that consist of few but very
+ * long lines, can be capped by the number of changed lines, the number of
+ * line comparisons or a timeout. Once a cap is hit, the changed region is
+ * reported as a single {@link Edit.Type#REPLACE replacement} rather than
+ * diffed further.
+ * <p>
+ * This class is immutable and thread safe.
+ * 
+ * @author sebastianjanisch
+ *
+ */
+public final class RawTextDiffer {
+
+	private static final int TIMEOUT_CHECK_INTERVAL = 1024;
+
+	private final DiffAlgorithm algorithm;
+	private final RawTextComparator comparator;
+	private final boolean hashLinesOnce;
+	private final int maxChangedLines;
+	private final long maxComparisons;
+	private final long timeoutNanos;
+
+	private RawTextDiffer(Builder builder) {
+		this.algorithm = DiffAlgorithm.getAlgorithm(builder.algorithm);
+		this.comparator = builder.comparator;
+		this.hashLinesOnce = builder.hashLinesOnce;
+		this.maxChangedLines = builder.maxChangedLines;
+		this.maxComparisons = builder.maxComparisons;
+		this.timeoutNanos = builder.timeout == null ? Long.MAX_VALUE : builder.timeout.toNanos();
+	}
+
+	/**
+	 * 
+	 * @return new builder that defaults to the
+	 *         {@link SupportedAlgorithm#HISTOGRAM histogram} algorithm,
+	 *         {@link RawTextComparator#WS_IGNORE_ALL}, hashed lines and no
+	 *         caps. Never {@code null}.
+	 */
+	public static Builder newBuilder() {
+		return new Builder();
+	}
+
+	/**
+	 * 
+	 * @param previous
+	 *            must not be {@code null}
+	 * @param current
+	 *            must not be {@code null}
+	 * @return the edits that turn previous into current, in line indexes of
+	 *         both texts. Never {@code null}.
+	 */
+	public EditList diff(RawText previous, RawText current) {
+		Objects.requireNonNull(previous, "previous");
+		Objects.requireNonNull(current, "current");
+
+		Edit region = comparator.reduceCommonStartEnd(previous, current,
+				new Edit(0, previous.size(), 0, current.size()));
+
+		switch (region.getType()) {
+		case EMPTY:
+			return new EditList(0);
+		case INSERT:
+		case DELETE:
+			return EditList.singleton(region);
+		default:
+			break;
+		}
+
+		if (region.getLengthA() > maxChangedLines || region.getLengthB() > maxChangedLines) {
+			return EditList.singleton(region);
+		}
+
+		Subsequence<RawText> previousRegion = Subsequence.a(previous, region);
+		Subsequence<RawText> currentRegion = Subsequence.b(current, region);
+		try {
+			return Subsequence.toBase(diffRegion(previousRegion, currentRegion), previousRegion, currentRegion);
+		} catch (BudgetExceededException e) {
+			return EditList.singleton(region);
+		}
+	}
+
+	private EditList diffRegion(Subsequence<RawText> previous, Subsequence<RawText> current) {
+		SubsequenceComparator<RawText> regionComparator = new SubsequenceComparator<>(comparator);
+		if (hashLinesOnce) {
+			HashedSequencePair<Subsequence<RawText>> pair = new HashedSequencePair<>(regionComparator, previous,
+					current);
+			return algorithm.diffNonCommon(budget(pair.getComparator()), pair.getA(), pair.getB());
+		}
+		return algorithm.diffNonCommon(budget(regionComparator), previous, current);
+	}
+
+	private <S extends Sequence> SequenceComparator<S> budget(SequenceComparator<S> delegate) {
+		if (maxComparisons == Long.MAX_VALUE && timeoutNanos == Long.MAX_VALUE) {
+			return delegate;
+		}
+		return new BudgetComparator<>(delegate, maxComparisons, timeoutNanos);
+	}
+
+	/**
+	 * Builder for {@link RawTextDiffer}.
+	 * <p>
+	 * This class is not thread safe.
+	 * 
+	 * @author sebastianjanisch
+	 *
+	 */
+	public static class Builder {
+
+		private SupportedAlgorithm algorithm = SupportedAlgorithm.HISTOGRAM;
+		private RawTextComparator comparator = RawTextComparator.WS_IGNORE_ALL;
+		private boolean hashLinesOnce = true;
+		private int maxChangedLines = Integer.MAX_VALUE;
+		private long maxComparisons = Long.MAX_VALUE;
+		private Duration timeout;
+
+		private Builder() {
+		}
+
+		/**
+		 * 
+		 * @param algorithm
+		 *            must not be {@code null}. Defaults to
+		 *            {@link SupportedAlgorithm#HISTOGRAM}.
+		 * @return this builder
+		 */
+		public Builder setAlgorithm(SupportedAlgorithm algorithm) {
+			this.algorithm = Objects.requireNonNull(algorithm, "algorithm");
+			return this;
+		}
+
+		/**
+		 * 
+		 * @param comparator
+		 *            comparator to compare lines with. Must not be
+		 *            {@code null}. Defaults to
+		 *            {@link RawTextComparator#WS_IGNORE_ALL}.
+		 * @return this builder
+		 */
+		public Builder setComparator(RawTextComparator comparator) {
+			this.comparator = Objects.requireNonNull(comparator, "comparator");
+			return this;
+		}
+
+		/**
+		 * 
+		 * @param hashLinesOnce
+		 *            {@code true} to hash every changed line once up front,
+		 *            {@code false} to let the algorithm hash lines on demand.
+		 *            Both yield the same edits. Defaults to {@code true}.
+		 * @return this builder
+		 */
+		public Builder setHashLinesOnce(boolean hashLinesOnce) {
+			this.hashLinesOnce = hashLinesOnce;
+			return this;
+		}
+
+		/**
+		 * 
+		 * @param maxChangedLines
+		 *            maximum number of lines on either side that remain after
+		 *            stripping common lines at the start and end. Larger
+		 *            regions are reported as a single replacement. Must be
+		 *            positive. Unlimited by default.
+		 * @return this builder
+		 */
+		public Builder setMaxChangedLines(int maxChangedLines) {
+			if (maxChangedLines < 1) {
+				throw new IllegalArgumentException("maxChangedLines must be positive: " + maxChangedLines);
+			}
+			this.maxChangedLines = maxChangedLines;
+			return this;
+		}
+
+		/**
+		 * 
+		 * @param maxComparisons
+		 *            maximum number of line comparisons per diff, after which
+		 *            the changed region is reported as a single replacement.
+		 *            Must be positive. Unlimited by default.
+		 * @return this builder
+		 */
+		public Builder setMaxComparisons(long maxComparisons) {
+			if (maxComparisons < 1) {
+				throw new IllegalArgumentException("maxComparisons must be positive: " + maxComparisons);
+			}
+			this.maxComparisons = maxComparisons;
+			return this;
+		}
+
+		/**
+		 * 
+		 * @param timeout
+		 *            maximum time to spend per diff, after which the changed
+		 *            region is reported as a single replacement. Must not be
+		 *            {@code null} and must be positive. Unlimited by default.
+		 * @return this builder
+		 */
+		public Builder setTimeout(Duration timeout) {
+			Objects.requireNonNull(timeout, "timeout");
+			if (timeout.isZero() || timeout.isNegative()) {
+				throw new IllegalArgumentException("timeout must be positive: " + timeout);
+			}
+			this.timeout = timeout;
+			return this;
+		}
+
+		/**
+		 * 
+		 * @return new instance. Never {@code null}.
+		 */
+		public RawTextDiffer build() {
+			return new RawTextDiffer(this);
+		}
+
+	}
+
+	/**
+	 * Counts comparisons and aborts the diff once the budget is exhausted.
+	 * Instances are created per diff and hence not shared between threads.
+	 */
+	private static class BudgetComparator<S extends Sequence> extends SequenceComparator<S> {
+
+		private final SequenceComparator<S> delegate;
+		private final long maxComparisons;
+		private final long timeoutNanos;
+		private final long startNanos = System.nanoTime();
+		private long comparisons;
+
+		private BudgetComparator(SequenceComparator<S> delegate, long maxComparisons, long timeoutNanos) {
+			this.delegate = delegate;
+			this.maxComparisons = maxComparisons;
+			this.timeoutNanos = timeoutNanos;
+		}
+
+		@Override
+		public boolean equals(S a, int ai, S b, int bi) {
+			if (++comparisons > maxComparisons) {
+				throw BudgetExceededException.INSTANCE;
+			}
+			if (comparisons % TIMEOUT_CHECK_INTERVAL == 0 && System.nanoTime() - startNanos > timeoutNanos) {
+				throw BudgetExceededException.INSTANCE;
+			}
+			return delegate.equals(a, ai, b, bi);
+		}
+
+		@Override
+		public int hash(S seq, int ptr) {
+			return delegate.hash(seq, ptr);
+		}
+
+	}
+
+	private static class BudgetExceededException extends RuntimeException {
+
+		private static final long serialVersionUID = 1L;
+
+		private static final BudgetExceededException INSTANCE = new BudgetExceededException();
+
+		private BudgetExceededException() {
+			super("diff budget exceeded", null, false, false);
+		}
+
+	}
+
+}
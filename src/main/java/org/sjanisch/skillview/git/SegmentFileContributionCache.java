@@ -0,0 +1,453 @@
+/*
+MIT License
+
+Copyright (c) 2016 Sebastian Janisch
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package org.sjanisch.skillview.git;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.sjanisch.skillview.core.contribution.api.Contribution;
+import org.sjanisch.skillview.core.contribution.api.ContributionId;
+import org.sjanisch.skillview.core.contribution.api.Project;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link ContributionCache} that persists contributions in append-only segment
+ * files within a local directory so that they survive restarts.
+ * <p>
+ * Contributions are {@link ContributionCodec encoded} into a compact binary
+ * format and appended to the active segment until it is full. Entries are
+ * read with positional reads rather than through memory mappings, since a
+ * mapped segment could not be deleted on all platforms until the mapping is
+ * garbage collected. If the cache exceeds its maximum size, its oldest
+ * segments are evicted as a whole.
+ * An in-memory index of all entries is rebuilt by scanning the segments upon
+ * {@link #open(Path, long) opening} the cache.
+ * <p>
+ * A directory can only be used by one open cache at a time, which is enforced
+ * by a file lock. This class is thread safe.
+ * 
+ * @author sebastianjanisch
+ *
+ */
+public class SegmentFileContributionCache implements ContributionCache, Closeable {
+
+	private static final Logger log = LoggerFactory.getLogger(SegmentFileContributionCache.class);
+
+	private static final Pattern SEGMENT_NAME = Pattern.compile("segment-(\\d+)\\.bin");
+	private static final String LOCK_NAME = "cache.lock";
+	private static final long MIN_SEGMENT_BYTES = 1024 * 1024;
+	private static final int SEGMENTS = 8;
+
+	private final Path directory;
+	private final long maxBytes;
+	private final long segmentBytes;
+	private final FileChannel lockChannel;
+	private final FileLock lock;
+
+	private final Map<String, Location> index = new HashMap<>();
+	private final TreeMap<Long, Segment> segments = new TreeMap<>();
+	private Segment active;
+	private long totalBytes;
+	private boolean closed;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+
+	private SegmentFileContributionCache(Path directory, long maxBytes, FileChannel lockChannel, FileLock lock) {
+		this.directory = directory;
+		this.maxBytes = maxBytes;
+		this.segmentBytes = Math.min(Integer.MAX_VALUE, Math.max(MIN_SEGMENT_BYTES, maxBytes / SEGMENTS));
+		this.lockChannel = lockChannel;
+		this.lock = lock;
+	}
+
+	/**
+	 * 
+	 * @param directory
+	 *            directory to keep the segment files in. Created if it does
+	 *            not exist. Must not be {@code null}.
+	 * @param maxBytes
+	 *            maximum size of all segment files in bytes. Must be
+	 *            positive.
+	 * @return the opened cache. Must be {@link #close() closed} to release the
+	 *         directory. Never {@code null}.
+	 * @throws UncheckedIOException
+	 *             if the directory cannot be read or is in use by another
+	 *             cache
+	 */
+	public static SegmentFileContributionCache open(Path directory, long maxBytes) {
+		Objects.requireNonNull(directory, "directory");
+		if (maxBytes <= 0) {
+			throw new IllegalArgumentException("maxBytes must be positive: " + maxBytes);
+		}
+
+		FileChannel lockChannel = null;
+		try {
+			Files.createDirectories(directory);
+			lockChannel = FileChannel.open(directory.resolve(LOCK_NAME), StandardOpenOption.CREATE,
+					StandardOpenOption.WRITE);
+			FileLock lock = lockChannel.tryLock();
+			if (lock == null) {
+				throw new IOException("Contribution cache directory is in use: " + directory);
+			}
+
+			SegmentFileContributionCache cache = new SegmentFileContributionCache(directory, maxBytes, lockChannel,
+					lock);
+			cache.load();
+			return cache;
+		} catch (IOException e) {
+			closeQuietly(lockChannel);
+			throw new UncheckedIOException("Could not open contribution cache in " + directory, e);
+		}
+	}
+
+	@Override
+	public Contribution get(Project project, String settingsKey, ContributionId id) {
+		String key = key(project, settingsKey, id);
+
+		Segment segment;
+		Location location;
+		synchronized (this) {
+			location = closed ? null : index.get(key);
+			if (location == null) {
+				misses.incrementAndGet();
+				return null;
+			}
+
+			segment = segments.get(location.segment);
+			// keeps the segment from being closed and deleted while it is read
+			++segment.readers;
+		}
+
+		try {
+			ByteBuffer payload = segment.read(location.offset, location.length);
+			hits.incrementAndGet();
+			return ContributionCodec.decode(payload);
+		} catch (IOException e) {
+			log.error("Could not read contribution " + id.getValue() + " from cache in " + directory, e);
+			misses.incrementAndGet();
+			return null;
+		} finally {
+			synchronized (this) {
+				if (--segment.readers == 0) {
+					if (segment.evicted) {
+						delete(segment);
+					} else if (closed) {
+						closeQuietly(segment.channel);
+					}
+				}
+			}
+		}
+	}
+
+	@Override
+	public void put(String settingsKey, Contribution contribution) {
+		Objects.requireNonNull(settingsKey, "settingsKey");
+		Objects.requireNonNull(contribution, "contribution");
+
+		String key = key(contribution.getProject(), settingsKey, contribution.getId());
+		byte[] payload = ContributionCodec.encode(contribution);
+		byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+
+		ByteBuffer record = ByteBuffer.allocate(8 + keyBytes.length + payload.length);
+		record.putInt(4 + keyBytes.length + payload.length);
+		record.putInt(keyBytes.length);
+		record.put(keyBytes);
+		record.put(payload);
+		record.flip();
+
+		synchronized (this) {
+			if (closed || index.containsKey(key)) {
+				return;
+			}
+
+			try {
+				if (active.size > 0 && active.size + record.remaining() > segmentBytes) {
+					active = createSegment(active.number + 1);
+				}
+
+				long offset = active.append(record);
+				index.put(key, new Location(active.number, offset + 8 + keyBytes.length, payload.length));
+				totalBytes += record.capacity();
+
+				evict();
+			} catch (IOException e) {
+				log.error("Could not write contribution " + contribution.getId().getValue() + " to cache in "
+						+ directory, e);
+			}
+		}
+	}
+
+	/**
+	 * 
+	 * @return number of lookups that found a cached contribution
+	 */
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	/**
+	 * 
+	 * @return number of lookups that did not find a cached contribution
+	 */
+	public long getMissCount() {
+		return misses.get();
+	}
+
+	/**
+	 * 
+	 * @return number of segments that were evicted to stay within the maximum
+	 *         size
+	 */
+	public long getEvictionCount() {
+		return evictions.get();
+	}
+
+	/**
+	 * 
+	 * @return the current size of all segment files in bytes
+	 */
+	public synchronized long getSizeInBytes() {
+		return totalBytes;
+	}
+
+	/**
+	 * 
+	 * @return the number of cached contributions
+	 */
+	public synchronized int size() {
+		return index.size();
+	}
+
+	@Override
+	public synchronized void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+
+		// segments that are still read from are closed by their last reader
+		segments.values().stream().filter(segment -> segment.readers == 0)
+				.forEach(segment -> closeQuietly(segment.channel));
+		segments.clear();
+		index.clear();
+
+		try {
+			lock.release();
+		} catch (IOException e) {
+			log.warn("Could not release lock of contribution cache in " + directory, e);
+		}
+		closeQuietly(lockChannel);
+	}
+
+	private void load() throws IOException {
+		TreeMap<Long, Path> files = new TreeMap<>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+			for (Path file : stream) {
+				Matcher matcher = SEGMENT_NAME.matcher(file.getFileName().toString());
+				if (matcher.matches()) {
+					files.put(Long.parseLong(matcher.group(1)), file);
+				}
+			}
+		}
+
+		for (Map.Entry<Long, Path> file : files.entrySet()) {
+			Segment segment = new Segment(file.getKey(), file.getValue());
+			scan(segment);
+			segments.put(segment.number, segment);
+			totalBytes += segment.size;
+		}
+
+		if (segments.isEmpty()) {
+			active = createSegment(0);
+		} else {
+			active = segments.lastEntry().getValue();
+		}
+
+		evict();
+
+		log.info(String.format("Opened contribution cache in %s with %s entries in %s segments (%s bytes)", directory,
+				index.size(), segments.size(), totalBytes));
+	}
+
+	private void scan(Segment segment) throws IOException {
+		long size = segment.channel.size();
+
+		long position = 0;
+		while (size - position >= 8) {
+			ByteBuffer header = segment.read(position, 8);
+			int recordLength = header.getInt();
+			if (recordLength < 4 || recordLength > size - position - 4) {
+				break;
+			}
+			int keyLength = header.getInt();
+			if (keyLength < 0 || keyLength > recordLength - 4) {
+				break;
+			}
+			ByteBuffer keyBytes = segment.read(position + 8, keyLength);
+
+			long payloadOffset = position + 8 + keyLength;
+			int payloadLength = recordLength - 4 - keyLength;
+
+			index.put(new String(keyBytes.array(), StandardCharsets.UTF_8),
+					new Location(segment.number, payloadOffset, payloadLength));
+			position = payloadOffset + payloadLength;
+		}
+
+		if (position < size) {
+			log.warn(String.format("Truncating incomplete record at offset %s of %s", position, segment.path));
+			segment.channel.truncate(position);
+		}
+		segment.size = position;
+	}
+
+	private Segment createSegment(long number) throws IOException {
+		Segment segment = new Segment(number, directory.resolve("segment-" + number + ".bin"));
+		segments.put(number, segment);
+		return segment;
+	}
+
+	private void evict() {
+		while (totalBytes > maxBytes && segments.size() > 1) {
+			Segment oldest = segments.pollFirstEntry().getValue();
+
+			for (Iterator<Location> locations = index.values().iterator(); locations.hasNext();) {
+				if (locations.next().segment == oldest.number) {
+					locations.remove();
+				}
+			}
+
+			totalBytes -= oldest.size;
+			evictions.incrementAndGet();
+
+			// segments that are still read from are deleted by their last
+			// reader
+			oldest.evicted = true;
+			if (oldest.readers == 0) {
+				delete(oldest);
+			}
+		}
+	}
+
+	private static void delete(Segment segment) {
+		closeQuietly(segment.channel);
+		try {
+			Files.deleteIfExists(segment.path);
+			log.debug(String.format("Evicted contribution cache segment %s", segment.path));
+		} catch (IOException e) {
+			log.warn("Could not delete evicted contribution cache segment " + segment.path, e);
+		}
+	}
+
+	private static String key(Project project, String settingsKey, ContributionId id) {
+		Objects.requireNonNull(project, "project");
+		Objects.requireNonNull(settingsKey, "settingsKey");
+		Objects.requireNonNull(id, "id");
+
+		return project.getValue() + '\n' + settingsKey + '\n' + id.getValue();
+	}
+
+	private static void closeQuietly(Closeable closeable) {
+		if (closeable == null) {
+			return;
+		}
+		try {
+			closeable.close();
+		} catch (IOException e) {
+			log.warn("Could not close " + closeable, e);
+		}
+	}
+
+	private static class Location {
+
+		private final long segment;
+		private final long offset;
+		private final int length;
+
+		private Location(long segment, long offset, int length) {
+			this.segment = segment;
+			this.offset = offset;
+			this.length = length;
+		}
+
+	}
+
+	private static class Segment {
+
+		private final long number;
+		private final Path path;
+		private final FileChannel channel;
+		private long size;
+		private int readers;
+		private boolean evicted;
+
+		private Segment(long number, Path path) throws IOException {
+			this.number = number;
+			this.path = path;
+			this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+					StandardOpenOption.WRITE);
+			this.size = channel.size();
+		}
+
+		private long append(ByteBuffer record) throws IOException {
+			long offset = size;
+			while (record.hasRemaining()) {
+				size += channel.write(record, size);
+			}
+			return offset;
+		}
+
+		private ByteBuffer read(long offset, int length) throws IOException {
+			ByteBuffer buffer = ByteBuffer.allocate(length);
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer, offset + buffer.position()) < 0) {
+					throw new IOException("Unexpected end of segment " + path);
+				}
+			}
+			buffer.flip();
+			return buffer;
+		}
+
+	}
+
+}
@@ -0,0 +1,181 @@
+/*
+MIT License
+
+Copyright (c) 2016 Sebastian Janisch
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package org.sjanisch.skillview.git;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing hash table of line and file counters keyed by contributor,
+ * file extension and time bucket, all of which are kept as primitives.
+ * Contributors and extensions are referred to by their index, see
+ * {@link ContributionAggregation}.
+ * <p>
+ * Its size depends on the number of distinct keys only, not on the number of
+ * commits or files that were counted.
+ * <p>
+ * This class is not thread safe.
+ * 
+ * @author sebastianjanisch
+ *
+ */
+class StatisticsTable {
+
+	private static final int INITIAL_CAPACITY = 64;
+	private static final int EMPTY = -1;
+
+	private static final int LINES_ADDED = 0;
+	private static final int LINES_REMOVED = 1;
+	private static final int FILES_TOUCHED = 2;
+	private static final int COUNTERS = 3;
+
+	private int[] contributors;
+	private int[] extensions;
+	private long[] buckets;
+	private long[] counters;
+	private int size;
+
+	StatisticsTable() {
+		allocate(INITIAL_CAPACITY);
+	}
+
+	/**
+	 * 
+	 * @param contributor
+	 *            index of the contributor. Must not be negative.
+	 * @param extension
+	 *            index of the file extension
+	 * @param bucket
+	 *            index of the time bucket
+	 * @param linesAdded
+	 *            number of lines to add to the lines added
+	 * @param linesRemoved
+	 *            number of lines to add to the lines removed
+	 * @param filesTouched
+	 *            number of files to add to the files touched
+	 */
+	void add(int contributor, int extension, long bucket, long linesAdded, long linesRemoved, long filesTouched) {
+		int offset = slot(contributor, extension, bucket) * COUNTERS;
+		counters[offset + LINES_ADDED] += linesAdded;
+		counters[offset + LINES_REMOVED] += linesRemoved;
+		counters[offset + FILES_TOUCHED] += filesTouched;
+	}
+
+	/**
+	 * 
+	 * @param other
+	 *            table whose counters to add to this one. Must not be
+	 *            {@code null}.
+	 */
+	void addAll(StatisticsTable other) {
+		other.forEach(this::add);
+	}
+
+	/**
+	 * 
+	 * @return number of distinct keys
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * 
+	 * @param visitor
+	 *            invoked for every key in no particular order. Must not be
+	 *            {@code null}.
+	 */
+	void forEach(Visitor visitor) {
+		for (int slot = 0; slot < contributors.length; ++slot) {
+			if (contributors[slot] != EMPTY) {
+				int offset = slot * COUNTERS;
+				visitor.visit(contributors[slot], extensions[slot], buckets[slot], counters[offset + LINES_ADDED],
+						counters[offset + LINES_REMOVED], counters[offset + FILES_TOUCHED]);
+			}
+		}
+	}
+
+	private int slot(int contributor, int extension, long bucket) {
+		int mask = contributors.length - 1;
+		int slot = hash(contributor, extension, bucket) & mask;
+		while (contributors[slot] != EMPTY) {
+			if (contributors[slot] == contributor && extensions[slot] == extension && buckets[slot] == bucket) {
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+
+		if (4 * (size + 1) > 3 * contributors.length) {
+			grow();
+			return slot(contributor, extension, bucket);
+		}
+
+		contributors[slot] = contributor;
+		extensions[slot] = extension;
+		buckets[slot] = bucket;
+		++size;
+		return slot;
+	}
+
+	private void grow() {
+		int[] oldContributors = contributors;
+		int[] oldExtensions = extensions;
+		long[] oldBuckets = buckets;
+		long[] oldCounters = counters;
+
+		allocate(oldContributors.length * 2);
+		for (int slot = 0; slot < oldContributors.length; ++slot) {
+			if (oldContributors[slot] != EMPTY) {
+				int offset = slot * COUNTERS;
+				add(oldContributors[slot], oldExtensions[slot], oldBuckets[slot], oldCounters[offset + LINES_ADDED],
+						oldCounters[offset + LINES_REMOVED], oldCounters[offset + FILES_TOUCHED]);
+			}
+		}
+	}
+
+	private void allocate(int capacity) {
+		contributors = new int[capacity];
+		Arrays.fill(contributors, EMPTY);
+		extensions = new int[capacity];
+		buckets = new long[capacity];
+		counters = new long[capacity * COUNTERS];
+		size = 0;
+	}
+
+	private static int hash(int contributor, int extension, long bucket) {
+		long hash = contributor * 0x9E3779B97F4A7C15L ^ extension * 0xC2B2AE3D27D4EB4FL ^ bucket * 0x165667B19E3779F9L;
+		hash ^= hash >>> 32;
+		return (int) (hash ^ hash >>> 16);
+	}
+
+	/**
+	 * Receives the counters of a key.
+	 */
+	interface Visitor {
+
+		void visit(int contributor, int extension, long bucket, long linesAdded, long linesRemoved,
+				long filesTouched);
+
+	}
+
+}
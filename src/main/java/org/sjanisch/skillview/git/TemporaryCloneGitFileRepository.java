@@ -4,19 +4,40 @@ import static org.sjanisch.skillview.core.utility.ExceptionWrappers.unchecked;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 import org.eclipse.jgit.api.CloneCommand;
+import org.eclipse.jgit.api.FetchCommand;
+import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.internal.storage.file.FileRepository;
+import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.EmptyProgressMonitor;
 import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.RepositoryCache;
+import org.eclipse.jgit.transport.FetchResult;
+import org.eclipse.jgit.util.FS;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -24,6 +45,10 @@ import org.slf4j.LoggerFactory;
  * Exposes a temporary Git file based repository is cloned into a temporary
  * folder upon first access and its {@link AutoCloseable#close() close} method
  * is overridden to delete same temporary folder.
+ * <p>
+ * Alternatively, a {@link #createMirrorRepository(CloneCommand, File) mirror
+ * repository} is kept as a bare clone in a given folder across calls and only
+ * fetches new objects once it exists.
  * 
  * @author sebastianjanisch
  *
@@ -32,6 +57,8 @@ public class TemporaryCloneGitFileRepository {
 
 	private static Logger log = LoggerFactory.getLogger(TemporaryCloneGitFileRepository.class);
 
+	private static final Map<Path, Object> MIRROR_MONITORS = new ConcurrentHashMap<>();
+
 	/**
 	 * 
 	 * @param cloneCommand
@@ -43,27 +70,327 @@ public class TemporaryCloneGitFileRepository {
 	 *         delete same temporary folder. Never {@code null}.
 	 */
 	public static Repository createTemporaryRepository(CloneCommand cloneCommand) {
+		return createTemporaryRepository(cloneCommand, FetchPlan.DEFAULT);
+	}
+
+	/**
+	 * 
+	 * @param cloneCommand
+	 *            a clone command that is configured to access a repository
+	 *            which will be cloned into a temporary folder determined by
+	 *            this class. Must not be {@code null}.
+	 * @param fetchPlan
+	 *            restricts what is cloned. Must not be {@code null}.
+	 * @return a new file repository based on given clone command for its
+	 *         {@link AutoCloseable#close() close} method is overridden to
+	 *         delete same temporary folder. Never {@code null}.
+	 */
+	public static Repository createTemporaryRepository(CloneCommand cloneCommand, FetchPlan fetchPlan) {
+		Objects.requireNonNull(cloneCommand, "cloneCommand");
+		Objects.requireNonNull(fetchPlan, "fetchPlan");
+
 		AtomicReference<File> tempDir = new AtomicReference<>();
+		// bytes counted towards the disk usage, to be subtracted again on
+		// failure
+		long countedSize = 0;
 		try {
-			tempDir.set(unchecked(() -> Files.createTempDirectory("").toFile()));
-			cloneRepository(cloneCommand, tempDir.get());
-			return new FileRepository(Paths.get(tempDir.get().getAbsolutePath() + "/.git").toFile()) {
-				public void close() {
-					super.close();
-					String msg = "Deleting git repository from temporary folder %s";
-					log.info(String.format(msg, tempDir.get().getAbsolutePath()));
-					deleteTempFolder(tempDir.get().toPath());
-				}
-			};
+			tempDir.set(unchecked(() -> CloneReaper.INSTANCE.createCloneDirectory().toFile()));
+			fetchPlan.applyTo(cloneCommand);
+			long size = cloneRepository(cloneCommand, tempDir.get());
+			CloneReaper.INSTANCE.cloned(size);
+			countedSize = size;
+			File gitDir = fetchPlan.isBare() ? tempDir.get()
+					: Paths.get(tempDir.get().getAbsolutePath() + "/.git").toFile();
+			return new TemporaryRepository(gitDir, tempDir.get(), size);
 		} catch (Exception e) {
 			if (tempDir.get() != null) {
-				deleteTempFolder(tempDir.get().toPath());
+				CloneReaper.INSTANCE.reap(tempDir.get().toPath(), countedSize);
 			}
 			throw new RuntimeException(e);
 		}
 	}
 
-	private static File cloneRepository(CloneCommand cloneCommand, File tempDir) {
+	/**
+	 * Clones asynchronously on given executor.
+	 * 
+	 * @param cloneCommand
+	 *            a clone command that is configured to access a repository
+	 *            which will be cloned into a temporary folder determined by
+	 *            this class. Must not be {@code null}.
+	 * @param fetchPlan
+	 *            restricts what is cloned. Must not be {@code null}.
+	 * @param executor
+	 *            executor to clone on. Must not be {@code null}.
+	 * @return future of the cloned repository, see
+	 *         {@link #createTemporaryRepository(CloneCommand, FetchPlan)}. A
+	 *         repository that is cloned after the future was cancelled is
+	 *         closed right away. Never {@code null}.
+	 */
+	public static CompletableFuture<Repository> createTemporaryRepositoryAsync(CloneCommand cloneCommand,
+			FetchPlan fetchPlan, CloneExecutor executor) {
+		Objects.requireNonNull(cloneCommand, "cloneCommand");
+		Objects.requireNonNull(fetchPlan, "fetchPlan");
+		Objects.requireNonNull(executor, "executor");
+
+		return executor.submit(() -> createTemporaryRepository(cloneCommand, fetchPlan), Repository::close);
+	}
+
+	/**
+	 * Clones many repositories with at most given number of clones in
+	 * progress at any time, on virtual threads if available.
+	 * 
+	 * @param cloneCommands
+	 *            clone commands that are configured to access the
+	 *            repositories. Must not be {@code null} and must not contain
+	 *            {@code null}.
+	 * @param maxConcurrency
+	 *            maximum number of clones in progress at any time. Must be
+	 *            positive.
+	 * @return future of all cloned repositories, see
+	 *         {@link #createTemporaryRepositories(Collection, FetchPlan, CloneExecutor)}.
+	 *         Never {@code null}.
+	 */
+	public static CompletableFuture<List<Repository>> createTemporaryRepositories(
+			Collection<CloneCommand> cloneCommands, int maxConcurrency) {
+		CloneExecutor executor = CloneExecutor.create(maxConcurrency);
+		CompletableFuture<List<Repository>> result = createTemporaryRepositories(cloneCommands, FetchPlan.DEFAULT,
+				executor);
+		result.whenComplete((repositories, failure) -> executor.close());
+		return result;
+	}
+
+	/**
+	 * Clones many repositories on given executor, which limits the number of
+	 * clones in progress.
+	 * <p>
+	 * The returned future fails as soon as the first clone fails. Clones that
+	 * have not started yet are then skipped, and repositories that were or
+	 * are still being cloned are closed. The same applies if the returned
+	 * future is cancelled.
+	 * 
+	 * @param cloneCommands
+	 *            clone commands that are configured to access the
+	 *            repositories. Must not be {@code null} and must not contain
+	 *            {@code null}.
+	 * @param fetchPlan
+	 *            restricts what is cloned. Must not be {@code null}.
+	 * @param executor
+	 *            executor to clone on. Must not be {@code null}.
+	 * @return future of the cloned repositories in the order of the clone
+	 *         commands. Never {@code null}.
+	 */
+	public static CompletableFuture<List<Repository>> createTemporaryRepositories(
+			Collection<CloneCommand> cloneCommands, FetchPlan fetchPlan, CloneExecutor executor) {
+		Objects.requireNonNull(cloneCommands, "cloneCommands");
+		cloneCommands.forEach(cloneCommand -> Objects.requireNonNull(cloneCommand, "cloneCommand"));
+		Objects.requireNonNull(fetchPlan, "fetchPlan");
+		Objects.requireNonNull(executor, "executor");
+
+		CompletableFuture<List<Repository>> result = new CompletableFuture<>();
+		if (cloneCommands.isEmpty()) {
+			result.complete(Collections.emptyList());
+			return result;
+		}
+
+		List<CompletableFuture<Repository>> clones = new ArrayList<>();
+		for (CloneCommand cloneCommand : cloneCommands) {
+			clones.add(createTemporaryRepositoryAsync(cloneCommand, fetchPlan, executor));
+		}
+
+		BulkClone bulkClone = new BulkClone(clones, result);
+		for (int i = 0; i < clones.size(); ++i) {
+			int index = i;
+			clones.get(i).whenComplete((repository, failure) -> bulkClone.completed(index, repository, failure));
+		}
+		result.whenComplete((repositories, failure) -> {
+			if (failure != null) {
+				bulkClone.completed(-1, null, failure);
+			}
+		});
+		return result;
+	}
+
+	/**
+	 * Asynchronous variant of
+	 * {@link #createMirrorRepository(CloneCommand, File, Consumer)}.
+	 * Concurrent updates of the same mirror still happen one at a time.
+	 * 
+	 * @param cloneCommand
+	 *            a clone command that is configured to access a repository
+	 *            which will be mirrored into given folder. Must not be
+	 *            {@code null}.
+	 * @param mirrorDirectory
+	 *            the folder to keep the mirror in. Must not be {@code null}.
+	 * @param fetchConfigurer
+	 *            configures the fetch command used to update an existing
+	 *            mirror. Must not be {@code null}.
+	 * @param executor
+	 *            executor to clone or fetch on. Must not be {@code null}.
+	 * @return future of the mirror repository. Never {@code null}.
+	 */
+	public static CompletableFuture<Repository> createMirrorRepositoryAsync(CloneCommand cloneCommand,
+			File mirrorDirectory, Consumer<FetchCommand> fetchConfigurer, CloneExecutor executor) {
+		Objects.requireNonNull(cloneCommand, "cloneCommand");
+		Objects.requireNonNull(mirrorDirectory, "mirrorDirectory");
+		Objects.requireNonNull(fetchConfigurer, "fetchConfigurer");
+		Objects.requireNonNull(executor, "executor");
+
+		return executor.submit(() -> createMirrorRepository(cloneCommand, mirrorDirectory, fetchConfigurer),
+				Repository::close);
+	}
+
+	/**
+	 * Temporary clones are deleted in the background after they have been
+	 * closed, so they keep taking up disk space for a while.
+	 * 
+	 * @return bytes taken up by temporary clones of this process that are in
+	 *         use or pending deletion, as measured once after cloning
+	 */
+	public static long getDiskUsage() {
+		return CloneReaper.INSTANCE.getDiskUsage();
+	}
+
+	/**
+	 * 
+	 * @return number of closed temporary clones that are not yet deleted
+	 */
+	public static int getPendingDeletions() {
+		return CloneReaper.INSTANCE.getPendingDeletions();
+	}
+
+	/**
+	 * 
+	 * @param repository
+	 *            must not be {@code null}
+	 * @return size of given repository on disk, as measured after cloning if
+	 *         it is a temporary clone
+	 */
+	static long getCloneSize(Repository repository) {
+		if (repository instanceof TemporaryRepository) {
+			return ((TemporaryRepository) repository).size;
+		}
+		return folderSize(repository.isBare() ? repository.getDirectory() : repository.getWorkTree());
+	}
+
+	/**
+	 * Temporary clones are deleted in the background after they have been
+	 * closed. Use this to learn when their disk space is actually freed.
+	 * 
+	 * @param repository
+	 *            must not be {@code null}
+	 * @param onDeleted
+	 *            invoked once given temporary clone has been deleted after it
+	 *            was closed, or right away if given repository is not a
+	 *            temporary clone. Must not be {@code null}.
+	 * @throws IllegalStateException
+	 *             if given temporary clone is already closed
+	 */
+	static void whenDeleted(Repository repository, Runnable onDeleted) {
+		Objects.requireNonNull(repository, "repository");
+		Objects.requireNonNull(onDeleted, "onDeleted");
+
+		if (repository instanceof TemporaryRepository) {
+			((TemporaryRepository) repository).whenDeleted(onDeleted);
+		} else {
+			onDeleted.run();
+		}
+	}
+
+	/**
+	 * 
+	 * @param cloneCommand
+	 *            a clone command that is configured to access a repository
+	 *            which will be mirrored into given folder. Must not be
+	 *            {@code null}.
+	 * @param mirrorDirectory
+	 *            the folder to keep the mirror in. Must not be {@code null}.
+	 * @return a file repository for the mirror. Never {@code null}.
+	 * @see #createMirrorRepository(CloneCommand, File, Consumer)
+	 */
+	public static Repository createMirrorRepository(CloneCommand cloneCommand, File mirrorDirectory) {
+		return createMirrorRepository(cloneCommand, mirrorDirectory, fetchCommand -> {
+		});
+	}
+
+	/**
+	 * Keeps a bare mirror of a repository in given folder. If the folder does
+	 * not contain a repository yet, it is cloned into it using given clone
+	 * command. Otherwise only new objects are fetched from its origin and
+	 * references are updated, including the removal of deleted branches.
+	 * <p>
+	 * Cloning and fetching is guarded by a lock file next to the mirror
+	 * folder, so that concurrent users, be it in this or in other processes,
+	 * update the mirror one at a time. Reading from the returned repository
+	 * while another user fetches is safe.
+	 * 
+	 * @param cloneCommand
+	 *            a clone command that is configured to access a repository
+	 *            which will be mirrored into given folder. Only used if the
+	 *            mirror does not exist yet. Must not be {@code null}.
+	 * @param mirrorDirectory
+	 *            the folder to keep the mirror in. Must not be {@code null}.
+	 * @param fetchConfigurer
+	 *            configures the fetch command used to update an existing
+	 *            mirror, e.g. with credentials. Must not be {@code null}.
+	 * @return a file repository for the mirror whose {@link AutoCloseable#close()
+	 *         close} method leaves the mirror in place. Never {@code null}.
+	 */
+	public static Repository createMirrorRepository(CloneCommand cloneCommand, File mirrorDirectory,
+			Consumer<FetchCommand> fetchConfigurer) {
+		Objects.requireNonNull(cloneCommand, "cloneCommand");
+		Objects.requireNonNull(mirrorDirectory, "mirrorDirectory");
+		Objects.requireNonNull(fetchConfigurer, "fetchConfigurer");
+
+		File directory = mirrorDirectory.getAbsoluteFile();
+		Object monitor = MIRROR_MONITORS.computeIfAbsent(directory.toPath().normalize(), path -> new Object());
+		synchronized (monitor) {
+			File lockFile = new File(directory.getParentFile(), directory.getName() + ".lock");
+			try {
+				Files.createDirectories(lockFile.getParentFile().toPath());
+				try (FileChannel lockChannel = FileChannel.open(lockFile.toPath(), StandardOpenOption.CREATE,
+						StandardOpenOption.WRITE); FileLock lock = lockChannel.lock()) {
+					if (RepositoryCache.FileKey.isGitRepository(directory, FS.DETECTED)) {
+						fetchMirror(directory, fetchConfigurer);
+					} else {
+						cloneMirror(cloneCommand, directory);
+					}
+					return new FileRepository(directory);
+				}
+			} catch (Exception e) {
+				throw new RuntimeException("Could not update mirror repository in " + directory, e);
+			}
+		}
+	}
+
+	private static void cloneMirror(CloneCommand cloneCommand, File directory) {
+		boolean existed = directory.exists();
+		try {
+			cloneCommand.setBare(true).setCloneAllBranches(true);
+			cloneRepository(cloneCommand, directory);
+		} catch (Exception e) {
+			if (!existed && directory.exists()) {
+				deleteTempFolder(directory.toPath());
+			}
+			throw e;
+		}
+	}
+
+	private static void fetchMirror(File directory, Consumer<FetchCommand> fetchConfigurer) throws Exception {
+		try (Git git = Git.open(directory)) {
+			FetchCommand fetchCommand = git.fetch().setRemote(Constants.DEFAULT_REMOTE_NAME)
+					.setRemoveDeletedRefs(true);
+			fetchConfigurer.accept(fetchCommand);
+
+			long start = System.nanoTime();
+			FetchResult result = fetchCommand.call();
+
+			String msg = "Fetched %s updated references into mirror %s in %.2f seconds";
+			log.info(String.format(msg, result.getTrackingRefUpdates().size(), directory.getAbsolutePath(),
+					(System.nanoTime() - start) / 1e9));
+		}
+	}
+
+	private static long cloneRepository(CloneCommand cloneCommand, File tempDir) {
 		cloneCommand.setDirectory(tempDir);
 
 		AtomicInteger total = new AtomicInteger();
@@ -74,19 +401,14 @@ public class TemporaryCloneGitFileRepository {
 				log.info(String.format(msg, tempDir.getAbsolutePath(), title));
 				total.set(totalWork);
 			}
-
-			@Override
-			public void endTask() {
-				double folderSize = folderSize(tempDir) / 1024.0 / 1024.0;
-
-				String msg = "Successfully cloned %f MB of git repository s to temporary folder %s";
-				log.info(String.format(msg, folderSize, tempDir.getAbsolutePath()));
-			}
 		});
 
 		unchecked(() -> cloneCommand.call());
 
-		return tempDir;
+		long size = folderSize(tempDir);
+		String msg = "Successfully cloned %f MB of git repository s to temporary folder %s";
+		log.info(String.format(msg, size / 1024.0 / 1024.0, tempDir.getAbsolutePath()));
+		return size;
 	}
 
 	private static void deleteTempFolder(Path path) {
@@ -134,4 +456,95 @@ public class TemporaryCloneGitFileRepository {
 		return length;
 	}
 
+	/**
+	 * Collects the clones of
+	 * {@link TemporaryCloneGitFileRepository#createTemporaryRepositories(Collection, FetchPlan, CloneExecutor)}
+	 * and cleans up after the first failure.
+	 */
+	private static class BulkClone {
+
+		private final List<CompletableFuture<Repository>> clones;
+		private final CompletableFuture<List<Repository>> result;
+		private final Repository[] repositories;
+		private int remaining;
+		private boolean failed;
+
+		private BulkClone(List<CompletableFuture<Repository>> clones, CompletableFuture<List<Repository>> result) {
+			this.clones = clones;
+			this.result = result;
+			this.repositories = new Repository[clones.size()];
+			this.remaining = clones.size();
+		}
+
+		private void completed(int index, Repository repository, Throwable failure) {
+			synchronized (this) {
+				if (failed) {
+					if (repository != null) {
+						repository.close();
+					}
+					return;
+				}
+
+				if (failure == null) {
+					repositories[index] = repository;
+					if (--remaining > 0) {
+						return;
+					}
+				} else {
+					failed = true;
+					for (Repository cloned : repositories) {
+						if (cloned != null) {
+							cloned.close();
+						}
+					}
+				}
+			}
+
+			if (failure == null) {
+				result.complete(Collections.unmodifiableList(Arrays.asList(repositories)));
+			} else {
+				result.completeExceptionally(failure);
+				clones.forEach(clone -> clone.cancel(false));
+			}
+		}
+
+	}
+
+	/**
+	 * A clone in a temporary folder that is deleted once the repository is
+	 * closed.
+	 */
+	private static class TemporaryRepository extends FileRepository {
+
+		private final File tempDir;
+		private final long size;
+		private final AtomicBoolean deleted = new AtomicBoolean();
+		private final List<Runnable> deletionListeners = new CopyOnWriteArrayList<>();
+
+		private TemporaryRepository(File gitDir, File tempDir, long size) throws IOException {
+			super(gitDir);
+			this.tempDir = tempDir;
+			this.size = size;
+		}
+
+		private void whenDeleted(Runnable onDeleted) {
+			if (deleted.get()) {
+				throw new IllegalStateException("Temporary repository is already closed: " + tempDir);
+			}
+			deletionListeners.add(onDeleted);
+		}
+
+		@Override
+		public void close() {
+			super.close();
+			if (deleted.compareAndSet(false, true)) {
+				String msg = "Deleting git repository from temporary folder %s";
+				log.info(String.format(msg, tempDir.getAbsolutePath()));
+				CloneReaper.INSTANCE.reap(tempDir.toPath(), size,
+						() -> deletionListeners.forEach(Runnable::run));
+			}
+		}
+
+	}
+
 }
@@ -0,0 +1,126 @@
+/*
+MIT License
+
+Copyright (c) 2016 Sebastian Janisch
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package org.sjanisch.skillview.git;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * 
+ * @author sebastianjanisch
+ *
+ */
+public class BlobLoaderTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private LocalRepository repository;
+	private InMemoryExtractionMetrics metrics;
+
+	@Before
+	public void setUp() throws Exception {
+		repository = LocalRepository.create(folder.newFolder("repository.git"));
+		metrics = new InMemoryExtractionMetrics();
+	}
+
+	@After
+	public void tearDown() {
+		repository.close();
+	}
+
+	@Test
+	public void testLargeBinaryBlobIsClassifiedOnItsHead() throws Exception {
+		byte[] content = new byte[100000];
+		Blob blob = load(new BlobLoader(200000, 1000, LargeBlobPolicy.STREAM, metrics), content);
+
+		assertEquals(Blob.Kind.BINARY, blob.getKind());
+		assertEquals(8000, metrics.getBytesInflated());
+	}
+
+	@Test
+	public void testLargeTextBlobIsStreamed() throws Exception {
+		byte[] content = text(100000);
+		Blob blob = load(new BlobLoader(200000, 1000, LargeBlobPolicy.STREAM, metrics), content);
+
+		assertEquals(Blob.Kind.TEXT, blob.getKind());
+		assertEquals(content.length, blob.getText().getRawContent().length);
+	}
+
+	@Test
+	public void testLargeBlobIsSkippedByPolicy() throws Exception {
+		Blob blob = load(new BlobLoader(200000, 1000, LargeBlobPolicy.SKIP, metrics), text(100000));
+
+		assertEquals(Blob.Kind.TOO_LARGE, blob.getKind());
+		assertEquals(0, metrics.getBytesInflated());
+		assertEquals(1, metrics.getLargeBlobsSkipped());
+	}
+
+	@Test
+	public void testSmallBlobIsNotLarge() throws Exception {
+		Blob blob = load(new BlobLoader(200000, 1000, LargeBlobPolicy.SKIP, metrics), text(1000));
+
+		assertEquals(Blob.Kind.TEXT, blob.getKind());
+	}
+
+	@Test
+	public void testBlobAboveMaximumSizeIsSkipped() throws Exception {
+		Blob blob = load(new BlobLoader(10000, 1000, LargeBlobPolicy.STREAM, metrics), text(100000));
+
+		assertEquals(Blob.Kind.TOO_LARGE, blob.getKind());
+		assertEquals(0, metrics.getBytesInflated());
+	}
+
+	private Blob load(BlobLoader loader, byte[] content) throws Exception {
+		ObjectId id;
+		try (ObjectInserter inserter = repository.getRepository().newObjectInserter()) {
+			id = inserter.insert(Constants.OBJ_BLOB, content);
+			inserter.flush();
+		}
+		try (ObjectReader reader = repository.getRepository().newObjectReader()) {
+			return loader.load(reader, id);
+		}
+	}
+
+	private static byte[] text(int length) {
+		byte[] result = new byte[length];
+		Arrays.fill(result, (byte) 'a');
+		for (int i = 99; i < length; i += 100) {
+			result[i] = '\n';
+		}
+		return result;
+	}
+
+}
@@ -0,0 +1,155 @@
+/*
+MIT License
+
+Copyright (c) 2016 Sebastian Janisch
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package org.sjanisch.skillview.git;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevSort;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * 
+ * @author sebastianjanisch
+ *
+ */
+public class BranchRevWalkTest {
+
+	private static final Map<String, String> FILES = Collections.singletonMap("file.txt", "content");
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private LocalRepository repository;
+
+	@Before
+	public void setUp() throws IOException {
+		repository = LocalRepository.create(folder.newFolder("origin.git"));
+	}
+
+	@After
+	public void tearDown() {
+		repository.close();
+	}
+
+	@Test
+	public void testBranchesOfSharedHistory() throws Exception {
+		ObjectId root = repository.commit(1000, FILES);
+		ObjectId master = repository.commit(2000, FILES, root);
+		ObjectId feature = repository.commit(3000, FILES, root);
+		repository.branch("master", master);
+		repository.branch("feature", feature);
+
+		try (BranchRevWalk walk = createWalk(RevSort.TOPO, RevSort.COMMIT_TIME_DESC)) {
+			List<RevCommit> commits = walk.walkCommits();
+
+			assertEquals(3, commits.size());
+			assertEquals(branches("master", "feature"), walk.getBranches(walk.lookupCommit(root)));
+			assertEquals(branches("master"), walk.getBranches(walk.lookupCommit(master)));
+			assertEquals(branches("feature"), walk.getBranches(walk.lookupCommit(feature)));
+		}
+	}
+
+	@Test
+	public void testBranchesUnderClockSkew() throws Exception {
+		// the tip of "skewed" claims to be older than its parent and
+		// grandparent, so the walk pops it after both of them
+		ObjectId grandparent = repository.commit(3000, FILES);
+		ObjectId parent = repository.commit(4000, FILES, grandparent);
+		ObjectId master = repository.commit(5000, FILES, parent);
+		ObjectId skewed = repository.commit(1000, FILES, parent);
+		repository.branch("master", master);
+		repository.branch("skewed", skewed);
+
+		for (RevSort[] sort : Arrays.asList(new RevSort[] { RevSort.COMMIT_TIME_DESC },
+				new RevSort[] { RevSort.TOPO, RevSort.COMMIT_TIME_DESC })) {
+			try (BranchRevWalk walk = createWalk(sort)) {
+				List<RevCommit> commits = walk.walkCommits();
+
+				assertEquals(4, commits.size());
+				assertEquals(branches("master", "skewed"), walk.getBranches(walk.lookupCommit(grandparent)));
+				assertEquals(branches("master", "skewed"), walk.getBranches(walk.lookupCommit(parent)));
+				assertEquals(branches("skewed"), walk.getBranches(walk.lookupCommit(skewed)));
+			}
+		}
+	}
+
+	@Test
+	public void testFirstParentChainUnderClockSkew() throws Exception {
+		// the walk reaches the mainline commit "parent" through the side
+		// commit first, as its mainline child claims to be older than both
+		ObjectId root = repository.commit(2000, FILES);
+		ObjectId parent = repository.commit(3000, FILES, root);
+		ObjectId skewed = repository.commit(1000, FILES, parent);
+		ObjectId side = repository.commit(4500, FILES, parent);
+		ObjectId merge = repository.commit(5000, FILES, skewed, side);
+		repository.branch("master", merge);
+
+		for (RevSort[] sort : Arrays.asList(new RevSort[] { RevSort.COMMIT_TIME_DESC },
+				new RevSort[] { RevSort.TOPO, RevSort.COMMIT_TIME_DESC })) {
+			try (BranchRevWalk walk = createWalk(sort)) {
+				walk.setFirstParentOnly(true);
+				List<RevCommit> commits = walk.walkCommits();
+
+				assertEquals(new HashSet<>(Arrays.asList(merge, skewed, parent, root)), new HashSet<>(commits));
+			}
+		}
+	}
+
+	private BranchRevWalk createWalk(RevSort... sort) throws Exception {
+		BranchRevWalk walk = new BranchRevWalk(repository.getRepository());
+		for (Ref branch : Git.wrap(repository.getRepository()).branchList().call()) {
+			walk.markBranchStart(branch);
+		}
+		walk.sort(sort[0]);
+		for (int i = 1; i < sort.length; ++i) {
+			walk.sort(sort[i], true);
+		}
+		return walk;
+	}
+
+	private static Set<String> branches(String... names) {
+		Set<String> result = new HashSet<>();
+		for (String name : names) {
+			result.add("refs/heads/" + name);
+		}
+		return result;
+	}
+
+}
@@ -0,0 +1,123 @@
+/*
+MIT License
+
+Copyright (c) 2016 Sebastian Janisch
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package org.sjanisch.skillview.git;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * 
+ * @author sebastianjanisch
+ *
+ */
+public class CloneReaperTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testReapDeletesInBackground() throws Exception {
+		CloneReaper reaper = new CloneReaper(folder.getRoot().toPath());
+		Path clone = reaper.createCloneDirectory();
+		Files.write(clone.resolve("file.txt"), new byte[100]);
+		reaper.cloned(100);
+		assertEquals(100, reaper.getDiskUsage());
+
+		CountDownLatch deleted = new CountDownLatch(1);
+		AtomicBoolean goneWhenNotified = new AtomicBoolean();
+		reaper.reap(clone, 100, () -> {
+			goneWhenNotified.set(isEmpty(folder.getRoot().toPath()));
+			deleted.countDown();
+		});
+
+		assertFalse(Files.exists(clone));
+		assertTrue(deleted.await(10, TimeUnit.SECONDS));
+		assertTrue(goneWhenNotified.get());
+		assertEquals(0, reaper.getDiskUsage());
+		assertEquals(0, reaper.getPendingDeletions());
+	}
+
+	@Test
+	public void testSweepOnlyDeletesStaleTombstones() throws Exception {
+		Path stale = createFolder("skill-view-tombstone-stale", TimeUnit.DAYS.toMillis(1));
+		Path recent = createFolder("skill-view-tombstone-recent", TimeUnit.MINUTES.toMillis(1));
+
+		sweep();
+
+		assertFalse(Files.exists(stale));
+		assertTrue(Files.exists(recent));
+	}
+
+	@Test
+	public void testSweepOnlyDeletesStaleClones() throws Exception {
+		Path stale = createFolder("skill-view-clone-stale", TimeUnit.DAYS.toMillis(2));
+		Path recent = createFolder("skill-view-clone-recent", TimeUnit.HOURS.toMillis(2));
+
+		sweep();
+
+		assertFalse(Files.exists(stale));
+		assertFalse(Files.exists(stale.resolveSibling("skill-view-tombstone-skill-view-clone-stale")));
+		assertTrue(Files.exists(recent));
+	}
+
+	private Path createFolder(String name, long ageMillis) throws IOException {
+		Path result = Files.createDirectory(folder.getRoot().toPath().resolve(name));
+		Files.write(result.resolve("file.txt"), new byte[1]);
+		Files.setLastModifiedTime(result, FileTime.fromMillis(System.currentTimeMillis() - ageMillis));
+		return result;
+	}
+
+	private void sweep() throws Exception {
+		CloneReaper reaper = new CloneReaper(folder.getRoot().toPath());
+		reaper.createCloneDirectory();
+		long deadline = System.currentTimeMillis() + 10000;
+		while (reaper.getPendingDeletions() > 0 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+	}
+
+	private static boolean isEmpty(Path directory) {
+		try (Stream<Path> entries = Files.list(directory)) {
+			return !entries.findAny().isPresent();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+}
@@ -0,0 +1,87 @@
+/*
+MIT License
+
+Copyright (c) 2016 Sebastian Janisch
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package org.sjanisch.skillview.git;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * 
+ * @author sebastianjanisch
+ *
+ */
+public class CommitGraphTest {
+
+	private static final Map<String, String> FILES = Collections.singletonMap("file.txt", "content");
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private LocalRepository repository;
+	private Path file;
+
+	@Before
+	public void setUp() throws Exception {
+		repository = LocalRepository.create(folder.newFolder("repository.git"));
+		file = folder.getRoot().toPath().resolve("graph");
+	}
+
+	@After
+	public void tearDown() {
+		repository.close();
+	}
+
+	@Test
+	public void testIncrementalUpdateLinksNewCommitsToIndexedParents() throws Exception {
+		ObjectId root = repository.commit(1000, FILES);
+		ObjectId first = repository.commit(2000, FILES, root);
+		CommitGraph graph = CommitGraph.update(repository.getRepository(), file, Arrays.asList(first));
+		assertEquals(2, graph.size());
+
+		ObjectId side = repository.commit(3000, FILES, root);
+		ObjectId merge = repository.commit(4000, FILES, first, side);
+		graph = CommitGraph.update(repository.getRepository(), file, Arrays.asList(merge));
+
+		assertEquals(4, graph.size());
+		int position = graph.find(merge);
+		assertEquals(2, graph.getParentCount(position));
+		assertEquals(first, graph.getId(graph.getParent(position, 0)));
+		assertEquals(side, graph.getId(graph.getParent(position, 1)));
+		assertEquals(root, graph.getId(graph.getParent(graph.find(side), 0)));
+		assertEquals(4000, graph.getCommitTime(position));
+		assertEquals(0, graph.getParentCount(graph.find(root)));
+	}
+
+}
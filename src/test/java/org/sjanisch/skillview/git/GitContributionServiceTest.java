@@ -0,0 +1,118 @@
+/*
+MIT License
+
+Copyright (c) 2016 Sebastian Janisch
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package org.sjanisch.skillview.git;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sjanisch.skillview.core.contribution.api.Contribution;
+import org.sjanisch.skillview.core.contribution.api.Project;
+
+/**
+ * 
+ * @author sebastianjanisch
+ *
+ */
+public class GitContributionServiceTest {
+
+	private static final Instant END = Instant.ofEpochSecond(10000);
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private LocalRepository origin;
+	private File clone;
+
+	@Before
+	public void setUp() throws Exception {
+		origin = LocalRepository.create(folder.newFolder("origin.git"));
+		ObjectId first = origin.commit(1000, Collections.singletonMap("file.txt", "a\n"));
+		ObjectId second = origin.commit(2000, Collections.singletonMap("file.txt", "a\nb\n"), first);
+		ObjectId third = origin.commit(3000, Collections.singletonMap("file.txt", "a\nb\nc\n"), second);
+		origin.branch("master", third);
+
+		clone = folder.newFolder("clone");
+		Git.cloneRepository().setURI(origin.getUri()).setDirectory(clone).call().close();
+	}
+
+	@After
+	public void tearDown() {
+		origin.close();
+	}
+
+	@Test
+	public void testCheckpointResumesAtCommitTheConsumerFailedOn() throws Exception {
+		Path checkpoint = folder.getRoot().toPath().resolve("checkpoint.properties");
+		GitContributionService service = GitContributionService.newBuilder(this::openClone, Project.of("p"))
+				.setCheckpoint(checkpoint, 1).build();
+
+		try (Stream<Contribution> contributions = service.retrieveContributions(Instant.EPOCH, END)) {
+			Iterator<Contribution> iterator = contributions.iterator();
+			iterator.next();
+			// the consumer fails on the second contribution
+			iterator.next();
+		}
+
+		try (Stream<Contribution> contributions = service.retrieveContributions(Instant.EPOCH, END)) {
+			assertEquals(2, contributions.count());
+		}
+	}
+
+	@Test
+	public void testAggregationCountsAllCommits() throws Exception {
+		GitContributionService service = GitContributionService.newBuilder(this::openClone, Project.of("p")).build();
+
+		ContributionStatistics statistics = service.aggregateContributions(Instant.EPOCH, END, Duration.ofDays(1));
+
+		long[] linesAdded = new long[1];
+		statistics.forEach((contributor, bucketStart, extension, added, removed, files) -> linesAdded[0] += added);
+		assertEquals(3, linesAdded[0]);
+	}
+
+	private Repository openClone() {
+		try {
+			return Git.open(clone).getRepository();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+}
@@ -0,0 +1,95 @@
+/*
+MIT License
+
+Copyright (c) 2016 Sebastian Janisch
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package org.sjanisch.skillview.git;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.eclipse.jgit.diff.DiffAlgorithm;
+import org.eclipse.jgit.diff.DiffAlgorithm.SupportedAlgorithm;
+import org.eclipse.jgit.diff.RawText;
+import org.eclipse.jgit.diff.RawTextComparator;
+import org.junit.Test;
+import org.sjanisch.skillview.core.contribution.api.ContributionItem;
+
+/**
+ * 
+ * @author sebastianjanisch
+ *
+ */
+public class HunksTest {
+
+	private static final DiffAlgorithm ALGORITHM = DiffAlgorithm.getAlgorithm(SupportedAlgorithm.HISTOGRAM);
+
+	@Test
+	public void testMovedLineRemainsChanged() {
+		Hunks hunks = new Hunks(ALGORITHM, RawTextComparator.WS_IGNORE_ALL, 0);
+
+		List<ContributionItem> items = hunks.toContributionItems("file.txt", text("a\nb\nc\n"), text("b\na\nc\n"));
+
+		assertFalse(items.isEmpty());
+		for (ContributionItem item : items) {
+			assertEquals("file.txt", item.getPath());
+			assertTrue(differs(item));
+		}
+	}
+
+	@Test
+	public void testHunksWithContext() {
+		Hunks hunks = new Hunks(ALGORITHM, RawTextComparator.WS_IGNORE_ALL, 1);
+
+		List<ContributionItem> items = hunks.toContributionItems("file.txt", text("1\n2\n3\n4\n5\n6\n7\n8\n"),
+				text("1\nx\n3\n4\n5\n6\ny\n8"));
+
+		assertEquals(2, items.size());
+		assertEquals("1\n2\n3\n", items.get(0).getPreviousContent());
+		assertEquals("1\nx\n3\n", items.get(0).getCurrentContent());
+		assertEquals("6\n7\n8\n", items.get(1).getPreviousContent());
+		assertEquals("6\ny\n8\n", items.get(1).getCurrentContent());
+	}
+
+	@Test
+	public void testWhitespaceOnlyChange() {
+		Hunks hunks = new Hunks(ALGORITHM, RawTextComparator.WS_IGNORE_ALL, 0);
+
+		List<ContributionItem> items = hunks.toContributionItems("file.txt", text("a b\n"), text("a  b \n"));
+
+		assertTrue(items.isEmpty());
+	}
+
+	private static boolean differs(ContributionItem item) {
+		RawText previous = text(item.getPreviousContent());
+		RawText current = text(item.getCurrentContent());
+		return !ALGORITHM.diff(RawTextComparator.WS_IGNORE_ALL, previous, current).isEmpty();
+	}
+
+	private static RawText text(String content) {
+		return new RawText(content.getBytes(StandardCharsets.UTF_8));
+	}
+
+}
@@ -0,0 +1,167 @@
+/*
+MIT License
+
+Copyright (c) 2016 Sebastian Janisch
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package org.sjanisch.skillview.git;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sjanisch.skillview.core.contribution.api.Contribution;
+import org.sjanisch.skillview.core.contribution.api.ContributionService;
+import org.sjanisch.skillview.core.contribution.api.Project;
+
+/**
+ * 
+ * @author sebastianjanisch
+ *
+ */
+public class IngestSchedulerTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testAllJobsAreIngested() throws Exception {
+		List<IngestJob> jobs = createJobs(4, 1);
+
+		IngestScheduler scheduler = IngestScheduler.newBuilder(jobs).setMaxConcurrentExtractions(2).build();
+
+		assertEquals(8, retrieve(scheduler).size());
+		assertEquals(0, scheduler.getDiskUsage());
+	}
+
+	@Test
+	public void testDiskBudgetWaitsForDeletedClones() throws Exception {
+		assertClonesWaitForDeletedClones(1);
+	}
+
+	@Test
+	public void testDiskBudgetWaitsForClonesOfUnknownSize() throws Exception {
+		assertClonesWaitForDeletedClones(0);
+	}
+
+	@Test
+	public void testFailedJobDoesNotAffectOthers() throws Exception {
+		List<IngestJob> jobs = new ArrayList<>(createJobs(2, 1));
+		jobs.add(IngestJob.newBuilder(Git.cloneRepository().setURI(new File(folder.getRoot(), "missing").toURI()
+				.toString()), Project.of("missing")).build());
+		List<IngestJob> failed = Collections.synchronizedList(new ArrayList<>());
+
+		IngestScheduler scheduler = IngestScheduler.newBuilder(jobs)
+				.setFailureHandler((job, e) -> failed.add(job)).build();
+
+		assertEquals(4, retrieve(scheduler).size());
+		assertEquals(1, failed.size());
+		assertEquals("missing", failed.get(0).getProject().getValue());
+		assertEquals(0, scheduler.getDiskUsage());
+	}
+
+	private void assertClonesWaitForDeletedClones(long estimatedSize) throws Exception {
+		// every clone alone exhausts the budget, so a clone may only start once
+		// all previous clones are gone from disk
+		List<IngestJob> jobs = createJobs(4, estimatedSize);
+		keepReaperBusy();
+		List<File> clones = new ArrayList<>();
+		List<String> violations = Collections.synchronizedList(new ArrayList<>());
+
+		IngestScheduler scheduler = IngestScheduler.newBuilder(jobs).setMaxConcurrentExtractions(4)
+				.setMaxConcurrentClones(4).setMaxDiskUsage(1).setServiceFactory((repositorySupplier, project) -> {
+					ContributionService service = (startExclusive, endInclusive) -> {
+						Repository repository = repositorySupplier.get();
+						synchronized (clones) {
+							for (File clone : clones) {
+								if (isOnDisk(clone)) {
+									violations.add(clone + " still on disk when cloning " + project.getValue());
+								}
+							}
+							clones.add(repository.getWorkTree());
+						}
+						return new GitContributionService(() -> repository, project)
+								.retrieveContributions(startExclusive, endInclusive);
+					};
+					return service;
+				}).build();
+
+		assertEquals(8, retrieve(scheduler).size());
+		assertEquals(4, clones.size());
+		assertEquals(Collections.emptyList(), violations);
+	}
+
+	private List<IngestJob> createJobs(int count, long estimatedSize) throws Exception {
+		List<IngestJob> result = new ArrayList<>();
+		for (int i = 0; i < count; ++i) {
+			try (LocalRepository origin = LocalRepository.create(folder.newFolder("origin-" + i + ".git"))) {
+				ObjectId first = origin.commit(1000, Collections.singletonMap("file.txt", "a\n"));
+				ObjectId second = origin.commit(2000, Collections.singletonMap("file.txt", "a\nb\n"), first);
+				origin.branch("master", second);
+
+				result.add(IngestJob.newBuilder(Git.cloneRepository().setURI(origin.getUri()), Project.of("p" + i))
+						.setEstimatedSize(estimatedSize).build());
+			}
+		}
+		return result;
+	}
+
+	private static List<Contribution> retrieve(IngestScheduler scheduler) throws InterruptedException {
+		List<Contribution> result;
+		try (Stream<Contribution> contributions = scheduler.retrieveContributions(Instant.EPOCH, Instant.now())) {
+			result = contributions.collect(Collectors.toList());
+		}
+
+		// clones are deleted in the background
+		long deadline = System.currentTimeMillis() + 10000;
+		while (scheduler.getDiskUsage() > 0 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		return result;
+	}
+
+	private void keepReaperBusy() throws IOException {
+		// deletions of clones queue up behind this folder
+		File busy = folder.newFolder("busy");
+		for (int i = 0; i < 5000; ++i) {
+			Files.write(new File(busy, "file-" + i).toPath(), new byte[0]);
+		}
+		CloneReaper.INSTANCE.reap(busy.toPath(), 0);
+	}
+
+	private static boolean isOnDisk(File clone) {
+		return clone.exists() || new File(clone.getParentFile(), "skill-view-tombstone-" + clone.getName()).exists();
+	}
+
+}
@@ -0,0 +1,161 @@
+/*
+MIT License
+
+Copyright (c) 2016 Sebastian Janisch
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package org.sjanisch.skillview.git;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TimeZone;
+import java.util.TreeMap;
+
+import org.eclipse.jgit.internal.storage.file.FileRepository;
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.TreeFormatter;
+
+/**
+ * A bare repository in a local folder whose commits are written directly, so
+ * that tests control their parents and commit times.
+ * 
+ * @author sebastianjanisch
+ *
+ */
+class LocalRepository implements AutoCloseable {
+
+	private final Repository repository;
+
+	private LocalRepository(Repository repository) {
+		this.repository = repository;
+	}
+
+	/**
+	 * 
+	 * @param directory
+	 *            folder to create the bare repository in. Must not be
+	 *            {@code null}.
+	 * @return the new repository. Never {@code null}.
+	 * @throws IOException
+	 *             if the repository cannot be created
+	 */
+	static LocalRepository create(File directory) throws IOException {
+		Objects.requireNonNull(directory, "directory");
+
+		Repository repository = new FileRepository(directory);
+		repository.create(true);
+		return new LocalRepository(repository);
+	}
+
+	/**
+	 * 
+	 * @param commitTimeSeconds
+	 *            author and commit time in seconds since the epoch
+	 * @param files
+	 *            paths and contents of all files of the commit, in a single
+	 *            folder. Must not be {@code null}.
+	 * @param parents
+	 *            parents of the commit. Must not be {@code null}.
+	 * @return id of the new commit. Never {@code null}.
+	 * @throws IOException
+	 *             if the commit cannot be written
+	 */
+	ObjectId commit(long commitTimeSeconds, Map<String, String> files, ObjectId... parents) throws IOException {
+		Objects.requireNonNull(files, "files");
+		Objects.requireNonNull(parents, "parents");
+
+		try (ObjectInserter inserter = repository.newObjectInserter()) {
+			TreeFormatter tree = new TreeFormatter();
+			for (Map.Entry<String, String> file : new TreeMap<>(files).entrySet()) {
+				byte[] content = file.getValue().getBytes(StandardCharsets.UTF_8);
+				tree.append(file.getKey(), FileMode.REGULAR_FILE, inserter.insert(Constants.OBJ_BLOB, content));
+			}
+
+			PersonIdent ident = new PersonIdent("Jane Doe", "jane@example.com", new Date(commitTimeSeconds * 1000),
+					TimeZone.getTimeZone("UTC"));
+			CommitBuilder commit = new CommitBuilder();
+			commit.setTreeId(inserter.insert(tree));
+			commit.setParentIds(parents);
+			commit.setAuthor(ident);
+			commit.setCommitter(ident);
+			commit.setMessage("Commit at " + commitTimeSeconds);
+
+			ObjectId result = inserter.insert(commit);
+			inserter.flush();
+			return result;
+		}
+	}
+
+	/**
+	 * Creates or moves a branch.
+	 * 
+	 * @param name
+	 *            short name of the branch. Must not be {@code null}.
+	 * @param commit
+	 *            commit to point the branch at. Must not be {@code null}.
+	 * @throws IOException
+	 *             if the branch cannot be updated
+	 */
+	void branch(String name, ObjectId commit) throws IOException {
+		Objects.requireNonNull(name, "name");
+		Objects.requireNonNull(commit, "commit");
+
+		RefUpdate update = repository.updateRef(Constants.R_HEADS + name);
+		update.setNewObjectId(commit);
+		update.setForceUpdate(true);
+		RefUpdate.Result result = update.forceUpdate();
+		if (result == RefUpdate.Result.LOCK_FAILURE || result == RefUpdate.Result.IO_FAILURE) {
+			throw new IOException("Could not update branch " + name + ": " + result);
+		}
+	}
+
+	/**
+	 * 
+	 * @return the repository. Never {@code null}.
+	 */
+	Repository getRepository() {
+		return repository;
+	}
+
+	/**
+	 * 
+	 * @return URI to clone this repository from. Never {@code null}.
+	 */
+	String getUri() {
+		return repository.getDirectory().toURI().toString();
+	}
+
+	@Override
+	public void close() {
+		repository.close();
+	}
+
+}
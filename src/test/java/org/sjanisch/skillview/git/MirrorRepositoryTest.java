@@ -0,0 +1,157 @@
+/*
+MIT License
+
+Copyright (c) 2016 Sebastian Janisch
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package org.sjanisch.skillview.git;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * 
+ * @author sebastianjanisch
+ *
+ */
+public class MirrorRepositoryTest {
+
+	private static final Map<String, String> FILES = Collections.singletonMap("file.txt", "content");
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private LocalRepository origin;
+	private File mirrorDirectory;
+
+	@Before
+	public void setUp() throws Exception {
+		origin = LocalRepository.create(folder.newFolder("origin.git"));
+		mirrorDirectory = new File(folder.getRoot(), "mirror.git");
+	}
+
+	@After
+	public void tearDown() {
+		origin.close();
+	}
+
+	@Test
+	public void testMirrorIsClonedAndThenFetched() throws Exception {
+		ObjectId first = origin.commit(1000, FILES);
+		origin.branch("master", first);
+		origin.branch("feature", first);
+
+		try (Repository mirror = createMirror()) {
+			assertTrue(mirror.isBare());
+			assertEquals(first, mirror.exactRef("refs/heads/master").getObjectId());
+			assertEquals(first, mirror.exactRef("refs/heads/feature").getObjectId());
+		}
+		assertTrue(new File(folder.getRoot(), "mirror.git.lock").exists());
+
+		ObjectId second = origin.commit(2000, FILES, first);
+		origin.branch("master", second);
+		RefUpdate delete = origin.getRepository().updateRef("refs/heads/feature");
+		delete.setForceUpdate(true);
+		delete.delete();
+
+		try (Repository mirror = createMirror()) {
+			assertEquals(second, mirror.exactRef("refs/heads/master").getObjectId());
+			assertNull(mirror.exactRef("refs/heads/feature"));
+			assertTrue(mirror.getObjectDatabase().has(second));
+		}
+	}
+
+	@Test
+	public void testMirrorIsClonedIntoMissingParentDirectory() throws Exception {
+		ObjectId commit = origin.commit(1000, FILES);
+		origin.branch("master", commit);
+		mirrorDirectory = new File(folder.getRoot(), "mirrors/nested/mirror.git");
+
+		try (Repository mirror = createMirror()) {
+			assertEquals(commit, mirror.exactRef("refs/heads/master").getObjectId());
+		}
+	}
+
+	@Test
+	public void testConcurrentUpdatesOfSameMirror() throws Exception {
+		ObjectId commit = origin.commit(1000, FILES);
+		origin.branch("master", commit);
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<ObjectId>> updates = new ArrayList<>();
+			for (int i = 0; i < 4; ++i) {
+				Callable<ObjectId> update = () -> {
+					try (Repository mirror = createMirror()) {
+						return mirror.exactRef("refs/heads/master").getObjectId();
+					}
+				};
+				updates.add(executor.submit(update));
+			}
+			for (Future<ObjectId> update : updates) {
+				assertEquals(commit, update.get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testFailedCloneLeavesNoMirror() throws Exception {
+		String missing = new File(folder.getRoot(), "missing.git").toURI().toString();
+
+		try {
+			TemporaryCloneGitFileRepository.createMirrorRepository(Git.cloneRepository().setURI(missing),
+					mirrorDirectory);
+			fail("Expected clone of missing repository to fail");
+		} catch (RuntimeException e) {
+			assertFalse(mirrorDirectory.exists());
+		}
+	}
+
+	private Repository createMirror() {
+		return TemporaryCloneGitFileRepository.createMirrorRepository(Git.cloneRepository().setURI(origin.getUri()),
+				mirrorDirectory);
+	}
+
+}
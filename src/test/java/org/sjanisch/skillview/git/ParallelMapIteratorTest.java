@@ -0,0 +1,97 @@
+/*
+MIT License
+
+Copyright (c) 2016 Sebastian Janisch
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package org.sjanisch.skillview.git;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * 
+ * @author sebastianjanisch
+ *
+ */
+public class ParallelMapIteratorTest {
+
+	private final ExecutorService executor = Executors.newCachedThreadPool();
+
+	private final AtomicInteger concurrent = new AtomicInteger();
+	private final AtomicInteger maxConcurrent = new AtomicInteger();
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void testOrderedResultsWithBoundedConcurrency() {
+		List<Integer> result = map(true);
+
+		assertEquals(IntStream.range(0, 20).map(i -> i * 2).boxed().collect(Collectors.toList()), result);
+		assertTrue("max concurrency " + maxConcurrent.get(), maxConcurrent.get() <= 2);
+	}
+
+	@Test
+	public void testUnorderedResultsWithBoundedConcurrency() {
+		List<Integer> result = map(false);
+
+		Collections.sort(result);
+		assertEquals(IntStream.range(0, 20).map(i -> i * 2).boxed().collect(Collectors.toList()), result);
+		assertTrue("max concurrency " + maxConcurrent.get(), maxConcurrent.get() <= 2);
+	}
+
+	private List<Integer> map(boolean ordered) {
+		Function<Integer, Integer> function = element -> {
+			maxConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+			try {
+				Thread.sleep(5);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} finally {
+				concurrent.decrementAndGet();
+			}
+			return element * 2;
+		};
+
+		List<Integer> result = new ArrayList<>();
+		try (ParallelMapIterator<Integer, Integer> iterator = new ParallelMapIterator<>(
+				IntStream.range(0, 20).iterator(), function, executor, 8, 2, ordered)) {
+			iterator.forEachRemaining(result::add);
+		}
+		return result;
+	}
+
+}
@@ -0,0 +1,203 @@
+/*
+MIT License
+
+Copyright (c) 2016 Sebastian Janisch
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+package org.sjanisch.skillview.git;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jgit.api.CloneCommand;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * 
+ * @author sebastianjanisch
+ *
+ */
+public class TemporaryCloneRepositoriesTest {
+
+	private static final Map<String, String> FILES = Collections.singletonMap("file.txt", "content");
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private final List<LocalRepository> origins = new ArrayList<>();
+	private final List<ObjectId> heads = new ArrayList<>();
+
+	@Before
+	public void setUp() throws Exception {
+		for (int i = 0; i < 3; ++i) {
+			LocalRepository origin = LocalRepository.create(folder.newFolder("origin" + i + ".git"));
+			ObjectId head = origin.commit(1000 + i, FILES);
+			origin.branch("master", head);
+			origins.add(origin);
+			heads.add(head);
+		}
+	}
+
+	@After
+	public void tearDown() {
+		origins.forEach(LocalRepository::close);
+	}
+
+	@Test
+	public void testRepositoriesAreClonedInOrderOfCommands() throws Exception {
+		List<RecordingCloneCommand> commands = new ArrayList<>();
+		for (LocalRepository origin : origins) {
+			commands.add(new RecordingCloneCommand(origin.getUri()));
+		}
+
+		List<Repository> repositories = TemporaryCloneGitFileRepository
+				.createTemporaryRepositories(new ArrayList<>(commands), 2).get(30, TimeUnit.SECONDS);
+
+		assertEquals(heads.size(), repositories.size());
+		for (int i = 0; i < heads.size(); ++i) {
+			try (Repository repository = repositories.get(i)) {
+				assertEquals(heads.get(i), repository.resolve("HEAD"));
+			}
+		}
+		for (RecordingCloneCommand command : commands) {
+			assertDeleted(command.directory);
+		}
+	}
+
+	@Test
+	public void testFailedCloneClosesAllOtherClones() throws Exception {
+		String missing = new File(folder.getRoot(), "missing.git").toURI().toString();
+		List<RecordingCloneCommand> commands = Arrays.asList(new RecordingCloneCommand(origins.get(0).getUri()),
+				new RecordingCloneCommand(origins.get(1).getUri()), new RecordingCloneCommand(missing),
+				new RecordingCloneCommand(origins.get(2).getUri()));
+
+		try (CloneExecutor executor = CloneExecutor.onPlatformThreads(1)) {
+			try {
+				TemporaryCloneGitFileRepository
+						.createTemporaryRepositories(new ArrayList<>(commands), FetchPlan.DEFAULT, executor)
+						.get(30, TimeUnit.SECONDS);
+				fail("Expected clone of missing repository to fail");
+			} catch (ExecutionException e) {
+				// expected
+			}
+			awaitQueuedClones(executor);
+		}
+
+		// clones run one at a time in order of the commands, so the first two
+		// had completed when the third failed, and the last was skipped
+		assertDeleted(commands.get(0).directory);
+		assertDeleted(commands.get(1).directory);
+		assertNull(commands.get(3).directory);
+	}
+
+	@Test
+	public void testCancelledCloneIsSkipped() throws Exception {
+		RecordingCloneCommand command = new RecordingCloneCommand(origins.get(0).getUri());
+
+		try (CloneExecutor executor = CloneExecutor.onPlatformThreads(1)) {
+			// occupy the only permit so that the clone cannot complete before
+			// it is cancelled
+			RecordingCloneCommand blocker = new RecordingCloneCommand(origins.get(1).getUri());
+			blocker.blocked = true;
+			CompletableFuture<Repository> blocking = TemporaryCloneGitFileRepository
+					.createTemporaryRepositoryAsync(blocker, FetchPlan.DEFAULT, executor);
+			assertTrue(TemporaryCloneGitFileRepository
+					.createTemporaryRepositoryAsync(command, FetchPlan.DEFAULT, executor).cancel(false));
+			synchronized (blocker) {
+				blocker.blocked = false;
+				blocker.notifyAll();
+			}
+			blocking.get(30, TimeUnit.SECONDS).close();
+			awaitQueuedClones(executor);
+		}
+
+		assertNull(command.directory);
+	}
+
+	/**
+	 * Clones run in order of submission on a single platform thread, so once
+	 * another clone completes, all previously submitted ones have run.
+	 */
+	private void awaitQueuedClones(CloneExecutor executor) throws Exception {
+		CloneCommand command = new RecordingCloneCommand(origins.get(2).getUri());
+		TemporaryCloneGitFileRepository.createTemporaryRepositoryAsync(command, FetchPlan.DEFAULT, executor)
+				.get(30, TimeUnit.SECONDS).close();
+	}
+
+	private static void assertDeleted(File directory) throws InterruptedException {
+		assertNotNull(directory);
+		long deadline = System.currentTimeMillis() + 10000;
+		while (directory.exists() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertFalse(directory.exists());
+	}
+
+	/**
+	 * Records the temporary folder it clones into.
+	 */
+	private static class RecordingCloneCommand extends CloneCommand {
+
+		private volatile File directory;
+		private boolean blocked;
+
+		private RecordingCloneCommand(String uri) {
+			setURI(uri);
+		}
+
+		@Override
+		public CloneCommand setDirectory(File directory) {
+			synchronized (this) {
+				while (blocked) {
+					try {
+						wait();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						return this;
+					}
+				}
+			}
+			this.directory = directory;
+			return super.setDirectory(directory);
+		}
+
+	}
+
+}